@@ -0,0 +1,299 @@
+package ee.ttu.java.studenttester.classes;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Output buffer with a size limit, used for capturing the output of student code. Output over the
+ * limit is dropped: either everything after the limit, or the middle part so that both the beginning
+ * and the end are kept. Dropped output is replaced with a marker telling how much was left out.
+ * <br>Memory is taken in fixed-size chunks from a pool shared by all buffers, so output is never
+ * copied to a larger array while growing and the chunks are reused by later runs after
+ * {@link #release()}. Optionally, the beginning can be kept in a temporary file instead of memory
+ * after the first chunks.
+ * @author Andres
+ *
+ */
+public final class CaptureBuffer extends OutputStream {
+
+	/**
+	 * Default limit of kept output in bytes.
+	 */
+	public static final long DEFAULT_LIMIT = 1024 * 1024;
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+	/**
+	 * Maximum amount of free chunks kept in the pool.
+	 */
+	private static final int POOL_SIZE = 256;
+	/**
+	 * Bytes of the beginning kept in memory before spilling to a file.
+	 */
+	private static final long MEMORY_LIMIT = 4 * CHUNK_SIZE;
+	private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<byte[]>();
+	private static final AtomicInteger POOLED = new AtomicInteger();
+
+	private long limit;
+	private boolean keepTail;
+	private File spillFolder;
+
+	/**
+	 * Chunks holding the beginning of the output.
+	 */
+	private final List<byte[]> head = new ArrayList<byte[]>();
+	private long headLength;
+	private File spillFile;
+	private OutputStream spill;
+	private long spillLength;
+	/**
+	 * Ring of chunks holding the end of the output, allocated when the beginning is full.
+	 */
+	private byte[][] tail;
+	private long tailLength;
+	private long written;
+
+	/**
+	 * Creates a buffer with the default limit, keeping the beginning and the end.
+	 */
+	public CaptureBuffer() {
+		this(DEFAULT_LIMIT, true, null);
+	}
+
+	/**
+	 * Creates a buffer.
+	 * @param limit - maximum amount of bytes kept
+	 * @param keepTail - true to keep the end of the output as well, false to keep only the beginning
+	 * @param spillFolder - folder for keeping the beginning on disk, null to keep everything in memory
+	 */
+	public CaptureBuffer(final long limit, final boolean keepTail, final File spillFolder) {
+		setLimits(limit, keepTail, spillFolder);
+	}
+
+	/**
+	 * Changes the limits, must be called before anything is written.
+	 * @param newLimit - maximum amount of bytes kept
+	 * @param newKeepTail - true to keep the end of the output as well, false to keep only the beginning
+	 * @param newSpillFolder - folder for keeping the beginning on disk, null to keep everything in memory
+	 */
+	public synchronized void setLimits(final long newLimit, final boolean newKeepTail, final File newSpillFolder) {
+		if (written > 0) {
+			throw new IllegalStateException("Limits cannot be changed after writing");
+		}
+		this.limit = Math.max(0, newLimit);
+		this.keepTail = newKeepTail;
+		this.spillFolder = newSpillFolder;
+	}
+
+	/**
+	 * Creates an empty buffer with the same limits.
+	 * @return new buffer
+	 */
+	public synchronized CaptureBuffer newBuffer() {
+		return new CaptureBuffer(limit, keepTail, spillFolder);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		write(new byte[] {(byte) b}, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+		int offset = off;
+		int remaining = len;
+		written += len;
+		long headLimit = limit - getTailCapacity();
+		if (headLength + spillLength < headLimit) {
+			int count = (int) Math.min(remaining, headLimit - headLength - spillLength);
+			writeHead(b, offset, count);
+			offset += count;
+			remaining -= count;
+		}
+		if (remaining > 0 && getTailCapacity() > 0) {
+			writeTail(b, offset, remaining);
+		}
+	}
+
+	/**
+	 * Writes the kept output, with a marker in place of the dropped part.
+	 * @param out - target
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void writeTo(final OutputStream out) throws IOException {
+		for (int i = 0; i < head.size(); i++) {
+			out.write(head.get(i), 0, (int) Math.min(CHUNK_SIZE, headLength - (long) i * CHUNK_SIZE));
+		}
+		if (spill != null) {
+			spill.flush();
+			Files.copy(spillFile.toPath(), out);
+		}
+		long dropped = getDroppedSize();
+		if (dropped > 0) {
+			out.write(String.format("\n[... %d bytes of output omitted ...]\n", dropped)
+					.getBytes(StandardCharsets.UTF_8));
+		}
+		long tailCapacity = getTailCapacity();
+		long position = Math.max(0, tailLength - tailCapacity);
+		while (position < tailLength) {
+			int index = (int) (position % tailCapacity);
+			int count = (int) Math.min(Math.min(tailLength - position, tailCapacity - index),
+					CHUNK_SIZE - index % CHUNK_SIZE);
+			out.write(tail[index / CHUNK_SIZE], index % CHUNK_SIZE, count);
+			position += count;
+		}
+	}
+
+	/**
+	 * Gets the amount of bytes written, including the dropped ones.
+	 * @return total size
+	 */
+	public synchronized long getTotalSize() {
+		return written;
+	}
+
+	/**
+	 * Gets the amount of bytes dropped because of the limit.
+	 * @return size of the omitted part
+	 */
+	public synchronized long getDroppedSize() {
+		return written - headLength - spillLength - Math.min(tailLength, getTailCapacity());
+	}
+
+	/**
+	 * Returns the kept output as UTF-8 text.
+	 * @return output
+	 */
+	@Override
+	public synchronized String toString() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			writeTo(out);
+			return out.toString(StandardCharsets.UTF_8.name());
+		} catch (UnsupportedEncodingException e) {
+			return out.toString();
+		} catch (IOException e) {
+			log("Could not read captured output: " + e.getMessage());
+			return out.toString();
+		}
+	}
+
+	/**
+	 * Empties the buffer and returns its memory to the pool. The buffer can be used again.
+	 */
+	public synchronized void release() {
+		for (byte[] chunk : head) {
+			recycle(chunk);
+		}
+		head.clear();
+		if (tail != null) {
+			for (byte[] chunk : tail) {
+				recycle(chunk);
+			}
+			tail = null;
+		}
+		if (spill != null) {
+			try {
+				spill.close();
+				Files.deleteIfExists(spillFile.toPath());
+			} catch (IOException e) {
+				log("Could not delete spilled output: " + e.getMessage());
+			}
+			spill = null;
+			spillFile = null;
+		}
+		headLength = 0;
+		spillLength = 0;
+		tailLength = 0;
+		written = 0;
+	}
+
+	private long getTailCapacity() {
+		return keepTail ? limit / 2 : 0;
+	}
+
+	private void writeHead(final byte[] b, final int off, final int len) throws IOException {
+		int offset = off;
+		int remaining = len;
+		if (spillFolder != null && headLength + remaining > MEMORY_LIMIT) {
+			int count = (int) Math.max(0, MEMORY_LIMIT - headLength);
+			writeHead(b, offset, count);
+			offset += count;
+			remaining -= count;
+			if (spill == null) {
+				Files.createDirectories(spillFolder.toPath());
+				spillFile = Files.createTempFile(spillFolder.toPath(), "output-", ".tmp").toFile();
+				spill = new BufferedOutputStream(Files.newOutputStream(spillFile.toPath()));
+			}
+			spill.write(b, offset, remaining);
+			spillLength += remaining;
+			return;
+		}
+		while (remaining > 0) {
+			int position = (int) (headLength % CHUNK_SIZE);
+			if (position == 0) {
+				head.add(take());
+			}
+			int count = Math.min(remaining, CHUNK_SIZE - position);
+			System.arraycopy(b, offset, head.get(head.size() - 1), position, count);
+			headLength += count;
+			offset += count;
+			remaining -= count;
+		}
+	}
+
+	private void writeTail(final byte[] b, final int off, final int len) {
+		long tailCapacity = getTailCapacity();
+		int offset = off;
+		int remaining = len;
+		if (remaining > tailCapacity) {
+			// only the last bytes would survive anyway
+			offset += remaining - (int) tailCapacity;
+			tailLength += remaining - (int) tailCapacity;
+			remaining = (int) tailCapacity;
+		}
+		if (tail == null) {
+			tail = new byte[(int) ((tailCapacity + CHUNK_SIZE - 1) / CHUNK_SIZE)][];
+		}
+		while (remaining > 0) {
+			int index = (int) (tailLength % tailCapacity);
+			int count = (int) Math.min(Math.min(remaining, tailCapacity - index), CHUNK_SIZE - index % CHUNK_SIZE);
+			if (tail[index / CHUNK_SIZE] == null) {
+				tail[index / CHUNK_SIZE] = take();
+			}
+			System.arraycopy(b, offset, tail[index / CHUNK_SIZE], index % CHUNK_SIZE, count);
+			tailLength += count;
+			offset += count;
+			remaining -= count;
+		}
+	}
+
+	private static byte[] take() {
+		byte[] chunk = POOL.poll();
+		if (chunk == null) {
+			return new byte[CHUNK_SIZE];
+		}
+		POOLED.decrementAndGet();
+		return chunk;
+	}
+
+	private static void recycle(final byte[] chunk) {
+		if (chunk != null && POOLED.incrementAndGet() <= POOL_SIZE) {
+			POOL.offer(chunk);
+		} else if (chunk != null) {
+			POOLED.decrementAndGet();
+		}
+	}
+}
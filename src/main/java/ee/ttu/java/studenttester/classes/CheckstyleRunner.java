@@ -1,114 +1,129 @@
-package ee.ttu.java.studenttester.classes;
-import static ee.ttu.java.studenttester.classes.StudentLogger.log;
-
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintStream;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import ee.ttu.java.studenttester.enums.StudentPolicy;
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-/**
- * Contains methods to call Checkstyle.
- * @author Andres
- *
- */
-public class CheckstyleRunner {
-
-	private String checkStyleXmlPath;
-	private File contentRoot;
-	private boolean jsonOutput;
-	private JSONArray singleResults;
-
-	/**
-	 * Default field name in json results.
-	 */
-	private final String JSON_FIELD_NAME = "Stylecheck_1";
-	/**
-	 * Default code in json results.
-	 */
-	private final int JSON_CODE = 101;
-
-	/**
-	 * Creates a Checkstyle object.
-	 * @param checkStyleXmlPath - pathname to xml
-	 * @param contentRoot - path to content
-	 * @param jsonOutput - put items to json
-	 * @param singleResults - object where to put the results
-	 */
-	public CheckstyleRunner(String checkStyleXmlPath, File contentRoot, boolean jsonOutput, JSONArray singleResults) {
-		this.checkStyleXmlPath = checkStyleXmlPath;
-		this.contentRoot = contentRoot;
-		this.jsonOutput = jsonOutput;
-		this.singleResults = singleResults;
-	}
-
-	/**
-	 * Executes the checkstyle jar and collects its results.
-	 */
-	public final void run() {
-
-		// save the the original System.out, whatever it is right now
-		PrintStream original = System.out;
-		// save original err as well to suppress Checkstyle errors
-		PrintStream originalErr = System.err;
-		// disable error stream temporarily if verbosity 0
-		if (StudentLogger.getVerbosity() == 0) {
-			System.setErr(null);
-		}
-		// capture checkstyle output to a variable
-		ByteArrayOutputStream temp = StudentHelperClass.getNewStdoutObject();
-		// disable System.exit() since Checkstyle likes to terminate the VM
-		StudentSecurity.getInstance().addClass(com.puppycrawl.tools.checkstyle.Main.class);
-		StudentSecurity.getInstance().addPolicy(StudentPolicy.DISABLE_EXIT);
-		StudentSecurity.getInstance().setCustomSecurityManager();
-		try {
-			System.out.println("Running Checkstyle...");
-			com.puppycrawl.tools.checkstyle.Main.main("-c", checkStyleXmlPath, contentRoot.getAbsolutePath());
-		} catch (IOException e1) {
-			log(e1.getMessage());
-		} catch (SecurityException e) {
-			// checkstyle exit caught
-			log("Checkstyle forced exit successfully caught.");
-		} finally {
-			StudentSecurity.getInstance().restoreSecurityManager();
-		}
-		String checkstyleResult = temp.toString();
-		// restore streams
-		System.setOut(original);
-		System.setErr(originalErr);
-		int checkstyleErrors = 0;
-
-		// try to convert absolute paths to relative ones
-		// to save space and conceal the system path
-		checkstyleResult = checkstyleResult.replace(contentRoot.getAbsolutePath(), "");
-
-		// extract error count from the result
-		Pattern ERROR_PATTERN = Pattern.compile("Checkstyle ends with (\\d+) errors.");
-		Matcher m = ERROR_PATTERN.matcher(checkstyleResult);
-
-		try {
-			while (m.find()) {
-				checkstyleErrors = Integer.parseInt(m.group(1));
-			}
-		} catch (Exception e) {
-			log(e.getMessage());
-		}
-
-		// add data to json if needed
-		if (jsonOutput) {
-			singleResults.put(new JSONObject()
-					.put("percent", checkstyleErrors == 0? 100 : 0)
-					.put("errorCount", checkstyleErrors)
-					.put("code", JSON_CODE)
-					.put("name", JSON_FIELD_NAME)
-					.put("output", checkstyleResult));
-		}
-
-		System.out.print(checkstyleResult);
-	}
-}
+package ee.ttu.java.studenttester.classes;
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ee.ttu.java.studenttester.enums.StudentPolicy;
+import org.json.JSONObject;
+
+/**
+ * Contains methods to call Checkstyle.
+ * @author Andres
+ *
+ */
+public class CheckstyleRunner {
+
+	private GradingContext context;
+	private String checkStyleXmlPath;
+	private File contentRoot;
+
+	/**
+	 * Default field name in json results.
+	 */
+	private final String JSON_FIELD_NAME = "Stylecheck_1";
+	/**
+	 * Default code in json results.
+	 */
+	private final int JSON_CODE = 101;
+	/**
+	 * A violation in the Checkstyle output, e.g. "[ERROR] /Main.java:3:5: Missing a Javadoc comment. [JavadocType]".
+	 */
+	private static final Pattern VIOLATION_PATTERN =
+			Pattern.compile("^\\[(\\w+)\\] (.+?):(\\d+)(?::\\d+)?: (.*) \\[(\\w+)\\]\\r?$", Pattern.MULTILINE);
+
+	/**
+	 * Creates a Checkstyle object.
+	 * @param context - current test run, results are added to its JSON if enabled
+	 * @param checkStyleXmlPath - pathname to xml
+	 * @param contentRoot - path to content
+	 */
+	public CheckstyleRunner(GradingContext context, String checkStyleXmlPath, File contentRoot) {
+		this.context = context;
+		this.checkStyleXmlPath = checkStyleXmlPath;
+		this.contentRoot = contentRoot;
+	}
+
+	/**
+	 * Executes the checkstyle jar and collects its results.
+	 */
+	public final void run() {
+
+		// save the the original System.out of this thread, whatever it is right now
+		PrintStream original = ThreadPrintStream.out().getTarget();
+		// save original err as well to suppress Checkstyle errors
+		PrintStream originalErr = ThreadPrintStream.err().getTarget();
+		// disable error stream temporarily if verbosity 0
+		if (StudentLogger.getVerbosity() == 0) {
+			ThreadPrintStream.err().setTarget(StudentHelperClass.getNullPrintStream());
+		}
+		// capture checkstyle output to a variable
+		CaptureBuffer temp = StudentHelperClass.getNewStdoutObject();
+		// disable System.exit() since Checkstyle likes to terminate the VM
+		StudentSecurity security = context.getSecurity();
+		security.addClass(com.puppycrawl.tools.checkstyle.Main.class);
+		security.addPolicy(StudentPolicy.DISABLE_EXIT);
+		security.setCustomSecurityManager();
+		try {
+			System.out.println("Running Checkstyle...");
+			com.puppycrawl.tools.checkstyle.Main.main("-c", checkStyleXmlPath, contentRoot.getAbsolutePath());
+		} catch (IOException e1) {
+			log(e1.getMessage());
+		} catch (SecurityException e) {
+			// checkstyle exit caught
+			log("Checkstyle forced exit successfully caught.");
+		} finally {
+			security.restoreSecurityManager();
+		}
+		String checkstyleResult = temp.toString();
+		temp.release();
+		// restore streams
+		ThreadPrintStream.out().setTarget(original);
+		ThreadPrintStream.err().setTarget(originalErr);
+		int checkstyleErrors = 0;
+
+		// try to convert absolute paths to relative ones
+		// to save space and conceal the system path
+		checkstyleResult = checkstyleResult.replace(contentRoot.getAbsolutePath(), "");
+
+		// extract error count from the result
+		Pattern ERROR_PATTERN = Pattern.compile("Checkstyle ends with (\\d+) errors.");
+		Matcher m = ERROR_PATTERN.matcher(checkstyleResult);
+
+		try {
+			while (m.find()) {
+				checkstyleErrors = Integer.parseInt(m.group(1));
+			}
+		} catch (Exception e) {
+			log(e.getMessage());
+		}
+
+		// send every violation as an event
+		if (context.getEvents().isEnabled()) {
+			Matcher violation = VIOLATION_PATTERN.matcher(checkstyleResult);
+			while (violation.find()) {
+				context.getEvents().emit("checkstyleViolation", new JSONObject()
+						.put("severity", violation.group(1))
+						.put("file", violation.group(2))
+						.put("line", Integer.parseInt(violation.group(3)))
+						.put("message", violation.group(4))
+						.put("check", violation.group(5)));
+			}
+		}
+
+		// add data to json if needed
+		if (context.isJsonOutput()) {
+			context.getSingleResults().put(new JSONObject()
+					.put("percent", checkstyleErrors == 0? 100 : 0)
+					.put("errorCount", checkstyleErrors)
+					.put("code", JSON_CODE)
+					.put("name", JSON_FIELD_NAME)
+					.put("output", checkstyleResult));
+		}
+
+		System.out.print(checkstyleResult);
+	}
+}
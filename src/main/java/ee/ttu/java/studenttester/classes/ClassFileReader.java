@@ -0,0 +1,415 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the structure of a class file without loading the class: names, access flags,
+ * fields, methods, their signatures and runtime visible annotations. Method bodies are skipped.
+ * @author Andres
+ *
+ */
+public final class ClassFileReader {
+
+	/**
+	 * Access flag of private members.
+	 */
+	public static final int ACC_PRIVATE = 0x0002;
+
+	/**
+	 * Constant pool tags.
+	 */
+	private static final int	CONSTANT_UTF8 = 1,
+								CONSTANT_INTEGER = 3,
+								CONSTANT_FLOAT = 4,
+								CONSTANT_LONG = 5,
+								CONSTANT_DOUBLE = 6,
+								CONSTANT_CLASS = 7,
+								CONSTANT_STRING = 8,
+								CONSTANT_FIELDREF = 9,
+								CONSTANT_METHODREF = 10,
+								CONSTANT_INTERFACE_METHODREF = 11,
+								CONSTANT_NAME_AND_TYPE = 12,
+								CONSTANT_METHOD_HANDLE = 15,
+								CONSTANT_METHOD_TYPE = 16,
+								CONSTANT_DYNAMIC = 17,
+								CONSTANT_INVOKE_DYNAMIC = 18,
+								CONSTANT_MODULE = 19,
+								CONSTANT_PACKAGE = 20;
+
+	private Object[] constants;
+	private int[] tags;
+	private int accessFlags;
+	private String className, superName, signature;
+	private final List<String> interfaces = new ArrayList<String>();
+	private final List<String> innerClasses = new ArrayList<String>();
+	private final List<Member> fields = new ArrayList<Member>();
+	private final List<Member> methods = new ArrayList<Member>();
+	private final Map<String, Map<String, String>> annotations = new LinkedHashMap<String, Map<String, String>>();
+
+	/**
+	 * Field or method of a class.
+	 */
+	public static final class Member {
+
+		private final int accessFlags;
+		private final String name, descriptor;
+		private String signature, constantValue, exceptions;
+		private final Map<String, Map<String, String>> annotations = new LinkedHashMap<String, Map<String, String>>();
+
+		Member(final int accessFlags, final String name, final String descriptor) {
+			this.accessFlags = accessFlags;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+
+		public int getAccessFlags() {
+			return accessFlags;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDescriptor() {
+			return descriptor;
+		}
+
+		/**
+		 * Gets the generic signature.
+		 * @return signature or null if the member is not generic
+		 */
+		public String getSignature() {
+			return signature;
+		}
+
+		/**
+		 * Gets the value of a constant field.
+		 * @return value or null if the field is not a constant
+		 */
+		public String getConstantValue() {
+			return constantValue;
+		}
+
+		/**
+		 * Gets the declared exceptions of a method.
+		 * @return exception names separated by commas or null
+		 */
+		public String getExceptions() {
+			return exceptions;
+		}
+
+		/**
+		 * Gets the runtime visible annotations of the member.
+		 * @return see {@link ClassFileReader#getAnnotations()}
+		 */
+		public Map<String, Map<String, String>> getAnnotations() {
+			return annotations;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d %s %s %s %s %s", accessFlags, name, descriptor, signature, constantValue, exceptions);
+		}
+	}
+
+	private ClassFileReader() {
+
+	}
+
+	/**
+	 * Reads a class file.
+	 * @param bytes - contents of the class file
+	 * @return parsed structure
+	 * @throws IOException if the class file is invalid
+	 */
+	public static ClassFileReader read(final byte[] bytes) throws IOException {
+		ClassFileReader reader = new ClassFileReader();
+		reader.parse(new DataInputStream(new ByteArrayInputStream(bytes)));
+		return reader;
+	}
+
+	private void parse(final DataInputStream in) throws IOException {
+		if (in.readInt() != 0xCAFEBABE) {
+			throw new IOException("Not a class file");
+		}
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+		readConstantPool(in);
+		accessFlags = in.readUnsignedShort();
+		className = getClassName(in.readUnsignedShort());
+		superName = getClassName(in.readUnsignedShort());
+		int interfaceCount = in.readUnsignedShort();
+		for (int i = 0; i < interfaceCount; i++) {
+			interfaces.add(getClassName(in.readUnsignedShort()));
+		}
+		readMembers(in, fields);
+		readMembers(in, methods);
+		int attributeCount = in.readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			String name = getUtf8(in.readUnsignedShort());
+			int length = in.readInt();
+			if ("Signature".equals(name)) {
+				signature = getUtf8(in.readUnsignedShort());
+			} else if ("InnerClasses".equals(name)) {
+				int count = in.readUnsignedShort();
+				for (int j = 0; j < count; j++) {
+					String inner = getClassName(in.readUnsignedShort());
+					in.readUnsignedShort(); // outer class
+					in.readUnsignedShort(); // simple name
+					innerClasses.add(inner + " " + in.readUnsignedShort());
+				}
+			} else if ("RuntimeVisibleAnnotations".equals(name)) {
+				readAnnotations(in, annotations);
+			} else {
+				in.skipBytes(length);
+			}
+		}
+	}
+
+	private void readConstantPool(final DataInputStream in) throws IOException {
+		int count = in.readUnsignedShort();
+		constants = new Object[count];
+		tags = new int[count];
+		for (int i = 1; i < count; i++) {
+			int tag = in.readUnsignedByte();
+			tags[i] = tag;
+			switch (tag) {
+			case CONSTANT_UTF8:
+				constants[i] = in.readUTF();
+				break;
+			case CONSTANT_INTEGER:
+				constants[i] = in.readInt();
+				break;
+			case CONSTANT_FLOAT:
+				constants[i] = in.readFloat();
+				break;
+			case CONSTANT_LONG:
+				constants[i] = in.readLong();
+				i++; // takes two entries
+				break;
+			case CONSTANT_DOUBLE:
+				constants[i] = in.readDouble();
+				i++;
+				break;
+			case CONSTANT_CLASS:
+			case CONSTANT_STRING:
+			case CONSTANT_METHOD_TYPE:
+			case CONSTANT_MODULE:
+			case CONSTANT_PACKAGE:
+				constants[i] = in.readUnsignedShort();
+				break;
+			case CONSTANT_METHOD_HANDLE:
+				in.readUnsignedByte();
+				in.readUnsignedShort();
+				break;
+			case CONSTANT_FIELDREF:
+			case CONSTANT_METHODREF:
+			case CONSTANT_INTERFACE_METHODREF:
+			case CONSTANT_NAME_AND_TYPE:
+			case CONSTANT_DYNAMIC:
+			case CONSTANT_INVOKE_DYNAMIC:
+				in.readInt();
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag);
+			}
+		}
+	}
+
+	private void readMembers(final DataInputStream in, final List<Member> members) throws IOException {
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			Member member = new Member(in.readUnsignedShort(), getUtf8(in.readUnsignedShort()),
+					getUtf8(in.readUnsignedShort()));
+			int attributeCount = in.readUnsignedShort();
+			for (int j = 0; j < attributeCount; j++) {
+				String name = getUtf8(in.readUnsignedShort());
+				int length = in.readInt();
+				if ("Signature".equals(name)) {
+					member.signature = getUtf8(in.readUnsignedShort());
+				} else if ("ConstantValue".equals(name)) {
+					int index = in.readUnsignedShort();
+					member.constantValue = tags[index] == CONSTANT_STRING
+							? getUtf8((Integer) constants[index]) : String.valueOf(constants[index]);
+				} else if ("Exceptions".equals(name)) {
+					int exceptionCount = in.readUnsignedShort();
+					List<String> exceptions = new ArrayList<String>();
+					for (int k = 0; k < exceptionCount; k++) {
+						exceptions.add(getClassName(in.readUnsignedShort()));
+					}
+					member.exceptions = String.join(",", exceptions);
+				} else if ("RuntimeVisibleAnnotations".equals(name)) {
+					readAnnotations(in, member.annotations);
+				} else {
+					in.skipBytes(length);
+				}
+			}
+			members.add(member);
+		}
+	}
+
+	private void readAnnotations(final DataInputStream in, final Map<String, Map<String, String>> target)
+			throws IOException {
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			String type = getUtf8(in.readUnsignedShort());
+			target.put(type.substring(1, type.length() - 1).replace('/', '.'), readAnnotationValues(in));
+		}
+	}
+
+	private Map<String, String> readAnnotationValues(final DataInputStream in) throws IOException {
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			String name = getUtf8(in.readUnsignedShort());
+			String value = readElementValue(in);
+			if (value != null) {
+				values.put(name, value);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Reads a value of an annotation element.
+	 * @param in - stream positioned at the value
+	 * @return constant as a string, enum constant name or class descriptor, null for arrays and annotations
+	 * @throws IOException if the class file is invalid
+	 */
+	private String readElementValue(final DataInputStream in) throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case 's':
+		case 'c':
+			return getUtf8(in.readUnsignedShort());
+		case 'Z':
+			return String.valueOf((Integer) constants[in.readUnsignedShort()] != 0);
+		case 'C':
+			return String.valueOf((char) (int) (Integer) constants[in.readUnsignedShort()]);
+		case 'B':
+		case 'S':
+		case 'I':
+		case 'J':
+		case 'F':
+		case 'D':
+			return String.valueOf(constants[in.readUnsignedShort()]);
+		case 'e':
+			in.readUnsignedShort(); // enum type
+			return getUtf8(in.readUnsignedShort());
+		case '@':
+			in.readUnsignedShort(); // annotation type
+			readAnnotationValues(in);
+			return null;
+		case '[':
+			int count = in.readUnsignedShort();
+			for (int i = 0; i < count; i++) {
+				readElementValue(in);
+			}
+			return null;
+		default:
+			throw new IOException("Unknown annotation element tag " + (char) tag);
+		}
+	}
+
+	private String getUtf8(final int index) {
+		return (String) constants[index];
+	}
+
+	private String getClassName(final int index) {
+		if (index == 0) {
+			return null;
+		}
+		return getUtf8((Integer) constants[index]).replace('/', '.');
+	}
+
+	public int getAccessFlags() {
+		return accessFlags;
+	}
+
+	/**
+	 * Gets the binary name of the class.
+	 * @return class name, e.g. mypackage.Outer$Inner
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * Gets the name of the superclass.
+	 * @return class name or null for java.lang.Object
+	 */
+	public String getSuperName() {
+		return superName;
+	}
+
+	public List<String> getInterfaces() {
+		return interfaces;
+	}
+
+	/**
+	 * Gets the generic signature of the class.
+	 * @return signature or null if the class is not generic
+	 */
+	public String getSignature() {
+		return signature;
+	}
+
+	/**
+	 * Gets the nested classes known to this class with their access flags.
+	 * @return list of "name flags"
+	 */
+	public List<String> getInnerClasses() {
+		return innerClasses;
+	}
+
+	/**
+	 * Gets the runtime visible annotations of the class.
+	 * @return element values by element name by annotation name, e.g. org.testng.annotations.Test.
+	 * Values of arrays and nested annotations are left out
+	 */
+	public Map<String, Map<String, String>> getAnnotations() {
+		return annotations;
+	}
+
+	public List<Member> getFields() {
+		return fields;
+	}
+
+	public List<Member> getMethods() {
+		return methods;
+	}
+
+	/**
+	 * Describes everything other classes can compile against: the class header and all
+	 * members that are not private, including the values of constants. Method bodies and
+	 * private members are left out, so changing them does not change the description.
+	 * @return description of the class
+	 */
+	public String getApiDescription() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(accessFlags).append(' ').append(className).append(' ').append(superName).append(' ')
+				.append(interfaces).append(' ').append(signature).append(' ').append(innerClasses).append('\n');
+		appendMembers(sb, fields);
+		appendMembers(sb, methods);
+		return sb.toString();
+	}
+
+	private static void appendMembers(final StringBuilder sb, final List<Member> members) {
+		List<String> visible = new ArrayList<String>();
+		for (Member member : members) {
+			if ((member.accessFlags & ACC_PRIVATE) == 0) {
+				visible.add(member.toString());
+			}
+		}
+		visible.sort(null);
+		for (String member : visible) {
+			sb.append(member).append('\n');
+		}
+	}
+}
@@ -0,0 +1,473 @@
+package ee.ttu.java.studenttester.classes;
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Content-addressed cache of compiler results on disk. Every entry holds the outcome of one compiler
+ * task: the class files, the compiler messages and the hashes of all sources the compiler read.
+ * The entry is only used if none of these sources has changed.
+ * <br>Entries are written to a temporary file and moved in place, so several processes can share
+ * the same folder. The folder is kept under a size limit by removing the least recently used entries.
+ * @author Andres
+ *
+ */
+public final class CompileCache {
+
+	/**
+	 * Default size limit in megabytes.
+	 */
+	public static final int DEFAULT_SIZE = 256;
+
+	private static final int FORMAT = 0x53544301;
+	/**
+	 * Amount of entries stored between size checks.
+	 */
+	private static final int CHECK_INTERVAL = 16;
+	private static final Map<File, CompileCache> INSTANCES = new ConcurrentHashMap<File, CompileCache>();
+
+	private final File folder;
+	private final long maxBytes;
+	private int storesSinceCheck = CHECK_INTERVAL;
+
+	/**
+	 * Result of a compiler task.
+	 */
+	public static final class Entry {
+
+		/**
+		 * Whether the compiler task succeeded.
+		 */
+		boolean success;
+		/**
+		 * Hash of the names of all available sources.
+		 */
+		String listingHash;
+		final List<Dependency> dependencies = new ArrayList<Dependency>();
+		final List<ClassData> classes = new ArrayList<ClassData>();
+		final List<CachedDiagnostic> diagnostics = new ArrayList<CachedDiagnostic>();
+	}
+
+	/**
+	 * Source read by the compiler.
+	 */
+	static final class Dependency {
+
+		final String name, root, hash;
+
+		/**
+		 * @param name - binary name
+		 * @param root - index of the source folder
+		 * @param hash - hash of the contents
+		 */
+		Dependency(final String name, final String root, final String hash) {
+			this.name = name;
+			this.root = root;
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * Class written by the compiler.
+	 */
+	static final class ClassData {
+
+		final String name, root;
+		final byte[] bytes;
+
+		/**
+		 * @param name - binary name
+		 * @param root - index of the folder containing the source
+		 * @param bytes - contents of the class file
+		 */
+		ClassData(final String name, final String root, final byte[] bytes) {
+			this.name = name;
+			this.root = root;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Compiler message restored from the cache.
+	 */
+	public static final class CachedDiagnostic implements Diagnostic<JavaFileObject> {
+
+		private final Kind kind;
+		private final String code, message, text, sourceName;
+		private final long position, startPosition, endPosition, lineNumber, columnNumber;
+		private JavaFileObject source;
+
+		/**
+		 * Creates a message.
+		 * @param kind - kind of the message
+		 * @param code - compiler code, may be null
+		 * @param message - message without position
+		 * @param text - full text of the message, as given by toString()
+		 * @param sourceName - binary name of the source, may be null
+		 * @param positions - position, start, end, line and column
+		 */
+		public CachedDiagnostic(final Kind kind, final String code, final String message, final String text,
+				final String sourceName, final long... positions) {
+			this.kind = kind;
+			this.code = code;
+			this.message = message;
+			this.text = text;
+			this.sourceName = sourceName;
+			this.position = positions[0];
+			this.startPosition = positions[1];
+			this.endPosition = positions[2];
+			this.lineNumber = positions[3];
+			this.columnNumber = positions[4];
+		}
+
+		/**
+		 * Copies a message so it can be restored later.
+		 * @param diagnostic - compiler message
+		 * @param sourceName - binary name of the source, may be null
+		 * @param text - full text of the message
+		 */
+		public CachedDiagnostic(final Diagnostic<? extends JavaFileObject> diagnostic, final String sourceName,
+				final String text) {
+			this(diagnostic.getKind(), diagnostic.getCode(), diagnostic.getMessage(Locale.getDefault()), text,
+					sourceName, diagnostic.getPosition(), diagnostic.getStartPosition(), diagnostic.getEndPosition(),
+					diagnostic.getLineNumber(), diagnostic.getColumnNumber());
+		}
+
+		public String getSourceName() {
+			return sourceName;
+		}
+
+		/**
+		 * Sets the source file the message belongs to.
+		 * @param source - source file
+		 */
+		public void setSource(final JavaFileObject source) {
+			this.source = source;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		@Override
+		public Kind getKind() {
+			return kind;
+		}
+
+		@Override
+		public JavaFileObject getSource() {
+			return source;
+		}
+
+		@Override
+		public long getPosition() {
+			return position;
+		}
+
+		@Override
+		public long getStartPosition() {
+			return startPosition;
+		}
+
+		@Override
+		public long getEndPosition() {
+			return endPosition;
+		}
+
+		@Override
+		public long getLineNumber() {
+			return lineNumber;
+		}
+
+		@Override
+		public long getColumnNumber() {
+			return columnNumber;
+		}
+
+		@Override
+		public String getCode() {
+			return code;
+		}
+
+		@Override
+		public String getMessage(final Locale locale) {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+
+	private CompileCache(final File folder, final long maxBytes) {
+		this.folder = folder;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Gets the cache stored in a folder. Testers running in the same JVM share the instance.
+	 * @param folder - cache folder, created if missing
+	 * @param maxMegabytes - size limit
+	 * @return cache
+	 */
+	public static CompileCache open(final File folder, final int maxMegabytes) {
+		return INSTANCES.computeIfAbsent(folder.getAbsoluteFile(),
+				(f) -> new CompileCache(f, maxMegabytes * 1024L * 1024L));
+	}
+
+	/**
+	 * Hashes strings.
+	 * @param values - values to hash
+	 * @return hex encoded SHA-256
+	 */
+	public static String hash(final String... values) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		for (String value : values) {
+			digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Hashes bytes.
+	 * @param bytes - bytes to hash
+	 * @return hex encoded SHA-256
+	 */
+	public static String hash(final byte[] bytes) {
+		try {
+			return toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Hashes the names and contents of all Java files in a folder and its subfolders.
+	 * @param root - folder
+	 * @param values - more values to hash, such as compiler options
+	 * @return hex encoded SHA-256
+	 * @throws IOException if a file cannot be read
+	 */
+	public static String hashSources(final File root, final String... values) throws IOException {
+		List<String> parts = new ArrayList<String>(Arrays.asList(values));
+		List<String> filenames = new ArrayList<String>();
+		StudentHelperClass.populateFilenames(root, filenames, true);
+		for (String filename : filenames) {
+			parts.add(filename);
+			parts.add(hash(Files.readAllBytes(new File(root, filename).toPath())));
+		}
+		return hash(parts.toArray(new String[parts.size()]));
+	}
+
+	private static String toHex(final byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Loads an entry and marks it as recently used.
+	 * @param key - entry key
+	 * @return entry or null if not found or unreadable
+	 */
+	public Entry load(final String key) {
+		File file = getFile(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			if (in.readInt() != FORMAT) {
+				return null;
+			}
+			Entry entry = new Entry();
+			entry.success = in.readBoolean();
+			entry.listingHash = in.readUTF();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				entry.dependencies.add(new Dependency(in.readUTF(), in.readUTF(), in.readUTF()));
+			}
+			count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				String root = in.readUTF();
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				entry.classes.add(new ClassData(name, root, bytes));
+			}
+			count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				Diagnostic.Kind kind = Diagnostic.Kind.valueOf(in.readUTF());
+				String code = readNullable(in);
+				String message = readString(in);
+				String text = readString(in);
+				String sourceName = readNullable(in);
+				entry.diagnostics.add(new CachedDiagnostic(kind, code, message, text, sourceName,
+						in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+			}
+			Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+			return entry;
+		} catch (IOException | RuntimeException e) {
+			log("Could not read cache entry " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Stores an entry, replacing an older entry with the same key.
+	 * @param key - entry key
+	 * @param entry - compiler result
+	 */
+	public void store(final String key, final Entry entry) {
+		File file = getFile(key);
+		Path temp = null;
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			temp = Files.createTempFile(file.getParentFile().toPath(), key, ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(FORMAT);
+				out.writeBoolean(entry.success);
+				out.writeUTF(entry.listingHash);
+				out.writeInt(entry.dependencies.size());
+				for (Dependency dependency : entry.dependencies) {
+					out.writeUTF(dependency.name);
+					out.writeUTF(dependency.root);
+					out.writeUTF(dependency.hash);
+				}
+				out.writeInt(entry.classes.size());
+				for (ClassData c : entry.classes) {
+					out.writeUTF(c.name);
+					out.writeUTF(c.root);
+					out.writeInt(c.bytes.length);
+					out.write(c.bytes);
+				}
+				out.writeInt(entry.diagnostics.size());
+				for (CachedDiagnostic d : entry.diagnostics) {
+					out.writeUTF(d.kind.name());
+					writeNullable(out, d.code);
+					writeString(out, d.message);
+					writeString(out, d.text);
+					writeNullable(out, d.sourceName);
+					out.writeLong(d.position);
+					out.writeLong(d.startPosition);
+					out.writeLong(d.endPosition);
+					out.writeLong(d.lineNumber);
+					out.writeLong(d.columnNumber);
+				}
+			}
+			// readers only ever see complete entries
+			Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			log("Could not store cache entry " + file + ": " + e.getMessage());
+			if (temp != null) {
+				temp.toFile().delete();
+			}
+			return;
+		}
+		boolean check;
+		synchronized (this) {
+			check = ++storesSinceCheck >= CHECK_INTERVAL;
+			if (check) {
+				storesSinceCheck = 0;
+			}
+		}
+		if (check) {
+			evict();
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache is under 80% of its size limit.
+	 * Only one process at a time does this.
+	 */
+	private synchronized void evict() {
+		try (FileChannel channel = FileChannel.open(new File(folder, ".lock").toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			// released when the channel is closed
+			channel.lock();
+			List<File> entries;
+			try (Stream<Path> files = Files.walk(folder.toPath(), 2)) {
+				entries = files.map(Path::toFile)
+						.filter((f) -> f.isFile() && f.getName().endsWith(".entry"))
+						.collect(Collectors.toList());
+			}
+			long total = entries.stream().mapToLong(File::length).sum();
+			if (total <= maxBytes) {
+				return;
+			}
+			entries.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+			for (File entry : entries) {
+				if (total <= maxBytes * 8 / 10) {
+					break;
+				}
+				long length = entry.length();
+				if (entry.delete()) {
+					total -= length;
+				}
+			}
+			log("Compile cache reduced to " + total / 1024 + " KB");
+		} catch (IOException e) {
+			log("Could not clean compile cache: " + e.getMessage());
+		}
+	}
+
+	private File getFile(final String key) {
+		return new File(new File(folder, key.substring(0, 2)), key + ".entry");
+	}
+
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(final DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeNullable(final DataOutputStream out, final String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			writeString(out, value);
+		}
+	}
+
+	private static String readNullable(final DataInputStream in) throws IOException {
+		return in.readBoolean() ? readString(in) : null;
+	}
+}
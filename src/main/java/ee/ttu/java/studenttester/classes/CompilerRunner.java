@@ -1,235 +1,879 @@
-package ee.ttu.java.studenttester.classes;
-import ee.ttu.java.studenttester.exceptions.StudentTesterException;
-
-import static ee.ttu.java.studenttester.classes.StudentLogger.log;
-
-import java.io.File;
-import java.io.StringWriter;
-import java.io.Writer;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
-import javax.tools.Diagnostic;
-import javax.tools.DiagnosticCollector;
-import javax.tools.JavaCompiler;
-import javax.tools.JavaFileObject;
-import javax.tools.StandardJavaFileManager;
-import javax.tools.ToolProvider;
-
-/**
- * Contains methods to call the compiler API.
- * @author Andres
- *
- */
-public class CompilerRunner {
-
-	private List<String> toBeCompiled = new ArrayList<String>();
-	private boolean compileSeparately = false;
-	private File tempDirectory, testRoot;
-	private List<String> options = new ArrayList<String>();
-	private StandardJavaFileManager fileManager;
-	private JavaCompiler compiler;
-	private Writer compilerWriter;
-
-	/**
-	 * Creates a new compiler object.
-	 * @param toBeCompiledRelative - names of files to compiled, must exist in tempDirectory and be given in relative paths
-	 * @param tempDirectory - folder to be put into classpath after compilation
-	 * @param testRoot - folder containing tests
-	 */
-	public CompilerRunner(final List<String> toBeCompiledRelative, final File tempDirectory, final File testRoot) {
-		// convert relative paths to absolute ones for the compiler
-		toBeCompiledRelative.forEach((name) -> this.toBeCompiled.add(new File(tempDirectory, name).getAbsolutePath()));
-		this.tempDirectory = tempDirectory;
-		this.testRoot = testRoot;
-		// use utf8 encoding when compiling, pointer to source directory
-		this.options.addAll(Arrays.asList("-encoding", "utf8", "-sourcepath", tempDirectory.getAbsolutePath()));
-	}
-
-	/**
-	 * Adds additional javac options.
-	 * @param compilerOptions - options as string
-	 */
-	public void addOptions(final String compilerOptions) {
-		if (compilerOptions != null) {
-			options.addAll(Arrays.asList(compilerOptions.split(" ")));
-		}
-	}
-
-	/**
-	 * Sets whether the compiler should compile files separately to skip classes having errors.
-	 * @param separate - set true to compile independent files separately (default false)
-	 */
-	public void compileSeparately(final boolean separate) {
-		this.compileSeparately = separate;
-	}
-
-	/**
-	 * Tries to compile files given in the constructor.
-	 * @return true if compilation was done, false otherwise
-	 */
-	public final boolean run() {
-
-		try {
-			compiler = ToolProvider.getSystemJavaCompiler();
-			if (compiler == null) {
-				throw new StudentTesterException("The platform did not provide the necessary compiler needed"
-						+ " to run this tool. Please check the availability of JDK.");
-			}
-			if (toBeCompiled.size() == 0) {
-				throw new StudentTesterException("Nothing to compile.");
-			}
-
-			fileManager = compiler.getStandardFileManager(null, null, null);
-			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
-			compilerWriter = new StringWriter(); // compilation output
-			log("Beginning compilation, " + toBeCompiled.size() + " files without dependencies in queue");
-			if (options != null && options.size() > 0) {
-				log("Compiler options: " + options);
-			} else {
-				log("No compiler options specified");
-			}
-
-			boolean atLeastOneSucess = false;
-			if (compileSeparately) {
-				for (String filename : toBeCompiled) {
-					List<String> temp = new ArrayList<String>();
-					temp.add(filename);
-					if (compile(temp, diagnostics)) {
-						atLeastOneSucess = true;
-					}
-				}
-			} else {
-				atLeastOneSucess = compile(toBeCompiled, diagnostics);
-			}
-
-			/* As of Java 9, the following method does not work anymore.
-			if (atLeastOneSucess) {
-				// workaround to put the temporary folder to classpath
-				URL url = tempDirectory.toURI().toURL();
-				URLClassLoader urlClassLoader = (URLClassLoader) ClassLoader.getSystemClassLoader();
-				Class<?> urlClass = URLClassLoader.class;
-				Method method = urlClass.getDeclaredMethod("addURL", new Class[] {URL.class});
-				method.setAccessible(true);
-				method.invoke(urlClassLoader, new Object[]{url});
-			}
-			*/
-
-			fileManager.close();
-
-			// compilation errors were found
-			if (atLeastOneSucess && diagnostics.getDiagnostics().size() > 0) {
-				System.out.println("Compilation succeeded partially.");
-				handleCompilationErrors(diagnostics.getDiagnostics());
-				return true;
-			} else if (atLeastOneSucess) {
-				// compilation succeeded
-				System.out.println("Compilation succeeded.\n");
-				return true;
-			} else {
-				System.out.println("Compilation failed.");
-				if (diagnostics.getDiagnostics().size() > 0) {
-					handleCompilationErrors(diagnostics.getDiagnostics());
-				}
-				return false;
-			}
-
-		} catch (UnsupportedOperationException e) {
-			System.out.println("Couldn't get the compiler, testing cannot continue.");
-			log(e.toString());
-		} catch (Exception e) {
-			log(e.toString());
-			e.printStackTrace();
-		} finally {
-			log(compilerWriter.toString());
-		}
-		System.out.println("Compilation failed.");
-		return false;
-	}
-
-	/**
-	 * Compiles files given.
-	 * @param filenames list of files to be compiled
-	 * @param diagnostics object to store diagnostics in
-	 * @return success
-	 */
-	private boolean compile(final List<String> filenames, DiagnosticCollector<JavaFileObject> diagnostics) {
-		Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromStrings(filenames);
-		boolean compileSuccess = compiler.getTask(compilerWriter, null, diagnostics, options, null, compilationUnits).call();
-		log((compileSuccess? "Compilation appears to have succeeded for " : "Compilation failed for ") + filenames);
-		return compileSuccess;
-	}
-
-	/**
-	 * Prints out a detailed report with compilation errors.
-	 * Not invoked if the code compiled successfully.
-	 * @param diagnostics - list of compilation errors
-	 */
-	private void handleCompilationErrors(final List<Diagnostic<? extends JavaFileObject>> diagnostics) {
-
-		List<String> testFileNames = new ArrayList<String>();
-		StudentHelperClass.populateFilenames(testRoot, testFileNames, false);    // get all test filenames
-
-		// String previousError = null;    // store previous error code to hide consecutive errors
-		// int sameErrorCounter = 0;       // amount of skipped errors
-		boolean errorsSkipped = false;     // there are skipped errors
-		// replace counting the same error with only one message per error type.
-		// will look nicer than 100 alternating errors.
-		List<String> pastErrors = new ArrayList<String>();
-
-		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
-
-			if (pastErrors.contains(diagnostic.getCode())) {
-				log(String.format("Skipping already existing error %s at line %d.\n",
-						diagnostic.getCode(), diagnostic.getLineNumber()));
-				errorsSkipped = true;
-				continue;
-			}
-
-			pastErrors.add(diagnostic.getCode());
-
-			// skip consecutive identical errors to keep the output cleaner
-			/* if (diagnostic.getCode() != null && diagnostic.getCode().equals(previousError)) {
-				sameErrorCounter++;
-				continue;
-			} else {
-				if (sameErrorCounter > 0) {
-					System.out.println("Skipped " + sameErrorCounter + " error(s) of the same type.");
-					sameErrorCounter = 0;
-				}
-			}
-
-			previousError = diagnostic.getCode();
-			*/
-
-			String problematicFile = new File(diagnostic.getSource().getName()).getName();
-
-			// do not show code from test files
-			if (testFileNames.contains(problematicFile)) {
-				log(problematicFile + " is a test class, will not display the full error.");
-				log(String.format("Error on line %d in %s\n", diagnostic.getLineNumber(),
-						diagnostic.toString()));
-				System.out.format("Error on line %d in %s: %s\n",
-						diagnostic.getLineNumber(), problematicFile, diagnostic.getMessage(null));
-			} else {
-				System.out.format("Error on line %d in %s\n", diagnostic.getLineNumber(),
-						diagnostic.toString().replace(tempDirectory.getAbsolutePath(), ""));
-			}
-
-			if (/* sameErrorCounter == 0 && */ diagnostic.getCode() != null) {
-				System.out.print(CompilerErrorHints.getDiagnosticStr(diagnostic));
-			}
-		}
-		if (errorsSkipped) {
-			System.out.println("Skipped some errors of the same type. "
-					+ "Try fixing the ones mentioned above first and check if the problem persists.");
-		}
-		/*
-		if (sameErrorCounter > 0) {
-			System.out.println("Skipped " + sameErrorCounter + " error(s) of the same type.");
-		}
-		*/
-		System.out.println();
-	}
-}
+package ee.ttu.java.studenttester.classes;
+import ee.ttu.java.studenttester.dataclasses.CompiledClass;
+import ee.ttu.java.studenttester.enums.CompilerBackend;
+import ee.ttu.java.studenttester.exceptions.StudentTesterException;
+import ee.ttu.java.studenttester.interfaces.ICompilerBackend;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import com.sun.source.util.JavacTask;
+
+import org.json.JSONObject;
+
+/**
+ * Contains methods to call the compiler API.
+ * @author Andres
+ *
+ */
+public class CompilerRunner {
+
+	private List<String> toBeCompiled = new ArrayList<String>();
+	private boolean compileSeparately = false;
+	private File tempDirectory, testRoot, contentRoot;
+	private List<String> options = new ArrayList<String>();
+	private StandardJavaFileManager fileManager;
+	private MemoryFileManager memoryFileManager;
+	private GradingContext context;
+	/**
+	 * Where classes compiled in memory are stored, the classes of the run unless compiling in parallel.
+	 */
+	private Map<String, CompiledClass> classes;
+	private JavaCompiler compiler;
+	private Writer compilerWriter;
+	/**
+	 * Key for storing the compiled tests if they were not found in the cache.
+	 */
+	private String testCacheKey;
+	private CompileCache compileCache;
+	private ICompilerBackend backend = CompilerBackend.JAVAC;
+
+	/**
+	 * Creates a new compiler object that compiles files copied to the temporary folder.
+	 * @param context - current test run, its temporary folder is put into classpath after compilation
+	 * @param toBeCompiledRelative - names of files to compiled, must exist in the temporary folder
+	 * and be given in relative paths
+	 * @param testRoot - folder containing tests
+	 */
+	public CompilerRunner(final GradingContext context, final List<String> toBeCompiledRelative, final File testRoot) {
+		File tempDirectory = context.getTempRoot();
+		// convert relative paths to absolute ones for the compiler
+		toBeCompiledRelative.forEach((name) -> this.toBeCompiled.add(new File(tempDirectory, name).getAbsolutePath()));
+		this.tempDirectory = tempDirectory;
+		this.testRoot = testRoot;
+		// use utf8 encoding when compiling, the source directory is set on the file manager
+		this.options.addAll(Arrays.asList("-encoding", "utf8"));
+	}
+
+	/**
+	 * Creates a new compiler object that reads sources from the roots and keeps the compiled classes
+	 * in memory, see {@link GradingContext#getCompiledClasses()}. Tests shadow code with the same name.
+	 * @param context - current test run
+	 * @param toBeCompiledRelative - names of test files to be compiled, relative to the test root
+	 * @param testRoot - folder containing tests
+	 * @param contentRoot - folder containing student code
+	 */
+	public CompilerRunner(final GradingContext context, final List<String> toBeCompiledRelative,
+			final File testRoot, final File contentRoot) {
+		this.context = context;
+		this.toBeCompiled.addAll(toBeCompiledRelative);
+		this.testRoot = testRoot;
+		this.contentRoot = contentRoot;
+		this.options.addAll(Arrays.asList("-encoding", "utf8"));
+	}
+
+	/**
+	 * Creates a compiler for compiling a group of files in parallel with other groups, see
+	 * {@link #compileInParallel(List, DependencyGraph, DiagnosticCollector)}. The compiler has its
+	 * own file managers and class storage, {@link #close(CompilerRunner)} merges the classes back.
+	 * @param parent - compiler the group belongs to
+	 */
+	private CompilerRunner(final CompilerRunner parent) {
+		this.context = parent.context;
+		this.toBeCompiled = parent.toBeCompiled;
+		this.tempDirectory = parent.tempDirectory;
+		this.testRoot = parent.testRoot;
+		this.contentRoot = parent.contentRoot;
+		this.options = parent.options;
+		this.compiler = parent.compiler;
+		this.compilerWriter = parent.compilerWriter;
+		this.compileCache = parent.compileCache;
+		this.backend = parent.backend;
+		this.fileManager = CompilerService.acquire(compiler, options);
+		if (tempDirectory != null) {
+			try {
+				fileManager.setLocation(StandardLocation.SOURCE_PATH, Arrays.asList(tempDirectory.getAbsoluteFile()));
+			} catch (IOException e) {
+				log("Could not set source path: " + e.getMessage());
+			}
+		}
+		if (parent.memoryFileManager != null) {
+			this.classes = new ConcurrentHashMap<String, CompiledClass>();
+			this.memoryFileManager = new MemoryFileManager(fileManager, classes,
+					context.getSourceOverlay(contentRoot, testRoot));
+		}
+	}
+
+	/**
+	 * Gives back the file managers of a compiler created for a group and stores its classes.
+	 * @param parent - compiler the group belongs to
+	 */
+	private void close(final CompilerRunner parent) {
+		if (classes != null) {
+			parent.classes.putAll(classes);
+		}
+		CompilerService.release(compiler, options, fileManager, true);
+	}
+
+	/**
+	 * Adds additional javac options.
+	 * @param compilerOptions - options as string
+	 */
+	public void addOptions(final String compilerOptions) {
+		if (compilerOptions != null) {
+			options.addAll(Arrays.asList(compilerOptions.split(" ")));
+		}
+	}
+
+	/**
+	 * Sets the cache for compiler results, used only when compiling in memory.
+	 * @param compileCache - cache or null to always compile
+	 */
+	public void setCompileCache(final CompileCache compileCache) {
+		this.compileCache = compileCache;
+	}
+
+	/**
+	 * Sets the compiler to use, javac by default.
+	 * @param backend - compiler
+	 */
+	public void setBackend(final ICompilerBackend backend) {
+		this.backend = backend;
+		options.addAll(backend.getDefaultOptions());
+	}
+
+	/**
+	 * Sets whether the compiler should compile files separately to skip classes having errors.
+	 * @param separate - set true to compile independent files separately (default false)
+	 */
+	public void compileSeparately(final boolean separate) {
+		this.compileSeparately = separate;
+	}
+
+	/**
+	 * Tries to compile files given in the constructor.
+	 * @return true if compilation was done, false otherwise
+	 */
+	public final boolean run() {
+
+		boolean reusable = false;
+		try {
+			compiler = backend.getCompiler();
+			if (compiler == null) {
+				throw new StudentTesterException("The platform did not provide the necessary compiler needed"
+						+ " to run this tool. Please check the availability of JDK.");
+			}
+			if (toBeCompiled.size() == 0) {
+				throw new StudentTesterException("Nothing to compile.");
+			}
+
+			// a file manager used before has the platform classes open already
+			fileManager = CompilerService.acquire(compiler, options);
+			if (tempDirectory != null) {
+				fileManager.setLocation(StandardLocation.SOURCE_PATH, Arrays.asList(tempDirectory.getAbsoluteFile()));
+			}
+			if (context != null) {
+				classes = context.getCompiledClasses();
+				memoryFileManager = new MemoryFileManager(fileManager, classes,
+						context.getSourceOverlay(contentRoot, testRoot));
+			}
+			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+			compilerWriter = new StringWriter(); // compilation output
+			log("Beginning compilation, " + toBeCompiled.size() + " files without dependencies in queue");
+			if (options != null && options.size() > 0) {
+				log("Compiler options: " + options);
+			} else {
+				log("No compiler options specified");
+			}
+
+			// tests compiled against the same student API are taken from the cache
+			if (memoryFileManager != null && compileSeparately && useCachedTests()) {
+				reusable = true;
+				System.out.println("Compilation succeeded.\n");
+				return true;
+			}
+
+			boolean atLeastOneSucess = false;
+			if (backend.isProceedOnError()) {
+				atLeastOneSucess = compileAll(diagnostics);
+			} else if (compileSeparately && toBeCompiled.size() > 1) {
+				atLeastOneSucess = compileByDependencies(diagnostics);
+			} else {
+				atLeastOneSucess = compile(toBeCompiled, diagnostics);
+			}
+
+			/* As of Java 9, the following method does not work anymore.
+			if (atLeastOneSucess) {
+				// workaround to put the temporary folder to classpath
+				URL url = tempDirectory.toURI().toURL();
+				URLClassLoader urlClassLoader = (URLClassLoader) ClassLoader.getSystemClassLoader();
+				Class<?> urlClass = URLClassLoader.class;
+				Method method = urlClass.getDeclaredMethod("addURL", new Class[] {URL.class});
+				method.setAccessible(true);
+				method.invoke(urlClassLoader, new Object[]{url});
+			}
+			*/
+
+			reusable = true;
+
+			if (testCacheKey != null && atLeastOneSucess && diagnostics.getDiagnostics().isEmpty()) {
+				List<CompiledClass> testClasses = new ArrayList<CompiledClass>();
+				for (CompiledClass c : context.getCompiledClasses().values()) {
+					if (testRoot.equals(c.getRoot())) {
+						testClasses.add(c);
+					}
+				}
+				TestClassCache.put(testCacheKey, testClasses);
+				log("Stored " + testClasses.size() + " compiled test classes in cache");
+			}
+
+			// compilation errors were found
+			if (atLeastOneSucess && diagnostics.getDiagnostics().size() > 0) {
+				System.out.println("Compilation succeeded partially.");
+				handleCompilationErrors(diagnostics.getDiagnostics());
+				return true;
+			} else if (atLeastOneSucess) {
+				// compilation succeeded
+				System.out.println("Compilation succeeded.\n");
+				return true;
+			} else {
+				System.out.println("Compilation failed.");
+				if (diagnostics.getDiagnostics().size() > 0) {
+					handleCompilationErrors(diagnostics.getDiagnostics());
+				}
+				return false;
+			}
+
+		} catch (UnsupportedOperationException e) {
+			System.out.println("Couldn't get the compiler, testing cannot continue.");
+			log(e.toString());
+		} catch (Exception e) {
+			log(e.toString());
+			e.printStackTrace();
+		} finally {
+			if (fileManager != null) {
+				CompilerService.release(compiler, options, fileManager, reusable);
+			}
+			if (compilerWriter != null) {
+				log(compilerWriter.toString());
+			}
+		}
+		System.out.println("Compilation failed.");
+		return false;
+	}
+
+	/**
+	 * Parses the code and the tests without compiling them. Submissions with syntax errors
+	 * cannot be compiled, their errors are printed and nothing else has to be run.
+	 * @return true if there were no syntax errors or the check could not be done
+	 */
+	public boolean checkSyntax() {
+		JavaCompiler javac = CompilerService.getCompiler();
+		if (javac == null || contentRoot == null) {
+			return true;
+		}
+		long startTime = System.nanoTime();
+		// the syntax is checked by javac whatever the compiler is
+		List<String> parseOptions = new ArrayList<String>(options);
+		parseOptions.removeAll(backend.getDefaultOptions());
+		StandardJavaFileManager standardManager = CompilerService.acquire(javac, parseOptions);
+		boolean reusable = false;
+		try {
+			MemoryFileManager manager = new MemoryFileManager(standardManager,
+					new HashMap<String, CompiledClass>(), context.getSourceOverlay(contentRoot, testRoot));
+			List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+			sources.addAll(manager.getSources(contentRoot));
+			sources.addAll(manager.getSources(testRoot));
+			if (sources.isEmpty()) {
+				reusable = true;
+				return true;
+			}
+			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+			((JavacTask) javac.getTask(null, manager, diagnostics, parseOptions, null, sources)).parse();
+			reusable = true;
+			List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<Diagnostic<? extends JavaFileObject>>();
+			for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+				if (d.getKind() == Diagnostic.Kind.ERROR) {
+					errors.add(d);
+				}
+			}
+			log("Parsed " + sources.size() + " files in ms: " + (System.nanoTime() - startTime) / 1000000);
+			if (errors.isEmpty()) {
+				return true;
+			}
+			System.out.println("Compilation failed.");
+			handleCompilationErrors(errors);
+			return false;
+		} catch (IOException | RuntimeException e) {
+			log("Could not check syntax: " + e);
+			return true;
+		} finally {
+			CompilerService.release(javac, parseOptions, standardManager, reusable);
+		}
+	}
+
+	/**
+	 * Compiles the student code on its own and looks up tests compiled against the same API.
+	 * If the tests are not cached, the compiled classes are discarded and the key is remembered
+	 * for storing the tests after the usual compilation.
+	 * @return true if the student code compiled without any messages and the tests were cached
+	 */
+	private boolean useCachedTests() {
+		List<JavaFileObject> studentSources = memoryFileManager.getSources(contentRoot);
+		DiagnosticCollector<JavaFileObject> studentDiagnostics = new DiagnosticCollector<JavaFileObject>();
+		boolean compiled = studentSources.isEmpty() || runTask(studentSources, studentDiagnostics);
+		if (!compiled || !studentDiagnostics.getDiagnostics().isEmpty()) {
+			log("Student code has compiler messages, not using cached tests");
+			context.getCompiledClasses().clear();
+			return false;
+		}
+		try {
+			String key = TestClassCache.getKey(testRoot, options, context.getCompiledClasses().values());
+			List<CompiledClass> cached = TestClassCache.get(key);
+			if (cached == null) {
+				log("Compiled tests not found in cache");
+				testCacheKey = key;
+				context.getCompiledClasses().clear();
+				return false;
+			}
+			cached.forEach((c) -> context.getCompiledClasses().put(c.getName(), c));
+			log("Using " + cached.size() + " cached test classes");
+			return true;
+		} catch (IOException e) {
+			log("Could not use cached tests: " + e.getMessage());
+			context.getCompiledClasses().clear();
+			return false;
+		}
+	}
+
+	/**
+	 * Compiles the code and the tests in one task with a compiler that writes class files for
+	 * classes with errors too. Nothing has to be compiled separately.
+	 * @param diagnostics - object to store diagnostics in
+	 * @return true if at least one file given in the constructor was compiled
+	 */
+	private boolean compileAll(final DiagnosticCollector<JavaFileObject> diagnostics) {
+		// the task fails if there were any errors, but the classes are written anyway
+		if (memoryFileManager != null) {
+			List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+			sources.addAll(memoryFileManager.getSources(contentRoot));
+			sources.addAll(memoryFileManager.getSources(testRoot));
+			runTask(sources, diagnostics);
+		} else {
+			List<File> files = new ArrayList<File>();
+			List<String> filenames = new ArrayList<String>();
+			StudentHelperClass.populateFilenames(tempDirectory, filenames, true);
+			filenames.forEach((filename) -> files.add(new File(tempDirectory, filename).getAbsoluteFile()));
+			compiler.getTask(compilerWriter, fileManager, diagnostics, options, null,
+					fileManager.getJavaFileObjectsFromFiles(files)).call();
+		}
+		boolean atLeastOneSuccess = false;
+		for (String filename : toBeCompiled) {
+			boolean compiled = memoryFileManager != null
+					? classes.containsKey(StudentHelperClass.filePathToClassPath(filename))
+					: new File(filename.replaceAll("\\.java$", ".class")).exists();
+			log((compiled ? "Compiled " : "Could not compile ") + filename);
+			atLeastOneSuccess |= compiled;
+		}
+		return atLeastOneSuccess;
+	}
+
+	/**
+	 * Compiles the files so that files with errors do not prevent compiling the others. All sources
+	 * are parsed once to find which files depend on each other, then files are compiled together in
+	 * batches. If a batch fails, the files depending on sources with errors are left out and the rest
+	 * is compiled again. Files that cannot be told apart this way are bisected.
+	 * @param diagnostics - object to store diagnostics in
+	 * @return true if at least one file compiled
+	 */
+	private boolean compileByDependencies(final DiagnosticCollector<JavaFileObject> diagnostics) {
+		DependencyGraph graph;
+		try {
+			List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+			if (memoryFileManager != null) {
+				sources.addAll(memoryFileManager.getSources(contentRoot));
+				sources.addAll(memoryFileManager.getSources(testRoot));
+			} else {
+				List<String> filenames = new ArrayList<String>();
+				StudentHelperClass.populateFilenames(tempDirectory, filenames, true);
+				for (String filename : filenames) {
+					fileManager.getJavaFileObjects(new File(tempDirectory, filename).getAbsoluteFile()).forEach(sources::add);
+				}
+			}
+			JavacTask parser = (JavacTask) compiler.getTask(null, memoryFileManager != null ? memoryFileManager : fileManager,
+					(diagnostic) -> { }, options, null, sources);
+			graph = new DependencyGraph(parser.parse());
+		} catch (IOException | RuntimeException e) {
+			log("Could not parse sources, compiling files one by one: " + e);
+			boolean atLeastOneSuccess = false;
+			for (String filename : toBeCompiled) {
+				if (compile(Arrays.asList(filename), diagnostics)) {
+					atLeastOneSuccess = true;
+				}
+			}
+			return atLeastOneSuccess;
+		}
+
+		// files in the same component depend on each other and are compiled together
+		Map<Integer, String> files = new HashMap<Integer, String>();
+		List<List<String>> components = new ArrayList<List<String>>();
+		for (String filename : toBeCompiled) {
+			int index = graph.indexOf(getUnit(filename).toUri());
+			if (index < 0) {
+				components.add(Arrays.asList(filename));
+			} else {
+				files.put(index, filename);
+			}
+		}
+		for (List<Integer> component : graph.getComponents()) {
+			List<String> filenames = new ArrayList<String>();
+			component.stream().filter(files::containsKey).forEach((index) -> filenames.add(files.get(index)));
+			if (!filenames.isEmpty()) {
+				components.add(filenames);
+			}
+		}
+		log("Compiling " + toBeCompiled.size() + " files in " + components.size() + " components");
+		List<List<List<String>>> groups = groupIndependent(components, graph);
+		// a single batch is cheaper than several tasks if they cannot run at the same time
+		if (groups.size() < 2 || CompilerService.getThreadCount() < 2) {
+			return compileComponents(components, graph, diagnostics);
+		}
+		return compileInParallel(groups, graph, diagnostics);
+	}
+
+	/**
+	 * Groups components that need none of the same sources. Groups can be compiled at the same
+	 * time without writing the same classes.
+	 * @param components - files grouped into components, in the order of compilation
+	 * @param graph - dependencies of all sources
+	 * @return groups of components, or a single group if the dependencies of some file are unknown
+	 */
+	private List<List<List<String>>> groupIndependent(final List<List<String>> components, final DependencyGraph graph) {
+		List<List<List<String>>> groups = new ArrayList<List<List<String>>>();
+		List<Set<Integer>> groupSources = new ArrayList<Set<Integer>>();
+		for (List<String> component : components) {
+			List<Integer> indexes = new ArrayList<Integer>();
+			component.forEach((filename) -> indexes.add(graph.indexOf(getUnit(filename).toUri())));
+			if (indexes.contains(-1)) {
+				return Arrays.asList(components);
+			}
+			Set<Integer> closure = graph.getClosure(indexes);
+			List<List<String>> group = new ArrayList<List<String>>();
+			group.add(component);
+			// merge every group sharing a source with this component
+			for (int i = groups.size() - 1; i >= 0; i--) {
+				if (!Collections.disjoint(groupSources.get(i), closure)) {
+					group.addAll(0, groups.remove(i));
+					closure.addAll(groupSources.remove(i));
+				}
+			}
+			groups.add(group);
+			groupSources.add(closure);
+		}
+		return groups;
+	}
+
+	/**
+	 * Compiles independent groups on the shared compiler pool. Every group gets its own file managers,
+	 * as file managers are not thread safe. Messages are reported in the order of the groups, the
+	 * output does not depend on which group finishes first.
+	 * @param groups - groups from {@link #groupIndependent(List, DependencyGraph)}
+	 * @param graph - dependencies of all sources
+	 * @param diagnostics - object to store diagnostics in
+	 * @return true if at least one component compiled
+	 */
+	private boolean compileInParallel(final List<List<List<String>>> groups, final DependencyGraph graph,
+			final DiagnosticCollector<JavaFileObject> diagnostics) {
+		log("Compiling " + groups.size() + " independent groups in parallel");
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		List<DiagnosticCollector<JavaFileObject>> groupDiagnostics = new ArrayList<DiagnosticCollector<JavaFileObject>>();
+		// pool threads do not inherit the output streams of this run, so they are passed on
+		PrintStream out = ThreadPrintStream.out().getTarget();
+		PrintStream err = ThreadPrintStream.err().getTarget();
+		for (List<List<String>> group : groups) {
+			DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<JavaFileObject>();
+			groupDiagnostics.add(collector);
+			results.add(CompilerService.getExecutor().submit(() -> {
+				CompilerRunner fork = new CompilerRunner(this);
+				GradingContext previous = context == null ? null : context.bind();
+				PrintStream previousOut = ThreadPrintStream.out().getTarget();
+				PrintStream previousErr = ThreadPrintStream.err().getTarget();
+				ThreadPrintStream.out().setTarget(out);
+				ThreadPrintStream.err().setTarget(err);
+				try {
+					return fork.compileComponents(group, graph, collector);
+				} finally {
+					ThreadPrintStream.out().setTarget(previousOut);
+					ThreadPrintStream.err().setTarget(previousErr);
+					if (context != null) {
+						context.unbind(previous);
+					}
+					fork.close(this);
+				}
+			}));
+		}
+		boolean atLeastOneSuccess = false;
+		for (int i = 0; i < groups.size(); i++) {
+			try {
+				if (results.get(i).get()) {
+					atLeastOneSuccess = true;
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				log("Compiling " + groups.get(i) + " failed: " + e);
+			}
+			groupDiagnostics.get(i).getDiagnostics().forEach(diagnostics::report);
+		}
+		return atLeastOneSuccess;
+	}
+
+	/**
+	 * Compiles components in one batch, on failure splits the batch.
+	 * @param components - files grouped into components
+	 * @param graph - dependencies of all sources
+	 * @param diagnostics - object to store diagnostics in
+	 * @return true if at least one component compiled
+	 */
+	private boolean compileComponents(final List<List<String>> components, final DependencyGraph graph,
+			final DiagnosticCollector<JavaFileObject> diagnostics) {
+		List<String> filenames = new ArrayList<String>();
+		components.forEach(filenames::addAll);
+		Set<String> compiledBefore = classes == null ? null : new HashSet<String>(classes.keySet());
+		DiagnosticCollector<JavaFileObject> batchDiagnostics = new DiagnosticCollector<JavaFileObject>();
+		if (compile(filenames, batchDiagnostics)) {
+			batchDiagnostics.getDiagnostics().forEach(diagnostics::report);
+			return true;
+		}
+		// classes written before the compiler found the errors must not be tested
+		if (compiledBefore != null) {
+			classes.keySet().retainAll(compiledBefore);
+		}
+		if (components.size() == 1) {
+			batchDiagnostics.getDiagnostics().forEach(diagnostics::report);
+			return false;
+		}
+
+		// a component fails if it depends on a source with errors
+		Set<Integer> broken = new HashSet<Integer>();
+		for (Diagnostic<? extends JavaFileObject> d : batchDiagnostics.getDiagnostics()) {
+			if (d.getKind() == Diagnostic.Kind.ERROR && d.getSource() != null) {
+				int index = graph.indexOf(d.getSource().toUri());
+				if (index >= 0) {
+					broken.add(index);
+				}
+			}
+		}
+		List<List<String>> failed = new ArrayList<List<String>>();
+		List<List<String>> remaining = new ArrayList<List<String>>();
+		Set<Integer> failedClosure = new HashSet<Integer>();
+		Set<Integer> remainingClosure = new HashSet<Integer>();
+		for (List<String> component : components) {
+			List<Integer> indexes = new ArrayList<Integer>();
+			component.forEach((filename) -> indexes.add(graph.indexOf(getUnit(filename).toUri())));
+			Set<Integer> closure = graph.getClosure(indexes);
+			if (!Collections.disjoint(closure, broken)) {
+				failed.add(component);
+				failedClosure.addAll(closure);
+			} else {
+				remaining.add(component);
+				remainingClosure.addAll(closure);
+			}
+		}
+		if (failed.isEmpty()) {
+			// the errors could not be traced to any file, find the failing ones by halving the batch
+			int half = components.size() / 2;
+			boolean first = compileComponents(components.subList(0, half), graph, diagnostics);
+			boolean second = compileComponents(components.subList(half, components.size()), graph, diagnostics);
+			return first || second;
+		}
+		log("Files depending on sources with errors: " + failed);
+		for (Diagnostic<? extends JavaFileObject> d : batchDiagnostics.getDiagnostics()) {
+			// messages about sources the remaining files need are reported when those are compiled
+			int index = d.getSource() == null ? -1 : graph.indexOf(d.getSource().toUri());
+			if (index < 0 || (failedClosure.contains(index) && !remainingClosure.contains(index))) {
+				diagnostics.report(d);
+			}
+		}
+		return !remaining.isEmpty() && compileComponents(remaining, graph, diagnostics);
+	}
+
+	/**
+	 * Gets the source object of a file to be compiled.
+	 * @param filename - name given in the constructor
+	 * @return source
+	 */
+	private JavaFileObject getUnit(final String filename) {
+		if (memoryFileManager != null) {
+			return memoryFileManager.getSource(filename);
+		}
+		return fileManager.getJavaFileObjects(new File(filename)).iterator().next();
+	}
+
+	/**
+	 * Compiles files given.
+	 * @param filenames list of files to be compiled
+	 * @param diagnostics object to store diagnostics in
+	 * @return success
+	 */
+	private boolean compile(final List<String> filenames, DiagnosticCollector<JavaFileObject> diagnostics) {
+		boolean compileSuccess;
+		if (memoryFileManager != null) {
+			List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+			filenames.forEach((name) -> sources.add(memoryFileManager.getSource(name)));
+			compileSuccess = runTask(sources, diagnostics);
+		} else {
+			compileSuccess = compiler.getTask(compilerWriter, fileManager, diagnostics, options, null,
+					fileManager.getJavaFileObjectsFromStrings(filenames)).call();
+		}
+		log((compileSuccess? "Compilation appears to have succeeded for " : "Compilation failed for ") + filenames);
+		return compileSuccess;
+	}
+
+	/**
+	 * Runs a compiler task on sources of the file manager. If a compile cache is set, the result
+	 * is taken from the cache when none of the sources read by the compiler has changed.
+	 * @param units - sources to compile
+	 * @param diagnostics - object to store diagnostics in
+	 * @return success
+	 */
+	private boolean runTask(final List<JavaFileObject> units, final DiagnosticCollector<JavaFileObject> diagnostics) {
+		if (compileCache == null) {
+			return compiler.getTask(compilerWriter, memoryFileManager, diagnostics, options, null, units).call();
+		}
+		List<String> keyParts = new ArrayList<String>();
+		keyParts.add(System.getProperty("java.version"));
+		keyParts.add(options.toString());
+		try {
+			for (JavaFileObject unit : units) {
+				String name = memoryFileManager.getBinaryName(unit);
+				keyParts.add(name + " " + memoryFileManager.getRootIndex(name) + " " + memoryFileManager.getSourceHash(name));
+			}
+		} catch (IOException e) {
+			log("Could not hash sources: " + e.getMessage());
+			return compiler.getTask(compilerWriter, memoryFileManager, diagnostics, options, null, units).call();
+		}
+		String key = CompileCache.hash(keyParts.toArray(new String[keyParts.size()]));
+
+		CompileCache.Entry entry = compileCache.load(key);
+		if (entry != null && isUpToDate(entry)) {
+			log("Using cached compiler result for " + units);
+			for (CompileCache.ClassData c : entry.classes) {
+				File root = memoryFileManager.getRoots()[Integer.parseInt(c.root)];
+				classes.put(c.name, new CompiledClass(c.name, c.bytes, root));
+			}
+			for (CompileCache.CachedDiagnostic d : entry.diagnostics) {
+				CompileCache.CachedDiagnostic restored = new CompileCache.CachedDiagnostic(d, d.getSourceName(),
+						withRoots(d.getText()));
+				if (d.getSourceName() != null) {
+					restored.setSource(memoryFileManager.getSourceByName(d.getSourceName()));
+				}
+				diagnostics.report(restored);
+			}
+			return entry.success;
+		}
+
+		DiagnosticCollector<JavaFileObject> taskDiagnostics = new DiagnosticCollector<JavaFileObject>();
+		memoryFileManager.startRecording();
+		boolean success;
+		List<String> readSources = new ArrayList<String>();
+		List<CompiledClass> writtenClasses = new ArrayList<CompiledClass>();
+		try {
+			success = compiler.getTask(compilerWriter, memoryFileManager, taskDiagnostics, options, null, units).call();
+		} finally {
+			memoryFileManager.stopRecording(readSources, writtenClasses);
+		}
+		taskDiagnostics.getDiagnostics().forEach(diagnostics::report);
+
+		entry = new CompileCache.Entry();
+		entry.success = success;
+		entry.listingHash = memoryFileManager.getListingHash();
+		try {
+			for (String name : readSources) {
+				entry.dependencies.add(new CompileCache.Dependency(name,
+						String.valueOf(memoryFileManager.getRootIndex(name)), memoryFileManager.getSourceHash(name)));
+			}
+		} catch (IOException e) {
+			log("Could not hash sources: " + e.getMessage());
+			return success;
+		}
+		for (CompiledClass c : writtenClasses) {
+			entry.classes.add(new CompileCache.ClassData(c.getName(),
+					String.valueOf(memoryFileManager.getRootIndex(c.getRoot())), c.getBytes()));
+		}
+		for (Diagnostic<? extends JavaFileObject> d : taskDiagnostics.getDiagnostics()) {
+			String sourceName = d.getSource() == null ? null : memoryFileManager.getBinaryName(d.getSource());
+			entry.diagnostics.add(new CompileCache.CachedDiagnostic(d, sourceName, withRootPlaceholders(d.toString())));
+		}
+		compileCache.store(key, entry);
+		return success;
+	}
+
+	/**
+	 * Checks whether the sources read when the entry was created are still the same.
+	 * @param entry - cached compiler result
+	 * @return true if the entry can be used
+	 */
+	private boolean isUpToDate(final CompileCache.Entry entry) {
+		if (!memoryFileManager.getListingHash().equals(entry.listingHash)) {
+			return false;
+		}
+		try {
+			for (CompileCache.Dependency dependency : entry.dependencies) {
+				if (!String.valueOf(memoryFileManager.getRootIndex(dependency.name)).equals(dependency.root)
+						|| !dependency.hash.equals(memoryFileManager.getSourceHash(dependency.name))) {
+					return false;
+				}
+			}
+		} catch (IOException e) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces the absolute paths of the source folders, cached messages must not depend on where the folders are.
+	 * @param message - compiler message
+	 * @return message with placeholders
+	 */
+	private String withRootPlaceholders(final String message) {
+		String result = message;
+		File[] roots = memoryFileManager.getRoots();
+		for (int i = 0; i < roots.length; i++) {
+			result = result.replace(roots[i].getAbsolutePath(), "${root" + i + "}");
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces the placeholders added by {@link #withRootPlaceholders(String)} with the current folders.
+	 * @param message - cached compiler message
+	 * @return message with absolute paths
+	 */
+	private String withRoots(final String message) {
+		String result = message;
+		File[] roots = memoryFileManager.getRoots();
+		for (int i = 0; i < roots.length; i++) {
+			result = result.replace("${root" + i + "}", roots[i].getAbsolutePath());
+		}
+		return result;
+	}
+
+	/**
+	 * Prints out a detailed report with compilation errors.
+	 * Not invoked if the code compiled successfully.
+	 * @param diagnostics - list of compilation errors
+	 */
+	private void handleCompilationErrors(final List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+
+		List<String> testFileNames = new ArrayList<String>();
+		StudentHelperClass.populateFilenames(testRoot, testFileNames, false);    // get all test filenames
+
+		// String previousError = null;    // store previous error code to hide consecutive errors
+		// int sameErrorCounter = 0;       // amount of skipped errors
+		boolean errorsSkipped = false;     // there are skipped errors
+		// replace counting the same error with only one message per error type.
+		// will look nicer than 100 alternating errors.
+		List<String> pastErrors = new ArrayList<String>();
+		// compilers in the temporary folder do not know the run, but the current thread does
+		GradingContext current = context != null ? context : GradingContext.current();
+		GradingEvents events = current == null ? GradingEvents.DISABLED : current.getEvents();
+
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+
+			// every message is sent as an event, also the ones hidden from the output
+			if (events.isEnabled()) {
+				events.emit("compileDiagnostic", new JSONObject()
+						.put("kind", diagnostic.getKind().toString())
+						.put("file", diagnostic.getSource() == null ? null
+								: new File(diagnostic.getSource().getName()).getName())
+						.put("line", diagnostic.getLineNumber())
+						.put("message", diagnostic.getMessage(null)));
+			}
+
+			if (pastErrors.contains(diagnostic.getCode())) {
+				log(String.format("Skipping already existing error %s at line %d.\n",
+						diagnostic.getCode(), diagnostic.getLineNumber()));
+				errorsSkipped = true;
+				continue;
+			}
+
+			pastErrors.add(diagnostic.getCode());
+
+			// skip consecutive identical errors to keep the output cleaner
+			/* if (diagnostic.getCode() != null && diagnostic.getCode().equals(previousError)) {
+				sameErrorCounter++;
+				continue;
+			} else {
+				if (sameErrorCounter > 0) {
+					System.out.println("Skipped " + sameErrorCounter + " error(s) of the same type.");
+					sameErrorCounter = 0;
+				}
+			}
+
+			previousError = diagnostic.getCode();
+			*/
+
+			String problematicFile = new File(diagnostic.getSource().getName()).getName();
+
+			// do not show code from test files
+			if (testFileNames.contains(problematicFile)) {
+				log(problematicFile + " is a test class, will not display the full error.");
+				log(String.format("Error on line %d in %s\n", diagnostic.getLineNumber(),
+						diagnostic.toString()));
+				System.out.format("Error on line %d in %s: %s\n",
+						diagnostic.getLineNumber(), problematicFile, diagnostic.getMessage(null));
+			} else {
+				System.out.format("Error on line %d in %s\n", diagnostic.getLineNumber(),
+						hideRoots(diagnostic.toString()));
+			}
+
+			if (/* sameErrorCounter == 0 && */ diagnostic.getCode() != null) {
+				System.out.print(CompilerErrorHints.getDiagnosticStr(diagnostic));
+			}
+		}
+		if (errorsSkipped) {
+			System.out.println("Skipped some errors of the same type. "
+					+ "Try fixing the ones mentioned above first and check if the problem persists.");
+		}
+		/*
+		if (sameErrorCounter > 0) {
+			System.out.println("Skipped " + sameErrorCounter + " error(s) of the same type.");
+		}
+		*/
+		System.out.println();
+	}
+
+	/**
+	 * Removes the absolute paths of the folders from a compiler message.
+	 * @param message - compiler message
+	 * @return message with paths relative to the folders
+	 */
+	private String hideRoots(final String message) {
+		if (tempDirectory != null) {
+			return message.replace(tempDirectory.getAbsolutePath(), "");
+		}
+		return message.replace(testRoot.getAbsolutePath(), "").replace(contentRoot.getAbsolutePath(), "");
+	}
+}
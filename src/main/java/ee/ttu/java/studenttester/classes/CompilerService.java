@@ -0,0 +1,214 @@
+package ee.ttu.java.studenttester.classes;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import com.sun.source.util.JavacTask;
+
+import ee.ttu.java.studenttester.enums.CompilerBackend;
+
+/**
+ * Keeps the compiler and its file managers alive between compiler tasks and submissions.
+ * A file manager caches the opened JDK platform classes, so a reused one does not have to look
+ * them up again for every task. File managers are lent to one task at a time and kept per
+ * compiler options, as options such as -classpath change the state of the file manager.
+ * @author Andres
+ *
+ */
+public final class CompilerService {
+
+	/**
+	 * Amount of option sets file managers are kept for.
+	 */
+	private static final int MAX_OPTION_SETS = 8;
+	/**
+	 * Amount of idle file managers kept per option set.
+	 */
+	private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Amount of compiler tasks run in parallel.
+	 */
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	private static ExecutorService executor;
+
+	/**
+	 * Idle file managers by compiler options, least recently used first.
+	 */
+	private static final Map<String, Deque<StandardJavaFileManager>> IDLE =
+			new LinkedHashMap<String, Deque<StandardJavaFileManager>>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, Deque<StandardJavaFileManager>> eldest) {
+					if (size() > MAX_OPTION_SETS) {
+						eldest.getValue().forEach(CompilerService::close);
+						return true;
+					}
+					return false;
+				}
+			};
+
+	private CompilerService() {
+
+	}
+
+	/**
+	 * Gets the system compiler.
+	 * @return compiler or null if the platform does not provide one
+	 */
+	public static JavaCompiler getCompiler() {
+		return CompilerBackend.JAVAC.getCompiler();
+	}
+
+	/**
+	 * Gets the amount of compiler tasks run in parallel.
+	 * @return amount of threads
+	 */
+	public static int getThreadCount() {
+		return THREADS;
+	}
+
+	/**
+	 * Gets the pool independent compiler tasks are run on. The pool is shared by all runs,
+	 * so parallel runs do not start more compiler threads than there are processors.
+	 * @return executor with daemon threads
+	 */
+	public static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(THREADS, StudentHelperClass.newDaemonThreadFactory("compiler"));
+		}
+		return executor;
+	}
+
+	/**
+	 * Lends a file manager, an idle one is reused if available.
+	 * @param compiler - compiler the file manager belongs to
+	 * @param options - compiler options the file manager will be used with
+	 * @return file manager that must be given back with
+	 * {@link #release(JavaCompiler, List, StandardJavaFileManager, boolean)}
+	 */
+	public static StandardJavaFileManager acquire(final JavaCompiler compiler, final List<String> options) {
+		synchronized (IDLE) {
+			Deque<StandardJavaFileManager> idle = IDLE.get(getKey(compiler, options));
+			if (idle != null && !idle.isEmpty()) {
+				return idle.pop();
+			}
+		}
+		return compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gives back a file manager. The source path is reset, other locations are set only by
+	 * the options, which stay the same for the next user.
+	 * @param compiler - compiler the file manager belongs to
+	 * @param options - compiler options the file manager was used with
+	 * @param fileManager - file manager from {@link #acquire(JavaCompiler, List)}
+	 * @param reusable - false if the task failed unexpectedly and the file manager should be closed
+	 */
+	public static void release(final JavaCompiler compiler, final List<String> options,
+			final StandardJavaFileManager fileManager, final boolean reusable) {
+		if (reusable) {
+			try {
+				fileManager.flush();
+				fileManager.setLocation(StandardLocation.SOURCE_PATH, null);
+				synchronized (IDLE) {
+					Deque<StandardJavaFileManager> idle = IDLE.computeIfAbsent(getKey(compiler, options),
+							(key) -> new ArrayDeque<StandardJavaFileManager>());
+					if (idle.size() < MAX_IDLE) {
+						idle.push(fileManager);
+						return;
+					}
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				log("Could not reset file manager: " + e.getMessage());
+			}
+		}
+		close(fileManager);
+	}
+
+	/**
+	 * Gets the amount of file managers waiting for reuse.
+	 * @return idle file managers
+	 */
+	public static int getIdleCount() {
+		synchronized (IDLE) {
+			int count = 0;
+			for (Deque<StandardJavaFileManager> idle : IDLE.values()) {
+				count += idle.size();
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Closes all idle file managers.
+	 */
+	public static void clear() {
+		synchronized (IDLE) {
+			IDLE.values().forEach((idle) -> idle.forEach(CompilerService::close));
+			IDLE.clear();
+		}
+	}
+
+	/**
+	 * Analyzes a small class, so the compiler classes are loaded and the platform classes
+	 * are opened before the first submission arrives. Nothing is written to disk.
+	 */
+	public static void warmUp() {
+		if (getCompiler() == null) {
+			return;
+		}
+		long startTime = System.nanoTime();
+		// the default options of in-memory compilation, so the file manager is reused by the first submission
+		List<String> options = Arrays.asList("-encoding", "utf8");
+		StandardJavaFileManager fileManager = acquire(getCompiler(), options);
+		boolean reusable = false;
+		try {
+			JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///WarmUp.java"), Kind.SOURCE) {
+				@Override
+				public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+					return "import java.util.*; public class WarmUp { List<String> list = new ArrayList<>(); "
+							+ "String s = String.valueOf(list.size()); }";
+				}
+			};
+			((JavacTask) getCompiler().getTask(null, fileManager, (diagnostic) -> { }, options, null,
+					Arrays.asList(source))).analyze();
+			reusable = true;
+		} catch (IOException | RuntimeException e) {
+			log("Compiler warm-up failed: " + e);
+		} finally {
+			release(getCompiler(), options, fileManager, reusable);
+		}
+		log("Compiler warm-up took ms: " + (System.nanoTime() - startTime) / 1000000);
+	}
+
+	private static String getKey(final JavaCompiler compiler, final List<String> options) {
+		return compiler.getClass().getName() + " " + options;
+	}
+
+	private static void close(final StandardJavaFileManager fileManager) {
+		try {
+			fileManager.close();
+		} catch (IOException e) {
+			log("Could not close file manager: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.util.TreeScanner;
+
+/**
+ * Graph of the types sources refer to, built from parsed compilation units. A source depends
+ * on another one if it mentions the simple name of a type declared there. Names are not resolved,
+ * so the graph may contain more dependencies than there really are, but never less.
+ * @author Andres
+ *
+ */
+public class DependencyGraph {
+
+	/**
+	 * Sources by position.
+	 */
+	private final List<URI> nodes = new ArrayList<URI>();
+	private final Map<URI, Integer> indexes = new HashMap<URI, Integer>();
+	/**
+	 * Positions of the sources each source depends on.
+	 */
+	private final List<Set<Integer>> edges = new ArrayList<Set<Integer>>();
+
+	/**
+	 * Builds the graph.
+	 * @param units - parsed sources
+	 */
+	public DependencyGraph(final Iterable<? extends CompilationUnitTree> units) {
+		Map<String, Set<Integer>> declarations = new HashMap<String, Set<Integer>>();
+		List<Set<String>> references = new ArrayList<Set<String>>();
+		for (CompilationUnitTree unit : units) {
+			int index = nodes.size();
+			URI uri = unit.getSourceFile().toUri();
+			nodes.add(uri);
+			indexes.put(uri, index);
+			Set<String> referenced = new HashSet<String>();
+			new TreeScanner<Void, Void>() {
+				@Override
+				public Void visitClass(final ClassTree node, final Void p) {
+					declarations.computeIfAbsent(node.getSimpleName().toString(),
+							(name) -> new HashSet<Integer>()).add(index);
+					return super.visitClass(node, p);
+				}
+
+				@Override
+				public Void visitIdentifier(final IdentifierTree node, final Void p) {
+					referenced.add(node.getName().toString());
+					return super.visitIdentifier(node, p);
+				}
+
+				@Override
+				public Void visitMemberSelect(final MemberSelectTree node, final Void p) {
+					referenced.add(node.getIdentifier().toString());
+					return super.visitMemberSelect(node, p);
+				}
+			}.scan(unit, null);
+			references.add(referenced);
+		}
+		for (int i = 0; i < nodes.size(); i++) {
+			Set<Integer> dependencies = new LinkedHashSet<Integer>();
+			for (String name : references.get(i)) {
+				dependencies.addAll(declarations.getOrDefault(name, Collections.<Integer>emptySet()));
+			}
+			dependencies.remove(i);
+			edges.add(dependencies);
+		}
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Gets the position of a source.
+	 * @param uri - location of the source
+	 * @return position or -1 if the source is not in the graph
+	 */
+	public int indexOf(final URI uri) {
+		return indexes.getOrDefault(uri, -1);
+	}
+
+	/**
+	 * Gets the sources needed to compile the given ones, including themselves.
+	 * @param start - positions of sources
+	 * @return positions of the sources and everything they depend on
+	 */
+	public Set<Integer> getClosure(final Collection<Integer> start) {
+		Set<Integer> closure = new HashSet<Integer>(start);
+		Deque<Integer> queue = new ArrayDeque<Integer>(start);
+		while (!queue.isEmpty()) {
+			for (int dependency : edges.get(queue.pop())) {
+				if (closure.add(dependency)) {
+					queue.push(dependency);
+				}
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * Finds the strongly connected components with Tarjan's algorithm. Sources in the same
+	 * component depend on each other and must be compiled together.
+	 * @return components, every component comes after the components it depends on
+	 */
+	public List<List<Integer>> getComponents() {
+		int[] order = new int[nodes.size()];
+		int[] lowLink = new int[nodes.size()];
+		boolean[] onStack = new boolean[nodes.size()];
+		Arrays.fill(order, -1);
+		Deque<Integer> stack = new ArrayDeque<Integer>();
+		List<List<Integer>> components = new ArrayList<List<Integer>>();
+		int[] counter = {0};
+		for (int i = 0; i < nodes.size(); i++) {
+			if (order[i] < 0) {
+				connect(i, order, lowLink, onStack, stack, components, counter);
+			}
+		}
+		return components;
+	}
+
+	private void connect(final int node, final int[] order, final int[] lowLink, final boolean[] onStack,
+			final Deque<Integer> stack, final List<List<Integer>> components, final int[] counter) {
+		order[node] = counter[0];
+		lowLink[node] = counter[0];
+		counter[0]++;
+		stack.push(node);
+		onStack[node] = true;
+		for (int dependency : edges.get(node)) {
+			if (order[dependency] < 0) {
+				connect(dependency, order, lowLink, onStack, stack, components, counter);
+				lowLink[node] = Math.min(lowLink[node], lowLink[dependency]);
+			} else if (onStack[dependency]) {
+				lowLink[node] = Math.min(lowLink[node], order[dependency]);
+			}
+		}
+		if (lowLink[node] == order[node]) {
+			// a component is complete only after everything it depends on
+			List<Integer> component = new ArrayList<Integer>();
+			int member;
+			do {
+				member = stack.pop();
+				onStack[member] = false;
+				component.add(member);
+			} while (member != node);
+			components.add(component);
+		}
+	}
+}
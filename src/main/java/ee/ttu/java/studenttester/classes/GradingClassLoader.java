@@ -0,0 +1,166 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ee.ttu.java.studenttester.dataclasses.CompiledClass;
+
+/**
+ * Class loader for compiled tests and student code. Remembers the run the classes belong to.
+ * Classes compiled in memory are defined from their bytes, anything else is looked up
+ * from the given folders. Student classes are added to the security blacklist of the run
+ * when they are loaded, so they need not be loaded in advance.
+ * @author Andres
+ *
+ */
+public class GradingClassLoader extends URLClassLoader {
+
+	static {
+		registerAsParallelCapable();
+	}
+
+	private final GradingContext context;
+	/**
+	 * Protection domains by source folder, classes keep the folder of their source as the code source.
+	 */
+	private final Map<File, ProtectionDomain> domains = new ConcurrentHashMap<File, ProtectionDomain>();
+	/**
+	 * Names of student classes, blacklisted when loaded.
+	 */
+	private final Set<String> studentClasses = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Creates a new loader.
+	 * @param urls - folders containing compiled classes or resources
+	 * @param context - run the classes belong to
+	 */
+	public GradingClassLoader(final URL[] urls, final GradingContext context) {
+		super(urls);
+		this.context = context;
+	}
+
+	/**
+	 * Gets the run the classes of this loader belong to.
+	 * @return context
+	 */
+	public GradingContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Marks a class as student code, it is added to the security blacklist of the run when loaded.
+	 * @param name - binary name of the class
+	 */
+	public void addStudentClass(final String name) {
+		studentClasses.add(name);
+	}
+
+	/**
+	 * Checks if this loader has a class without loading it.
+	 * @param name - binary name of the class
+	 * @return true if the class was compiled in memory or found in the folders
+	 */
+	public boolean hasClass(final String name) {
+		return context != null && context.getCompiledClasses().containsKey(name)
+				|| findResource(name.replace('.', '/') + ".class") != null;
+	}
+
+	/**
+	 * Reads the class file of a class without loading it.
+	 * @param name - binary name of the class
+	 * @return contents of the class file or null if this loader has no such class
+	 * @throws IOException if the class file cannot be read
+	 */
+	public byte[] getClassBytes(final String name) throws IOException {
+		CompiledClass compiled = context == null ? null : context.getCompiledClasses().get(name);
+		if (compiled != null) {
+			return compiled.getBytes();
+		}
+		URL url = findResource(name.replace('.', '/') + ".class");
+		if (url == null) {
+			return null;
+		}
+		try (InputStream in = url.openStream()) {
+			return in.readAllBytes();
+		}
+	}
+
+	@Override
+	protected Class<?> findClass(final String name) throws ClassNotFoundException {
+		Class<?> clazz = defineCompiledClass(name);
+		if (clazz == null) {
+			clazz = super.findClass(name);
+		}
+		if (context != null && studentClasses.contains(name)) {
+			context.getSecurity().addClass(clazz);
+		}
+		return clazz;
+	}
+
+	/**
+	 * Defines a class compiled in memory.
+	 * @param name - binary name of the class
+	 * @return class or null if the class was not compiled in memory
+	 * @throws ClassNotFoundException if the source folder of the class is invalid
+	 */
+	private Class<?> defineCompiledClass(final String name) throws ClassNotFoundException {
+		CompiledClass compiled = context == null ? null : context.getCompiledClasses().get(name);
+		if (compiled == null) {
+			return null;
+		}
+		int packageEnd = name.lastIndexOf('.');
+		if (packageEnd > 0) {
+			definePackageIfMissing(name.substring(0, packageEnd));
+		}
+		byte[] bytes = compiled.getBytes();
+		return defineClass(name, bytes, 0, bytes.length, getDomain(compiled.getRoot()));
+	}
+
+	/**
+	 * Defines a package for classes compiled in memory, URLClassLoader does this only for classes it finds itself.
+	 * @param packageName - name of the package
+	 */
+	@SuppressWarnings("deprecation")
+	private void definePackageIfMissing(final String packageName) {
+		if (getPackage(packageName) == null) {
+			try {
+				definePackage(packageName, null, null, null, null, null, null, null);
+			} catch (IllegalArgumentException e) {
+				// defined by another thread in the meantime
+			}
+		}
+	}
+
+	/**
+	 * Gets the protection domain for classes compiled from a folder.
+	 * @param root - source folder, may be null
+	 * @return protection domain
+	 * @throws ClassNotFoundException if the folder cannot be converted to an URL
+	 */
+	private ProtectionDomain getDomain(final File root) throws ClassNotFoundException {
+		if (root == null) {
+			return null;
+		}
+		try {
+			ProtectionDomain domain = domains.get(root);
+			if (domain == null) {
+				CodeSource source = new CodeSource(root.getAbsoluteFile().toURI().toURL(), (Certificate[]) null);
+				domain = new ProtectionDomain(source, null, this, null);
+				domains.put(root, domain);
+			}
+			return domain;
+		} catch (MalformedURLException e) {
+			throw new ClassNotFoundException(e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,352 @@
+package ee.ttu.java.studenttester.classes;
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import ee.ttu.java.studenttester.dataclasses.CompiledClass;
+import ee.ttu.java.studenttester.dataclasses.TestResults;
+
+/**
+ * Holds everything that belongs to a single test run: captured output, API instances,
+ * security restrictions, the temporary folder, compiled classes and the results. Several contexts may
+ * be active at the same time, so nothing that belongs to a run should be kept in static fields.
+ * <br>The context is bound to the thread running the tester and inherited by every thread
+ * started from it.
+ * @author Andres
+ *
+ */
+public final class GradingContext {
+
+	/**
+	 * Context of the current thread, inherited by child threads.
+	 */
+	private static final InheritableThreadLocal<GradingContext> CURRENT = new InheritableThreadLocal<GradingContext>();
+	/**
+	 * Counter for naming thread groups.
+	 */
+	private static final AtomicInteger COUNTER = new AtomicInteger();
+
+	private final int id = COUNTER.incrementAndGet();
+	private final CaptureBuffer output = new CaptureBuffer();
+	private final PrintStream outputStream;
+	private final Map<Class<?>, StudentTesterAPI> apiInstances = new ConcurrentHashMap<Class<?>, StudentTesterAPI>();
+	private final StudentSecurity security = StudentSecurity.newInstance();
+	private final ThreadGroup threadGroup;
+	private final Map<String, CompiledClass> compiledClasses = new ConcurrentHashMap<String, CompiledClass>();
+	private volatile boolean apiEnabled = false;
+	private boolean diskWorkspace = false;
+	private File tempRoot;
+	private SourceOverlay sourceOverlay;
+	private GradingEvents events = GradingEvents.DISABLED;
+	private final Map<File, SubmissionArchive> archives = new ConcurrentHashMap<File, SubmissionArchive>();
+	private JSONObject json;
+	private JSONArray singleResults;
+	private TestResults results;
+
+	/**
+	 * Creates a new context.
+	 * @param tempRoot - temporary folder used by this run
+	 */
+	@SuppressWarnings({"deprecation", "removal"})
+	public GradingContext(final File tempRoot) {
+		this.tempRoot = tempRoot;
+		// a daemon group is destroyed with its last thread, otherwise the parent group keeps it forever
+		this.threadGroup = new ThreadGroup("StudentTester-" + id);
+		this.threadGroup.setDaemon(true);
+		// output is redirected per thread, so runs do not overwrite each other's streams
+		ThreadPrintStream.install();
+		PrintStream ps;
+		try {
+			ps = new PrintStream(output, true, StandardCharsets.UTF_8.name());
+		} catch (UnsupportedEncodingException e) {
+			ps = new PrintStream(output, true);
+		}
+		this.outputStream = ps;
+	}
+
+	/**
+	 * Gets the context of the current thread.
+	 * @return context or null if the thread does not belong to any run
+	 */
+	public static GradingContext current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Gets the context a class belongs to. Classes loaded for a run belong to that run,
+	 * other classes belong to the context of the current thread.
+	 * @param clazz - class to look up
+	 * @return context or null if none was found
+	 */
+	public static GradingContext forClass(final Class<?> clazz) {
+		if (clazz != null && clazz.getClassLoader() instanceof GradingClassLoader) {
+			return ((GradingClassLoader) clazz.getClassLoader()).getContext();
+		}
+		return current();
+	}
+
+	/**
+	 * Binds this context to the current thread and threads started from it.
+	 * @return context that was bound before, should be passed to {@link #unbind(GradingContext)}
+	 */
+	public GradingContext bind() {
+		GradingContext previous = CURRENT.get();
+		CURRENT.set(this);
+		return previous;
+	}
+
+	/**
+	 * Removes this context from the current thread.
+	 * @param previous - context to restore, may be null
+	 */
+	public void unbind(final GradingContext previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * Stops threads that were started during this run and are still alive. The thread group of
+	 * the run is destroyed once its threads are gone.
+	 * @param except - thread that should be left alone, may be null
+	 */
+	@SuppressWarnings({"deprecation", "removal"})
+	public void stopRemainingThreads(final Thread except) {
+		Thread[] threads = new Thread[threadGroup.activeCount() + 1];
+		int count = threadGroup.enumerate(threads, true);
+		for (int i = 0; i < count; i++) {
+			if (threads[i] != except && threads[i].isAlive()) {
+				log(String.format("Warning: attempting to kill stuck thread %s, consider "
+						+ "making the method exit on InterruptedException", threads[i].getName()));
+				threads[i].stop();
+			}
+		}
+		// a daemon group is destroyed with its last thread, a group that never had threads is not
+		if (count == 0 && !threadGroup.isDestroyed()) {
+			try {
+				threadGroup.destroy();
+			} catch (IllegalThreadStateException e) {
+				// a thread was started or the group was destroyed in the meantime
+			}
+		}
+	}
+
+	/**
+	 * Gets the run number, unique within the JVM.
+	 * @return run number
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Gets the stream that collects the output of this run.
+	 * @return print stream
+	 */
+	public PrintStream getOutputStream() {
+		return outputStream;
+	}
+
+	/**
+	 * Gets the collected output.
+	 * @return output buffer
+	 */
+	public CaptureBuffer getOutput() {
+		return output;
+	}
+
+	/**
+	 * Creates an empty buffer with the same limits as the output of this run.
+	 * @return new buffer, should be released after use
+	 */
+	public CaptureBuffer newCaptureBuffer() {
+		return output.newBuffer();
+	}
+
+	/**
+	 * Gets the API instances created during this run.
+	 * @return map of test classes and API instances
+	 */
+	public Map<Class<?>, StudentTesterAPI> getApiInstances() {
+		return apiInstances;
+	}
+
+	/**
+	 * Returns whether the API can be used in this run.
+	 * @return API is functional
+	 */
+	public boolean isApiEnabled() {
+		return apiEnabled;
+	}
+
+	/**
+	 * Sets the active state of the API.
+	 * @param apiEnabled API is functional
+	 */
+	public void setApiEnabled(final boolean apiEnabled) {
+		this.apiEnabled = apiEnabled;
+	}
+
+	/**
+	 * Gets the security restrictions of this run.
+	 * @return security object
+	 */
+	public StudentSecurity getSecurity() {
+		return security;
+	}
+
+	/**
+	 * Gets the thread group whose threads belong to this run.
+	 * @return thread group
+	 */
+	public ThreadGroup getThreadGroup() {
+		return threadGroup;
+	}
+
+	/**
+	 * Gets the temporary folder.
+	 * @return temporary folder
+	 */
+	public File getTempRoot() {
+		return tempRoot;
+	}
+
+	/**
+	 * Sets the temporary folder.
+	 * @param tempRoot - temporary folder
+	 */
+	public void setTempRoot(final File tempRoot) {
+		this.tempRoot = tempRoot;
+	}
+
+	/**
+	 * Returns whether code and tests are copied to the temporary folder and compiled there.
+	 * @return true if the temporary folder is used, false if compiling in memory
+	 */
+	public boolean usesDiskWorkspace() {
+		return diskWorkspace;
+	}
+
+	/**
+	 * Sets whether code and tests are copied to the temporary folder and compiled there.
+	 * @param diskWorkspace - true to use the temporary folder, false to compile in memory
+	 */
+	public void setDiskWorkspace(final boolean diskWorkspace) {
+		this.diskWorkspace = diskWorkspace;
+	}
+
+	/**
+	 * Gets the merged view of the source folders, so the folders are listed once per run
+	 * however many times the sources are parsed or compiled.
+	 * @param roots - folders, later folders take precedence
+	 * @return view of the folders
+	 */
+	public synchronized SourceOverlay getSourceOverlay(final File... roots) {
+		if (sourceOverlay == null || !sourceOverlay.hasRoots(roots)) {
+			sourceOverlay = new SourceOverlay(archives, roots);
+		}
+		return sourceOverlay;
+	}
+
+	/**
+	 * Uses an archive read into memory in place of a folder.
+	 * @param root - path standing for the archive in the source folders
+	 * @param archive - contents
+	 */
+	public synchronized void addArchive(final File root, final SubmissionArchive archive) {
+		archives.put(root, archive);
+		sourceOverlay = null;
+	}
+
+	/**
+	 * Gets the archive standing for a folder.
+	 * @param root - source folder
+	 * @return archive or null if the folder is read from disk
+	 */
+	public SubmissionArchive getArchive(final File root) {
+		return archives.get(root);
+	}
+
+	/**
+	 * Gets the live event stream of this run.
+	 * @return events, {@link GradingEvents#DISABLED} if no stream was requested
+	 */
+	public GradingEvents getEvents() {
+		return events;
+	}
+
+	/**
+	 * Sets the live event stream of this run.
+	 * @param events - event stream
+	 */
+	public void setEvents(final GradingEvents events) {
+		this.events = events;
+	}
+
+	/**
+	 * Gets the classes compiled in memory.
+	 * @return map of binary names and classes
+	 */
+	public Map<String, CompiledClass> getCompiledClasses() {
+		return compiledClasses;
+	}
+
+	/**
+	 * Gets the JSON root object.
+	 * @return JSON object or null if JSON is not used
+	 */
+	public JSONObject getJson() {
+		return json;
+	}
+
+	/**
+	 * Gets the JSON array for single results.
+	 * @return JSON array or null if JSON is not used
+	 */
+	public JSONArray getSingleResults() {
+		return singleResults;
+	}
+
+	/**
+	 * Enables JSON output for this run.
+	 */
+	public void enableJson() {
+		this.json = new JSONObject();
+		this.singleResults = new JSONArray();
+	}
+
+	/**
+	 * Returns whether results are collected to JSON.
+	 * @return true if JSON is used
+	 */
+	public boolean isJsonOutput() {
+		return json != null;
+	}
+
+	/**
+	 * Gets the unit test results.
+	 * @return results or null if tests have not been run
+	 */
+	public TestResults getResults() {
+		return results;
+	}
+
+	/**
+	 * Sets the unit test results.
+	 * @param results - results from the reporter
+	 */
+	public void setResults(final TestResults results) {
+		this.results = results;
+	}
+}
@@ -0,0 +1,82 @@
+package ee.ttu.java.studenttester.classes;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.json.JSONObject;
+
+/**
+ * Live events of a test run, written as one JSON object per line (NDJSON) while the run is
+ * going on. Every event has the fields "event" and "time", the milliseconds since the run started.
+ * Events may be sent from several threads, lines are never mixed.
+ * @author Andres
+ *
+ */
+public final class GradingEvents {
+
+	/**
+	 * Events of a run without an event stream, nothing is written.
+	 */
+	public static final GradingEvents DISABLED = new GradingEvents(null);
+
+	private final long startTime = System.nanoTime();
+	private Writer out;
+
+	/**
+	 * Creates a new event stream.
+	 * @param out - target, flushed after every event. Null disables the events
+	 */
+	public GradingEvents(final Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Returns whether the events are written anywhere.
+	 * @return true if enabled
+	 */
+	public synchronized boolean isEnabled() {
+		return out != null;
+	}
+
+	/**
+	 * Writes an event.
+	 * @param event - type of the event
+	 * @param fields - other fields of the event, may be null
+	 */
+	public synchronized void emit(final String event, final JSONObject fields) {
+		if (out == null) {
+			return;
+		}
+		JSONObject line = fields == null ? new JSONObject() : fields;
+		line.put("event", event);
+		line.put("time", (System.nanoTime() - startTime) / 1000000);
+		try {
+			line.write(out);
+			out.write('\n');
+			out.flush();
+		} catch (IOException e) {
+			// the reader has gone away, there is no point in trying again
+			log("Could not write event, events disabled: " + e.getMessage());
+			out = null;
+		}
+	}
+
+	/**
+	 * Writes the event of a stage starting.
+	 * @param stage - name of the stage, e.g. "compile"
+	 */
+	public void stageStarted(final String stage) {
+		emit("stageStarted", new JSONObject().put("stage", stage));
+	}
+
+	/**
+	 * Writes the event of a stage finishing.
+	 * @param stage - name of the stage
+	 * @param success - false if the stage failed
+	 */
+	public void stageFinished(final String stage, final boolean success) {
+		emit("stageFinished", new JSONObject().put("stage", stage).put("success", success));
+	}
+}
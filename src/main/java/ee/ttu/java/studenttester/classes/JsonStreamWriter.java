@@ -0,0 +1,288 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Writes JSON as it is produced instead of building the whole document in memory first.
+ * Long strings, such as sources and captured output, can be written from bytes without
+ * converting them to a String. Strings are escaped the same way as org.json does.
+ * @author Andres
+ *
+ */
+public class JsonStreamWriter implements Closeable {
+
+	private final Writer writer;
+	/**
+	 * For every open object or array, whether nothing has been written to it yet.
+	 */
+	private final Deque<Boolean> empty = new ArrayDeque<Boolean>();
+	/**
+	 * Whether a key was written and its value is expected next.
+	 */
+	private boolean afterKey;
+
+	/**
+	 * Creates a new writer.
+	 * @param writer - target, buffered by the caller if needed
+	 */
+	public JsonStreamWriter(final Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Starts an object.
+	 * @return this writer
+	 * @throws IOException if writing fails
+	 */
+	public JsonStreamWriter beginObject() throws IOException {
+		beforeValue();
+		writer.write('{');
+		empty.push(true);
+		return this;
+	}
+
+	/**
+	 * Ends the current object.
+	 * @return this writer
+	 * @throws IOException if writing fails
+	 */
+	public JsonStreamWriter endObject() throws IOException {
+		empty.pop();
+		writer.write('}');
+		return this;
+	}
+
+	/**
+	 * Starts an array.
+	 * @return this writer
+	 * @throws IOException if writing fails
+	 */
+	public JsonStreamWriter beginArray() throws IOException {
+		beforeValue();
+		writer.write('[');
+		empty.push(true);
+		return this;
+	}
+
+	/**
+	 * Ends the current array.
+	 * @return this writer
+	 * @throws IOException if writing fails
+	 */
+	public JsonStreamWriter endArray() throws IOException {
+		empty.pop();
+		writer.write(']');
+		return this;
+	}
+
+	/**
+	 * Writes the key of the next value of the current object.
+	 * @param key - name of the field
+	 * @return this writer
+	 * @throws IOException if writing fails
+	 */
+	public JsonStreamWriter key(final String key) throws IOException {
+		beforeValue();
+		JSONObject.quote(key, writer);
+		writer.write(':');
+		afterKey = true;
+		return this;
+	}
+
+	/**
+	 * Writes a value: a string, number, boolean, null or an org.json object or array.
+	 * Objects and arrays are written without converting them to a String first.
+	 * @param value - value
+	 * @return this writer
+	 * @throws IOException if writing fails
+	 */
+	public JsonStreamWriter value(final Object value) throws IOException {
+		beforeValue();
+		if (value instanceof JSONObject) {
+			((JSONObject) value).write(writer);
+		} else if (value instanceof JSONArray) {
+			((JSONArray) value).write(writer);
+		} else if (value instanceof String) {
+			JSONObject.quote((String) value, writer);
+		} else {
+			writer.write(JSONObject.valueToString(value));
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a string value from UTF-8 bytes.
+	 * @param bytes - contents
+	 * @return this writer
+	 * @throws IOException if writing fails
+	 */
+	public JsonStreamWriter value(final byte[] bytes) throws IOException {
+		try (OutputStream out = valueStream()) {
+			out.write(bytes);
+		}
+		return this;
+	}
+
+	/**
+	 * Starts a string value written as UTF-8 bytes, the string ends when the stream is closed.
+	 * Nothing else may be written before that.
+	 * @return stream for the contents of the string
+	 * @throws IOException if writing fails
+	 */
+	public OutputStream valueStream() throws IOException {
+		beforeValue();
+		writer.write('"');
+		return new StringStream();
+	}
+
+	/**
+	 * Ends a line, e.g. after the root object.
+	 * @throws IOException if writing fails
+	 */
+	public void newLine() throws IOException {
+		writer.write('\n');
+	}
+
+	/**
+	 * Writes everything buffered to the target.
+	 * @throws IOException if writing fails
+	 */
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	private void beforeValue() throws IOException {
+		if (afterKey) {
+			afterKey = false;
+			return;
+		}
+		if (!empty.isEmpty()) {
+			if (!empty.peek()) {
+				writer.write(',');
+			}
+			empty.pop();
+			empty.push(false);
+		}
+	}
+
+	/**
+	 * Decodes UTF-8 and writes the characters escaped.
+	 */
+	private final class StringStream extends OutputStream {
+
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+		private final CharBuffer chars = CharBuffer.allocate(8192);
+		/**
+		 * Last character written, org.json escapes the slash in "</".
+		 */
+		private char previous;
+		private boolean closed;
+
+		@Override
+		public void write(final int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] buffer, final int offset, final int length) throws IOException {
+			int position = offset;
+			int remaining = length;
+			while (remaining > 0) {
+				int count = Math.min(bytes.remaining(), remaining);
+				bytes.put(buffer, position, count);
+				position += count;
+				remaining -= count;
+				decode(false);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			decode(true);
+			decoder.flush(chars);
+			writeChars();
+			writer.write('"');
+		}
+
+		private void decode(final boolean endOfInput) throws IOException {
+			bytes.flip();
+			CoderResult result;
+			do {
+				result = decoder.decode(bytes, chars, endOfInput);
+				writeChars();
+			} while (result.isOverflow());
+			bytes.compact();
+		}
+
+		private void writeChars() throws IOException {
+			chars.flip();
+			while (chars.hasRemaining()) {
+				char c = chars.get();
+				switch (c) {
+				case '\\':
+				case '"':
+					writer.write('\\');
+					writer.write(c);
+					break;
+				case '/':
+					if (previous == '<') {
+						writer.write('\\');
+					}
+					writer.write(c);
+					break;
+				case '\b':
+					writer.write("\\b");
+					break;
+				case '\t':
+					writer.write("\\t");
+					break;
+				case '\n':
+					writer.write("\\n");
+					break;
+				case '\f':
+					writer.write("\\f");
+					break;
+				case '\r':
+					writer.write("\\r");
+					break;
+				default:
+					if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+						String hex = Integer.toHexString(c);
+						writer.write("\\u0000", 0, 6 - hex.length());
+						writer.write(hex);
+					} else {
+						writer.write(c);
+					}
+				}
+				previous = c;
+			}
+			chars.clear();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread safe in-memory cache that drops the least recently used entry once it is full.
+ * Used by the caches shared by all runs of the JVM.
+ * @author Andres
+ *
+ * @param <V> cached value type
+ */
+final class LruCache<V> {
+
+	/**
+	 * Cached values, least recently used first.
+	 */
+	private final Map<String, V> entries;
+
+	/**
+	 * Creates a new cache.
+	 * @param maxEntries - amount of values kept
+	 */
+	LruCache(final int maxEntries) {
+		entries = new LinkedHashMap<String, V>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Gets a value and marks it as recently used.
+	 * @param key - key
+	 * @return value or null if not cached
+	 */
+	synchronized V get(final String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Stores a value.
+	 * @param key - key
+	 * @param value - value
+	 */
+	synchronized void put(final String key, final V value) {
+		entries.put(key, value);
+	}
+
+	/**
+	 * Gets the amount of cached values.
+	 * @return amount of entries
+	 */
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes everything from the cache.
+	 */
+	synchronized void clear() {
+		entries.clear();
+	}
+}
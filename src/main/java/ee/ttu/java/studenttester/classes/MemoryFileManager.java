@@ -0,0 +1,362 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import ee.ttu.java.studenttester.dataclasses.CompiledClass;
+
+/**
+ * File manager that reads sources straight from the content and test roots and keeps
+ * the compiled classes in memory, so nothing has to be copied to a temporary folder.
+ * Sources in later roots shadow sources with the same name in earlier roots, like files
+ * copied on top of each other.
+ * @author Andres
+ *
+ */
+public class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+	/**
+	 * Sources by binary name.
+	 */
+	private final Map<String, SourceFile> sources = new TreeMap<String, SourceFile>();
+	/**
+	 * Compiled classes by binary name.
+	 */
+	private final Map<String, CompiledClass> classes;
+	private final File[] roots;
+	/**
+	 * Sources read and classes written since recording was started, null if not recording.
+	 */
+	private Set<SourceFile> recordedSources;
+	private List<CompiledClass> recordedClasses;
+	private String listingHash;
+
+	/**
+	 * Creates a new file manager.
+	 * @param fileManager - file manager used for everything except sources and compiled classes
+	 * @param classes - map where compiled classes are stored
+	 * @param roots - source folders, later folders take precedence
+	 */
+	public MemoryFileManager(final StandardJavaFileManager fileManager, final Map<String, CompiledClass> classes,
+			final File... roots) {
+		this(fileManager, classes, new SourceOverlay(roots));
+	}
+
+	/**
+	 * Creates a new file manager reading sources from an existing view of the source folders.
+	 * @param fileManager - file manager used for everything except sources and compiled classes
+	 * @param classes - map where compiled classes are stored
+	 * @param overlay - source folders
+	 */
+	public MemoryFileManager(final StandardJavaFileManager fileManager, final Map<String, CompiledClass> classes,
+			final SourceOverlay overlay) {
+		super(fileManager);
+		this.classes = classes;
+		this.roots = overlay.getRoots();
+		for (String filename : overlay.getFiles(".java")) {
+			String binaryName = StudentHelperClass.filePathToClassPath(filename);
+			sources.put(binaryName, new SourceFile(binaryName, overlay.getFile(filename), overlay.getRoot(filename),
+					overlay.getContent(filename)));
+		}
+	}
+
+	/**
+	 * Gets a source file.
+	 * @param relativePath - path relative to its root, e.g. "mypackage/DummyTest.java"
+	 * @return source file or null if not found
+	 */
+	public JavaFileObject getSource(final String relativePath) {
+		return sources.get(StudentHelperClass.filePathToClassPath(relativePath));
+	}
+
+	/**
+	 * Gets a source file.
+	 * @param binaryName - binary name of the class in the source
+	 * @return source file or null if not found
+	 */
+	public JavaFileObject getSourceByName(final String binaryName) {
+		return sources.get(binaryName);
+	}
+
+	/**
+	 * Gets the binary name of a source file of this file manager.
+	 * @param file - source file
+	 * @return binary name or null if the file is not one of the sources
+	 */
+	public String getBinaryName(final FileObject file) {
+		return file instanceof SourceFile ? ((SourceFile) file).binaryName : null;
+	}
+
+	/**
+	 * Gets the hash of the contents of a source file.
+	 * @param binaryName - binary name of the class in the source
+	 * @return hash or null if there is no such source
+	 * @throws IOException if the file cannot be read
+	 */
+	public String getSourceHash(final String binaryName) throws IOException {
+		SourceFile source = sources.get(binaryName);
+		return source == null ? null : source.getHash();
+	}
+
+	/**
+	 * Gets the position of the folder containing a source.
+	 * @param binaryName - binary name of the class in the source
+	 * @return index of the folder given to the constructor or -1 if there is no such source
+	 */
+	public int getRootIndex(final String binaryName) {
+		SourceFile source = sources.get(binaryName);
+		return source == null ? -1 : getRootIndex(source.root);
+	}
+
+	/**
+	 * Gets the position of a folder.
+	 * @param root - folder
+	 * @return index of the folder given to the constructor or -1 if not found
+	 */
+	public int getRootIndex(final File root) {
+		for (int i = 0; i < roots.length; i++) {
+			if (roots[i].equals(root)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the folders given to the constructor.
+	 * @return source folders
+	 */
+	public File[] getRoots() {
+		return roots;
+	}
+
+	/**
+	 * Gets a hash of the names and folders of all sources. Adding, removing or moving a source
+	 * can change how other sources compile even if their contents stay the same.
+	 * @return hash
+	 */
+	public String getListingHash() {
+		if (listingHash == null) {
+			List<String> listing = new ArrayList<String>();
+			sources.values().forEach((source) -> listing.add(source.binaryName + " " + getRootIndex(source.root)));
+			listingHash = CompileCache.hash(listing.toArray(new String[listing.size()]));
+		}
+		return listingHash;
+	}
+
+	/**
+	 * Starts recording the sources read and classes written by the compiler.
+	 */
+	public void startRecording() {
+		recordedSources = Collections.synchronizedSet(new LinkedHashSet<SourceFile>());
+		recordedClasses = Collections.synchronizedList(new ArrayList<CompiledClass>());
+	}
+
+	/**
+	 * Stops recording.
+	 * @param readSources - receives binary names of the sources read
+	 * @param writtenClasses - receives classes written
+	 */
+	public void stopRecording(final List<String> readSources, final List<CompiledClass> writtenClasses) {
+		recordedSources.forEach((source) -> readSources.add(source.binaryName));
+		writtenClasses.addAll(recordedClasses);
+		recordedSources = null;
+		recordedClasses = null;
+	}
+
+	/**
+	 * Gets the sources of a root that are not shadowed by another root.
+	 * @param root - source folder
+	 * @return source files
+	 */
+	public List<JavaFileObject> getSources(final File root) {
+		List<JavaFileObject> found = new ArrayList<JavaFileObject>();
+		for (SourceFile source : sources.values()) {
+			if (source.root.equals(root)) {
+				found.add(source);
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public boolean hasLocation(final Location location) {
+		return location == StandardLocation.SOURCE_PATH || super.hasLocation(location);
+	}
+
+	@Override
+	public Iterable<JavaFileObject> list(final Location location, final String packageName, final Set<Kind> kinds,
+			final boolean recurse) throws IOException {
+		if (location != StandardLocation.SOURCE_PATH) {
+			return super.list(location, packageName, kinds, recurse);
+		}
+		List<JavaFileObject> found = new ArrayList<JavaFileObject>();
+		if (!kinds.contains(Kind.SOURCE)) {
+			return found;
+		}
+		for (SourceFile source : sources.values()) {
+			String sourcePackage = source.getPackageName();
+			if (sourcePackage.equals(packageName)
+					|| (recurse && (packageName.isEmpty() || sourcePackage.startsWith(packageName + ".")))) {
+				found.add(source);
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public String inferBinaryName(final Location location, final JavaFileObject file) {
+		if (file instanceof SourceFile) {
+			return ((SourceFile) file).binaryName;
+		}
+		return super.inferBinaryName(location, file);
+	}
+
+	@Override
+	public boolean isSameFile(final FileObject a, final FileObject b) {
+		if (a instanceof SimpleJavaFileObject || b instanceof SimpleJavaFileObject) {
+			return a.toUri().equals(b.toUri());
+		}
+		return super.isSameFile(a, b);
+	}
+
+	@Override
+	public JavaFileObject getJavaFileForInput(final Location location, final String className, final Kind kind)
+			throws IOException {
+		if (location == StandardLocation.SOURCE_PATH && kind == Kind.SOURCE) {
+			return sources.get(className);
+		}
+		return super.getJavaFileForInput(location, className, kind);
+	}
+
+	@Override
+	public JavaFileObject getJavaFileForOutput(final Location location, final String className, final Kind kind,
+			final FileObject sibling) throws IOException {
+		if (kind != Kind.CLASS) {
+			return super.getJavaFileForOutput(location, className, kind, sibling);
+		}
+		File root = sibling instanceof SourceFile ? ((SourceFile) sibling).root : null;
+		return new ClassFile(className, root);
+	}
+
+	/**
+	 * Source file read from one of the roots.
+	 */
+	private final class SourceFile extends SimpleJavaFileObject {
+
+		private final String binaryName;
+		private final File file, root;
+		/**
+		 * Contents of a source from an archive, null if read from disk.
+		 */
+		private final byte[] content;
+		private volatile String hash;
+
+		SourceFile(final String binaryName, final File file, final File root, final byte[] content) {
+			super(file.getAbsoluteFile().toURI(), Kind.SOURCE);
+			this.binaryName = binaryName;
+			this.file = file.getAbsoluteFile();
+			this.root = root;
+			this.content = content;
+		}
+
+		byte[] readBytes() throws IOException {
+			return content != null ? content : Files.readAllBytes(file.toPath());
+		}
+
+		String getPackageName() {
+			int index = binaryName.lastIndexOf('.');
+			return index < 0 ? "" : binaryName.substring(0, index);
+		}
+
+		@Override
+		public String getName() {
+			return file.getPath();
+		}
+
+		String getHash() throws IOException {
+			if (hash == null) {
+				hash = CompileCache.hash(readBytes());
+			}
+			return hash;
+		}
+
+		private void record() {
+			Set<SourceFile> recorded = recordedSources;
+			if (recorded != null) {
+				recorded.add(this);
+			}
+		}
+
+		@Override
+		public CharSequence getCharContent(final boolean ignoreEncodingErrors) throws IOException {
+			record();
+			return new String(readBytes(), StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public InputStream openInputStream() throws IOException {
+			record();
+			return content != null ? new ByteArrayInputStream(content) : new FileInputStream(file);
+		}
+
+		@Override
+		public long getLastModified() {
+			return content != null ? 0 : file.lastModified();
+		}
+	}
+
+	/**
+	 * Class file written to memory.
+	 */
+	private final class ClassFile extends SimpleJavaFileObject {
+
+		private final String className;
+		private final File root;
+
+		ClassFile(final String className, final File root) {
+			super(URI.create("memory:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+			this.className = className;
+			this.root = root;
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return new ByteArrayOutputStream() {
+				@Override
+				public void close() throws IOException {
+					super.close();
+					CompiledClass compiled = new CompiledClass(className, toByteArray(), root);
+					classes.put(className, compiled);
+					List<CompiledClass> recorded = recordedClasses;
+					if (recorded != null) {
+						recorded.add(compiled);
+					}
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view merging several folders into one tree without copying anything. Files in later
+ * folders shadow files with the same relative path in earlier folders, like folders copied on top
+ * of each other. The folders are listed once when the view is created, contents are read from
+ * the original files when needed. A folder may also be an archive read into memory, its files
+ * then appear under the path of the archive.
+ * @author Andres
+ *
+ */
+public class SourceOverlay {
+
+	private final File[] roots;
+	/**
+	 * Visible files by path relative to their folder, in the order the folders were listed.
+	 */
+	private final Map<String, Entry> files = new LinkedHashMap<String, Entry>();
+	/**
+	 * All files of every folder, including shadowed ones.
+	 */
+	private final Map<File, Entry> listed = new LinkedHashMap<File, Entry>();
+
+	/**
+	 * Lists the folders.
+	 * @param roots - folders, later folders take precedence
+	 */
+	public SourceOverlay(final File... roots) {
+		this(Collections.<File, SubmissionArchive>emptyMap(), roots);
+	}
+
+	/**
+	 * Lists the folders, some of which may be archives.
+	 * @param archives - contents of the roots that are archives
+	 * @param roots - folders or archives, later folders take precedence
+	 */
+	public SourceOverlay(final Map<File, SubmissionArchive> archives, final File... roots) {
+		this.roots = roots;
+		for (File root : roots) {
+			SubmissionArchive archive = archives.get(root);
+			if (archive == null) {
+				list(root, root.getAbsolutePath() + File.separator, root);
+				continue;
+			}
+			archive.getEntries().forEach((path, content) -> add(new Entry(path.replace('/', File.separatorChar),
+					new File(root, path).getAbsoluteFile(), root, content)));
+		}
+	}
+
+	/**
+	 * Gets the folders of the view.
+	 * @return folders given to the constructor
+	 */
+	public File[] getRoots() {
+		return roots;
+	}
+
+	/**
+	 * Checks if the view consists of the given folders.
+	 * @param otherRoots - folders in order of precedence
+	 * @return true if the folders are the same
+	 */
+	public boolean hasRoots(final File... otherRoots) {
+		return Arrays.equals(roots, otherRoots);
+	}
+
+	/**
+	 * Gets the file visible at a path.
+	 * @param relativePath - path relative to the folders, e.g. "mypackage/DummyTest.java"
+	 * @return file or null if no folder contains it
+	 */
+	public File getFile(final String relativePath) {
+		Entry entry = files.get(relativePath.replace('/', File.separatorChar));
+		return entry == null ? null : entry.file;
+	}
+
+	/**
+	 * Gets the visible files with a name ending, e.g. all java sources.
+	 * @param extension - end of file names, e.g. ".java"
+	 * @return paths relative to the folders
+	 */
+	public List<String> getFiles(final String extension) {
+		return getFiles(null, extension);
+	}
+
+	/**
+	 * Gets the visible files of one folder with a name ending.
+	 * @param root - one of the folders, null for all folders
+	 * @param extension - end of file names, e.g. ".java"
+	 * @return paths relative to the folder, in the same order as
+	 * {@link StudentHelperClass#populateFilenames(File, List, boolean)} lists them
+	 */
+	public List<String> getFiles(final File root, final String extension) {
+		List<String> found = new ArrayList<String>();
+		files.forEach((path, entry) -> {
+			if ((root == null || entry.root.equals(root)) && path.endsWith(extension)) {
+				found.add(path);
+			}
+		});
+		return found;
+	}
+
+	/**
+	 * Gets all files of one folder with a name ending, including the ones shadowed by later folders.
+	 * @param root - one of the folders
+	 * @param extension - end of file names, e.g. ".java"
+	 * @return paths relative to the folder
+	 */
+	public List<String> getAllFiles(final File root, final String extension) {
+		List<String> found = new ArrayList<String>();
+		listed.forEach((file, entry) -> {
+			if (entry.root.equals(root) && entry.path.endsWith(extension)) {
+				found.add(entry.path);
+			}
+		});
+		return found;
+	}
+
+	/**
+	 * Reads a file of a folder, shadowed or not.
+	 * @param root - one of the folders
+	 * @param relativePath - path relative to the folder
+	 * @return contents
+	 * @throws IOException if the file cannot be read
+	 */
+	public byte[] readFile(final File root, final String relativePath) throws IOException {
+		File file = new File(root, relativePath).getAbsoluteFile();
+		Entry entry = listed.get(file);
+		return entry != null && entry.content != null ? entry.content : Files.readAllBytes(file.toPath());
+	}
+
+	/**
+	 * Gets the contents of a visible file kept in memory.
+	 * @param relativePath - path relative to the folders
+	 * @return contents or null if the file is read from disk or does not exist
+	 */
+	public byte[] getContent(final String relativePath) {
+		Entry entry = files.get(relativePath.replace('/', File.separatorChar));
+		return entry == null ? null : entry.content;
+	}
+
+	/**
+	 * Gets the folder a visible file comes from.
+	 * @param relativePath - path relative to the folders
+	 * @return folder or null if no folder contains the file
+	 */
+	public File getRoot(final String relativePath) {
+		Entry entry = files.get(relativePath.replace('/', File.separatorChar));
+		return entry == null ? null : entry.root;
+	}
+
+	private void list(final File file, final String rootPath, final File root) {
+		if (file.isDirectory()) {
+			String[] names = file.list();
+			if (names == null) {
+				return;
+			}
+			Arrays.sort(names);
+			for (String name : names) {
+				list(new File(file, name), rootPath, root);
+			}
+		} else if (file.getAbsolutePath().startsWith(rootPath)) {
+			add(new Entry(file.getAbsolutePath().substring(rootPath.length()), file.getAbsoluteFile(), root, null));
+		}
+	}
+
+	private void add(final Entry entry) {
+		files.put(entry.path, entry);
+		listed.put(entry.file, entry);
+	}
+
+	/**
+	 * File and the folder it was found in.
+	 */
+	private static final class Entry {
+
+		/**
+		 * Path relative to the folder.
+		 */
+		private final String path;
+		private final File file, root;
+		/**
+		 * Contents of a file from an archive, null if read from disk.
+		 */
+		private final byte[] content;
+
+		Entry(final String path, final File file, final File root, final byte[] content) {
+			this.path = path;
+			this.file = file;
+			this.root = root;
+			this.content = content;
+		}
+	}
+}
@@ -1,145 +1,194 @@
-package ee.ttu.java.studenttester.classes;
-
-import static ee.ttu.java.studenttester.enums.StudentPolicy.*;
-import ee.ttu.java.studenttester.enums.StudentPolicy;
-import ee.ttu.java.studenttester.interfaces.IStudentPolicy;
-
-import java.security.Permission;
-import java.util.*;
-
-import static ee.ttu.java.studenttester.classes.StudentLogger.log;
-
-public class StudentSecurity {
-
-    private static final StudentSecurity instance = new StudentSecurity();
-    /**
-     * Stores the original security manager.
-     */
-    private static final SecurityManager defaultSecurityManager = System.getSecurityManager();
-    /**
-     * Stores classes that are subject to checks.
-     */
-    private static final Set<Class> classBlacklist = new HashSet<>();
-    /**
-     * Stores filenames that are "protected" (files with these names cannot be read or written to).
-     */
-    private static final Set<String> protectedFiles = new HashSet<>();
-    /**
-     * Restores the original security manager and clears all variables.
-     */
-    public void restoreSecurityManager() {
-        log("Restoring original SecurityManager and clearing policies.");
-        this.getClasses().clear();
-        this.getCurrentPolicies().clear();
-        this.getProtectedFiles().clear();
-        System.setSecurityManager(defaultSecurityManager);
-    }
-    /**
-     * Sets the new security manager.
-     */
-    public void setCustomSecurityManager() {
-        log("Setting custom SecurityManager, enabled policies: " + policies);
-        System.setSecurityManager(securityManager);
-    }
-
-    /**
-     * Sets the default restrictions.
-     */
-    public void setDefaultRestrictions() {
-        addPolicy(DISABLE_EXIT);
-        addPolicy(DISABLE_ANY_FILE_MATCHER);
-        addPolicy(DISABLE_SECURITYMANAGER_CHANGE);
-        addPolicy(DISABLE_REFLECTION_SHALLOW);
-        addPolicy(DISABLE_EXECUTION);
-        addPolicy(DISABLE_TEST_SNIFFING);
-    }
-
-    /**
-     * The custom security manager.
-     */
-    private static final SecurityManager securityManager = new SecurityManager() {
-
-        /**
-         * Decides whether to allow an action or not based on the current active policies, blacklisted classes
-         * and the current execution stack. If any of the blacklisted classes are present in the stack, it can be
-         * presumed that the action originates from that class.
-         * @param permission
-         */
-        public void checkPermission(final Permission permission) {
-            List<Class> stack = Arrays.asList(getClassContext());
-            // if no blacklisted classes are in the stack
-            if (Collections.disjoint(stack, classBlacklist)) {
-                // allow everything
-                return;
-            }
-            // if testing with an empty object via API, throw an exception
-            // is this safe?
-            if (permission == null) {
-                throw new SecurityException("Security check failed.");
-            }
-            // log(String.format("Attempting: %s",  permission.toString()));
-            // else iterate over all active policies and call their respective methods
-            for (IStudentPolicy policy : policies) {
-                try {
-                    policy.getConsumer().accept(permission, stack);
-                } catch (Exception e) {
-                    // Illegal attempt caught, log an error or do smth
-                    log(String.format("Illegal attempt caught: %s",  permission.toString()));
-                    throw e;
-                }
-
-            }
-        }
-    };
-
-    public void addPolicy(IStudentPolicy policy) {
-        policies.add(policy);
-    }
-    public void removePolicy(IStudentPolicy policy) {
-        policies.remove(policy);
-    }
-    public void addProtectedFile(String filename) {
-        protectedFiles.add(filename);
-    }
-    public void removeProtectedFile(String filename) {
-        protectedFiles.remove(filename);
-    }
-    public void addClass(Class clazz) {
-        classBlacklist.add(clazz);
-    }
-    public void removeClass(Class clazz) {
-        classBlacklist.remove(clazz);
-    }
-    public Set<IStudentPolicy> getCurrentPolicies() {
-        return policies;
-    }
-
-    public Set<Class> getClasses() {
-        return classBlacklist;
-    }
-    public Set<String> getProtectedFiles() {
-        return protectedFiles;
-    }
-    /**
-     * Holds all the functions responsible for checking various permissions.
-     */
-    private static Set<IStudentPolicy> policies = new HashSet<>();
-
-    private StudentSecurity() {
-
-    }
-
-    /**
-     * Returns the singleton of this class if the security manager has not been changed or the caller is allowed to
-     * access this instance.
-     * @return the singleton of this class, if the action was allowed
-     */
-    public static StudentSecurity getInstance() {
-        // if the security manager has been changed, see if the caller is allowed to access it
-        if (securityManager.equals(System.getSecurityManager())) {
-            System.getSecurityManager().checkPermission(null);
-        }
-        return instance;
-    }
-
-}
\ No newline at end of file
+package ee.ttu.java.studenttester.classes;
+
+import static ee.ttu.java.studenttester.enums.StudentPolicy.*;
+import ee.ttu.java.studenttester.enums.StudentPolicy;
+import ee.ttu.java.studenttester.interfaces.IStudentPolicy;
+
+import java.security.Permission;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+public class StudentSecurity {
+
+    /**
+     * Instance used outside of test runs.
+     */
+    private static final StudentSecurity instance = new StudentSecurity();
+    /**
+     * Stores the original security manager.
+     */
+    private static final SecurityManager defaultSecurityManager = System.getSecurityManager();
+    /**
+     * Instances whose restrictions are currently enforced, one per running test run.
+     */
+    private static final Set<StudentSecurity> activeInstances = new CopyOnWriteArraySet<>();
+    /**
+     * Instance whose policies are being evaluated by the current thread.
+     */
+    private static final ThreadLocal<StudentSecurity> evaluatedInstance = new ThreadLocal<>();
+    /**
+     * Stores classes that are subject to checks.
+     */
+    private final Set<Class> classBlacklist = ConcurrentHashMap.newKeySet();
+    /**
+     * Stores filenames that are "protected" (files with these names cannot be read or written to).
+     */
+    private final Set<String> protectedFiles = ConcurrentHashMap.newKeySet();
+    /**
+     * Holds all the functions responsible for checking various permissions.
+     */
+    private final Set<IStudentPolicy> policies = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Restores the original security manager and clears all variables.
+     * The security manager is restored only if no other test run is using it.
+     */
+    public void restoreSecurityManager() {
+        log("Restoring original SecurityManager and clearing policies.");
+        synchronized (activeInstances) {
+            activeInstances.remove(this);
+            this.getClasses().clear();
+            this.getCurrentPolicies().clear();
+            this.getProtectedFiles().clear();
+            if (activeInstances.isEmpty()) {
+                System.setSecurityManager(defaultSecurityManager);
+            }
+        }
+    }
+    /**
+     * Sets the new security manager.
+     */
+    public void setCustomSecurityManager() {
+        log("Setting custom SecurityManager, enabled policies: " + policies);
+        synchronized (activeInstances) {
+            activeInstances.add(this);
+            if (System.getSecurityManager() != securityManager) {
+                System.setSecurityManager(securityManager);
+            }
+        }
+    }
+
+    /**
+     * Sets the default restrictions.
+     */
+    public void setDefaultRestrictions() {
+        addPolicy(DISABLE_EXIT);
+        addPolicy(DISABLE_ANY_FILE_MATCHER);
+        addPolicy(DISABLE_SECURITYMANAGER_CHANGE);
+        addPolicy(DISABLE_REFLECTION_SHALLOW);
+        addPolicy(DISABLE_EXECUTION);
+        addPolicy(DISABLE_TEST_SNIFFING);
+    }
+
+    /**
+     * The custom security manager.
+     */
+    private static final SecurityManager securityManager = new SecurityManager() {
+
+        /**
+         * Decides whether to allow an action or not based on the current active policies, blacklisted classes
+         * and the current execution stack. If any of the blacklisted classes are present in the stack, it can be
+         * presumed that the action originates from that class. Every running test run is checked separately
+         * with its own policies.
+         * @param permission
+         */
+        public void checkPermission(final Permission permission) {
+            List<Class> stack = Arrays.asList(getClassContext());
+            for (StudentSecurity inst : activeInstances) {
+                // if no blacklisted classes are in the stack
+                if (Collections.disjoint(stack, inst.classBlacklist)) {
+                    // allow everything
+                    continue;
+                }
+                // if testing with an empty object via API, throw an exception
+                // is this safe?
+                if (permission == null) {
+                    throw new SecurityException("Security check failed.");
+                }
+                // log(String.format("Attempting: %s",  permission.toString()));
+                // else iterate over all active policies and call their respective methods
+                StudentSecurity previous = evaluatedInstance.get();
+                evaluatedInstance.set(inst);
+                try {
+                    for (IStudentPolicy policy : inst.policies) {
+                        try {
+                            policy.getConsumer().accept(permission, stack);
+                        } catch (Exception e) {
+                            // Illegal attempt caught, log an error or do smth
+                            log(String.format("Illegal attempt caught: %s",  permission.toString()));
+                            throw e;
+                        }
+                    }
+                } finally {
+                    evaluatedInstance.set(previous);
+                }
+            }
+        }
+    };
+
+    public void addPolicy(IStudentPolicy policy) {
+        policies.add(policy);
+    }
+    public void removePolicy(IStudentPolicy policy) {
+        policies.remove(policy);
+    }
+    public void addProtectedFile(String filename) {
+        protectedFiles.add(filename);
+    }
+    public void removeProtectedFile(String filename) {
+        protectedFiles.remove(filename);
+    }
+    public void addClass(Class clazz) {
+        classBlacklist.add(clazz);
+    }
+    public void removeClass(Class clazz) {
+        classBlacklist.remove(clazz);
+    }
+    public Set<IStudentPolicy> getCurrentPolicies() {
+        return policies;
+    }
+
+    public Set<Class> getClasses() {
+        return classBlacklist;
+    }
+    public Set<String> getProtectedFiles() {
+        return protectedFiles;
+    }
+
+    private StudentSecurity() {
+
+    }
+
+    /**
+     * Creates a separate instance for a test run.
+     * @return new instance with no restrictions
+     */
+    static StudentSecurity newInstance() {
+        return new StudentSecurity();
+    }
+
+    /**
+     * Returns the instance of the current test run if the security manager has not been changed or the caller
+     * is allowed to access this instance. Inside a policy check, the instance being checked is returned.
+     * @return the instance of the current test run, if the action was allowed
+     */
+    public static StudentSecurity getInstance() {
+        StudentSecurity evaluated = evaluatedInstance.get();
+        if (evaluated != null) {
+            return evaluated;
+        }
+        // if the security manager has been changed, see if the caller is allowed to access it
+        if (securityManager.equals(System.getSecurityManager())) {
+            System.getSecurityManager().checkPermission(null);
+        }
+        GradingContext context = GradingContext.current();
+        if (context != null) {
+            return context.getSecurity();
+        }
+        return instance;
+    }
+
+}
@@ -0,0 +1,146 @@
+package ee.ttu.java.studenttester.classes;
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+
+import ee.ttu.java.studenttester.exceptions.StudentTesterException;
+
+/**
+ * Grades every submission in a folder against the same tests.
+ * Each subfolder or archive of the batch folder is treated as a content root and
+ * the results are written to [output folder]/[subfolder name].json.
+ * @author Andres
+ *
+ */
+public final class StudentTesterBatch {
+
+	private final File batchRoot, outputRoot;
+	private final List<String> arguments;
+	private final int workers;
+	private WorkerPool workerPool;
+
+	/**
+	 * Creates a new batch.
+	 * @param batchRoot - folder containing one content root per submission
+	 * @param outputRoot - folder where the JSON results are written to
+	 * @param arguments - command line arguments for every submission, must contain -testroot
+	 * @param workers - amount of submissions graded at the same time
+	 */
+	public StudentTesterBatch(final File batchRoot, final File outputRoot, final List<String> arguments, final int workers) {
+		this.batchRoot = batchRoot;
+		this.outputRoot = outputRoot;
+		this.arguments = new ArrayList<String>(arguments);
+		this.workers = Math.max(1, workers);
+	}
+
+	/**
+	 * Grades submissions in worker JVMs instead of the current JVM.
+	 * @param workerPool - started pool or null to grade in the current JVM
+	 */
+	public void setWorkerPool(final WorkerPool workerPool) {
+		this.workerPool = workerPool;
+	}
+
+	/**
+	 * Grades all submissions.
+	 * @return amount of submissions that were graded successfully
+	 * @throws StudentTesterException if the batch cannot be started
+	 */
+	public int run() throws StudentTesterException {
+		File[] submissions = batchRoot.listFiles((file) -> file.isDirectory()
+				|| (file.isFile() && SubmissionArchive.isArchive(file.getName())));
+		if (submissions == null) {
+			throw new StudentTesterException("Could not find batch folder: " + batchRoot);
+		}
+		Arrays.sort(submissions);
+		if (!outputRoot.exists() && !outputRoot.mkdirs()) {
+			throw new StudentTesterException("Could not create output folder: " + outputRoot);
+		}
+		File tempBase;
+		try {
+			tempBase = Files.createTempDirectory("testerBatch").toFile();
+		} catch (IOException e) {
+			throw new StudentTesterException("Could not create temporary folder", e);
+		}
+
+		long startTime = System.nanoTime();
+		log(String.format("Grading %d submissions with %d workers", submissions.length, workers));
+		if (workerPool == null) {
+			CompilerService.warmUp();
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (File submission : submissions) {
+			results.add(executor.submit(() -> gradeSubmission(submission, new File(tempBase, submission.getName()))));
+		}
+		executor.shutdown();
+
+		int successful = 0;
+		for (int i = 0; i < submissions.length; i++) {
+			try {
+				if (results.get(i).get()) {
+					successful++;
+				}
+			} catch (Exception e) {
+				log(String.format("Grading %s failed: %s", submissions[i].getName(), e));
+			}
+		}
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			log(e.toString());
+		}
+		StudentHelperClass.deleteFolderLater(tempBase);
+		System.err.format("Graded %d/%d submissions in %d ms\n", successful, submissions.length,
+				(System.nanoTime() - startTime) / 1000000);
+		return successful;
+	}
+
+	/**
+	 * Grades a single submission in the current JVM or in a worker JVM if a pool is set.
+	 * In the current JVM, every submission has its own test run context, temporary folder
+	 * and output streams, so the workers do not interfere with each other.
+	 * @param submission - content root of the submission
+	 * @param tempRoot - temporary folder used only by this submission
+	 * @return true if the tester finished normally
+	 * @throws StudentTesterException if the arguments are invalid or testing fails
+	 * @throws IOException if the results cannot be written
+	 */
+	private boolean gradeSubmission(final File submission, final File tempRoot) throws StudentTesterException, IOException {
+		File output = new File(outputRoot, submission.getName() + ".json");
+		List<String> args = new ArrayList<String>(arguments);
+		args.addAll(Arrays.asList(
+				"-contentroot", submission.getAbsolutePath(),
+				"-temproot", tempRoot.getAbsolutePath()));
+		log("Grading " + submission.getName());
+		if (workerPool != null) {
+			String results = workerPool.grade(args.toArray(new String[args.size()]));
+			if (new JSONObject(results).has("error")) {
+				log(String.format("Grading %s failed: %s", submission.getName(), new JSONObject(results).get("error")));
+				return false;
+			}
+			Files.write(output.toPath(), (results + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+			return true;
+		}
+		args.addAll(Arrays.asList("-jsonfile", output.getAbsolutePath()));
+		StudentTesterMain tester = StudentTesterMain.fromArguments(args.toArray(new String[args.size()]));
+		tester.run();
+		if (!output.exists()) {
+			log(String.format("Grading %s failed, no results were written", submission.getName()));
+			return false;
+		}
+		return true;
+	}
+}
@@ -1,544 +1,1089 @@
-package ee.ttu.java.studenttester.classes;
-import ee.ttu.java.studenttester.exceptions.StudentTesterException;
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-
-import static ee.ttu.java.studenttester.classes.StudentLogger.log;
-
-/**
- *
- * @author Andres Antonen
- *
- */
-public final class StudentTesterMain {
-
-	/**
-	 * Default checkstyle rules for fallback.
-	 */
-	private static final String DEFAULT_CHECKSTYLE_RULES = "/sun_checks.xml";
-	private static boolean isRunning = false;  // current running state
-	private boolean checkstyleEnabled = true,  // is checkstyle used
-			isTestNGEnabled = true,            // is TestNG used
-			isCustomCheckstyleSet = false,     // is custom checkstyle xml set
-			isJsonOutput = false,              // print output to JSON instead
-			muteCodeOutput = true,             // mute code output
-			isQuiet = false;                   // print nothing to stdout if json enabled
-	private String testRootName,             // test root folder pathname
-			contentRootName,                 // content root folder pathname
-			tempRootName,                    // temp folder pathname
-			checkstyleXmlPathName,           // checkstyle xml pathname
-			testNGXmlPathName,               // TestNG xml pathname
-			outputFilename,                  // if not null, output will be written here
-			compilerOptions;                 // string that is passed to the compiler
-	private File testRoot,                   // test root folder object
-			contentRoot,                     // test root folder object
-			tempRoot;                        // temp folder object
-	private JSONObject json;                  // object holding json data
-	private JSONArray singleResults;          // object holding json data for separate tests
-	private StudentSecurity secInstance = StudentSecurity.getInstance();
-
-	/**
-	 * Constructor.
-	 */
-	public StudentTesterMain() {
-		StudentHelperClass.clearRedirectedStdOut(); // delete data from previous session
-		// try to automatically get temp directory
-		this.tempRootName = System.getProperty("java.io.tmpdir");
-		if (tempRootName != null) {
-			this.tempRoot = new File(tempRootName, "testerTemp");
-		}
-	}
-
-	/**
-	 * Creates a tester with minimal arguments.
-	 * @param testRootName - test root folder
-	 * @param contentRootName - student code folder
-	 */
-	public StudentTesterMain(final String testRootName, final String contentRootName) {
-		StudentHelperClass.clearRedirectedStdOut(); // delete data from previous session
-		// try to automatically get temp directory
-		this.testRootName = testRootName;
-		this.contentRootName = contentRootName;
-		this.tempRootName = System.getProperty("java.io.tmpdir");
-		if (tempRootName != null) {
-			this.tempRoot = new File(tempRootName, "testerTemp");
-		}
-		this.testRoot = new File(testRootName);
-		this.contentRoot = new File(contentRootName);
-	}
-
-	/**
-	 * Main entry point.
-	 * @param args - see usage javadoc
-	 */
-	public static void main(String[] args) throws StudentTesterException {
-		if (args.length == 0) {
-			System.err.println(getUsage());
-			System.exit(1);
-		}
-		StudentTesterMain c = new StudentTesterMain();
-		try {
-			for (int i = 0; i < args.length; i++) {
-				// parse arguments and build tester
-				switch (args[i].toLowerCase()) {
-				case "-testroot":
-					if (quickFileCheck(args[i + 1], true)) {
-						c.setTestRootName(args[i + 1]);
-						i++;
-					} else {
-						System.err.println("Could not find test root folder: " + args[i + 1]);
-						System.exit(1);
-					}
-					break;
-				case "-contentroot":
-					if (quickFileCheck(args[i + 1], true)) {
-						c.setContentRootName(args[i + 1]);
-						i++;
-					} else {
-						System.err.println("Could not find content root folder: " + args[i + 1]);
-						System.exit(1);
-					}
-					break;
-				case "-temproot":
-					c.setTempDirectoryName(args[i + 1]);
-					i++;
-					break;
-				case "-jsonfile":
-					c.setOutputFile(args[i + 1]);
-					i++;
-					c.outputJSON(true);
-					break;
-				case "-verbosity":
-					try {
-						int v = Integer.parseInt(args[i + 1]);
-						c.setVerbosity(v);
-						i++;
-					} catch (Exception e) {
-						System.err.println("Could not set verbosity level: " + e.getMessage());
-					}
-					break;
-				case "-nocheckstyle":
-					c.enableCheckstyle(false);
-					break;
-				case "-notestng":
-					c.enableTestNG(false);
-					break;
-				case "-jsonoutput":
-					c.outputJSON(true);
-					break;
-				case "-nomute":
-					c.muteCodeOutput(false);
-					break;
-				case "-checkstylexml":
-					if (quickFileCheck(args[i + 1], false)) {
-						c.setCheckstyleXml(args[i + 1]);
-						i++;
-					} else {
-						System.err.println("Could not find checkstyle xml: " + args[i + 1]);
-					}
-					break;
-				case "-testngxml":
-					if (quickFileCheck(args[i + 1], false)) {
-						c.setTestNGXml(args[i + 1]);
-						i++;
-					} else {
-						System.err.println("Could not find TestNG xml: " + args[i + 1]);
-					}
-					break;
-				case "-javacoptions":
-					c.setCompilerOptions(args[i + 1]);
-					i++;
-					break;
-				default:
-					System.err.println("Unknown argument: " + args[i]);
-					System.err.println(getUsage());
-					System.exit(1);
-				}
-			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			System.err.println(getUsage());
-			System.exit(1);
-		}
-		c.run();
-	}
-
-	/**
-	 * Prints the instruction manual for this tool.
-	 * @return text
-	 */
-	private static String getUsage() {
-		return "Usage:\n"
-				+ "StudentTester -testRoot [path] -contentRoot [path] [options]\n"
-				+ "\nOptions:\n"
-				+ "-tempRoot [path]\tSets the path to the temporary directory, default is system's temp folder\n"
-				+ "-verbosity [level]\tSets the verbosity level, 10 is max, default is 0\n"
-				+ "-nocheckstyle\t\tdisables checkstyle, default is false\n"
-				+ "-notestng\t\tdisables TestNG, default is false\n"
-				+ "-jsonoutput\t\tWrites results to JSON, default is false\n"
-				+ "-jsonfile [path]\tWrites results to JSON file\n"
-				+ "-nomute\t\t\tWrites code output to stderr instead of discarding, default is false\n"
-				+ "-checkstylexml [path]\tSets the path to checkstyle XML file\n"
-				+ "-testngxml [path]\tSets the path to TestNG test configuration\n"
-				+ "-javacoptions [options]\tPasses additional flags to the compiler; multiple flags should be\n"
-				+ "separated with spaces and quoted, e.g -javacoptions \"-Xlint:cast -Xlint:deprecation\""
-				+ "\nNotes:\n"
-				+ "By default XML files are used from testRoot directory.\n"
-				+ "For now, the paths must be absolute.\n";
-	}
-
-	/**
-	 * Checks if the path is a valid file.
-	 * @param path - pathname to the file
-	 * @param shouldBeFolder - whether the path should be folder
-	 * @return true if the path is ok
-	 */
-	private static boolean quickFileCheck(final String path, final boolean shouldBeFolder) {
-		File f = new File(path);
-		if (f.exists() && f.isDirectory()) {
-			if (shouldBeFolder) {
-				return true;
-			}
-			return false;
-		}
-		if (f.exists() && f.isFile()) {
-			if (shouldBeFolder) {
-				return false;
-			}
-			return true;
-		}
-		return false;
-	}
-
-	/**
-	 * Runs the tester with current configuration.
-	 */
-	@SuppressWarnings("deprecation")
-	public final void run() throws StudentTesterException {
-
-		// allow only one instance per JVM
-		if (StudentTesterMain.isRunning) {
-			throw new StudentTesterException("Only one instance of StudentTester should be running at the same time!");
-		}
-		StudentTesterMain.isRunning = true;
-
-		// start measuring time
-		long startTime = System.nanoTime();
-		log("Version: " + StudentHelperClass.getSelfVersion());
-
-		// check if any necessary variables are missing
-		if (StudentHelperClass.checkAnyNull(testRoot, testRootName, tempRoot,
-				tempRootName, contentRoot, contentRootName)) {
-			System.err.println("One or more necessary directories are missing");
-			if (isJsonOutput) {
-				System.out.print("{\"output\": \"Internal error, testing cannot continue.\"}");
-			}
-			System.exit(1);
-		}
-
-		// prepare json object if enabled, copy file contents to json
-		if (isJsonOutput) {
-			json = new JSONObject();
-			singleResults = new JSONArray();
-
-			// copy the content of all .java files to JSON
-			JSONArray sourceList = new JSONArray();
-			JSONArray testSourceList = new JSONArray();
-			List<File> javaCodeFiles = new ArrayList<File>();
-			List<File> javaTestFiles = new ArrayList<File>();
-			StudentHelperClass.populateFiles(contentRoot, javaCodeFiles);
-			StudentHelperClass.populateFiles(testRoot, javaTestFiles);
-			try {
-				for (File f: javaCodeFiles) {
-					String content = new String(Files.readAllBytes(Paths.get(f.getAbsolutePath())), StandardCharsets.UTF_8);
-					log("Adding file " + f.getName() + " to output");
-					sourceList.put(new JSONObject()
-							.put("path", f.getAbsolutePath())
-							.put("content", content)
-							.put("type", "code"));
-				}
-				for (File f: javaTestFiles) {
-					String content = new String(Files.readAllBytes(Paths.get(f.getAbsolutePath())), StandardCharsets.UTF_8);
-					log("Adding file " + f.getName() + " to output");
-					testSourceList.put(new JSONObject()
-							.put("path", f.getAbsolutePath())
-							.put("content", content)
-							.put("type", "test"));
-				}
-			} catch (FileNotFoundException e) {
-				log(e.getMessage());
-			} catch (IOException e) {
-				log(e.getMessage());
-			}
-
-			json.put("source", sourceList);
-			json.put("testSource", testSourceList);
-
-			// TODO: redefine obscure fields
-			json.put("extra", getCheckstyleXmlPath());
-
-			// begin redirecting stdout to a variable so it can be included in json later
-			StudentHelperClass.redirectStdOut();
-		}
-
-		System.out.format("TEST RESULTS\n\n");
-
-		// run checkstyle
-		if (checkstyleEnabled) {
-			CheckstyleRunner checkstyle = new CheckstyleRunner(getCheckstyleXmlPath(), contentRoot, isJsonOutput, singleResults);
-			checkstyle.run();
-		}
-
-		System.out.print("\n\n");
-
-		// run TestNG
-		if (isTestNGEnabled) {
-			try {
-				StudentHelperClass.deleteFolder(tempRoot);
-				StudentHelperClass.copyFolder(contentRoot, tempRoot);
-				StudentHelperClass.copyFolder(testRoot, tempRoot);
-
-				List<String> testFilenames = new ArrayList<String>();
-				StudentHelperClass.populateFilenames(testRoot, testFilenames, true);
-
-				// compile tests
-				CompilerRunner compiler = new CompilerRunner(testFilenames, tempRoot, testRoot);
-				compiler.addOptions(compilerOptions);
-				compiler.compileSeparately(true);
-				if (compiler.run()) {
-					TestNGRunner testng = new TestNGRunner(tempRoot, testRoot, contentRoot, isJsonOutput);
-					if (isJsonOutput) {
-						testng.setJsonVars(json, singleResults);
-					}
-					testng.setMuteCodeOutput(muteCodeOutput);
-					testng.setTestNGXmlPathName(testNGXmlPathName);
-					testng.run();
-				}
-			} catch (SecurityException e) {
-				System.out.println("Testing was aborted due to an illegal statement. Remove the statement to continue.");
-			} catch (NoClassDefFoundError e) {
-				log(e.toString());
-				System.out.println("Could not run one or more classes. "
-						+ "Please check if the folder structure matches package definitions.");
-			} catch (Exception e) {
-				log(e.toString());
-				e.printStackTrace();
-				System.out.println("Internal error, cannot continue.");
-			} finally {
-				secInstance.restoreSecurityManager();
-				StudentTesterAPI.setApiEnabled(false);
-			}
-		}
-
-		if (!isTestNGEnabled && !checkstyleEnabled) {
-			System.out.println("Nothing to run.");
-		}
-
-		StudentHelperClass.restoreStdOut();
-		// print out json results
-		if (isJsonOutput) {
-			try {
-				json.put("output", StudentHelperClass.getStdout().toString("UTF-8"));
-			} catch (UnsupportedEncodingException e) {
-				log("UTF-8 decoding failed: " + e.getMessage());
-				json.put("output", StudentHelperClass.getStdout().toString());
-			}
-			json.put("results", singleResults);
-			if (!isQuiet) {
-				if (outputFilename != null) {
-					try (PrintWriter out = new PrintWriter(
-							new OutputStreamWriter(new FileOutputStream(outputFilename), StandardCharsets.UTF_8))) {
-						out.println(json.toString());
-					} catch (FileNotFoundException e) {
-						log(e.getMessage());
-					}
-				} else {
-					System.out.println(json.toString());
-				}
-			}
-		}
-		StudentHelperClass.deleteFolder(tempRoot);
-
-		// if any unit tests are still alive, kill them ungracefully to enable the program to exit
-		Set<Thread> threadSet = Thread.getAllStackTraces().keySet();
-		for (Thread t : threadSet) {
-			// the name might change!!!!
-			if (t.getName().startsWith("TestNG")) {
-				log(String.format("Warning: attempting to kill stuck thread %s, consider "
-						+ "making the method exit on InterruptedException", t.getName()));
-				t.stop();
-			}
-		}
-
-		log("Finished. Run time in ms: " + (System.nanoTime() - startTime) / 1000000);
-		StudentTesterMain.isRunning = false;
-	}
-
-	/**
-	 * Enables or disables checkstyle.
-	 * @param value - disable if false
-	 */
-	public final void enableCheckstyle(final boolean value) {
-		this.checkstyleEnabled = value;
-	}
-
-	/**
-	 * Enables or disables TestNG.
-	 * @param value - disable if false
-	 */
-	public final void enableTestNG(final boolean value) {
-		this.isTestNGEnabled = value;
-	}
-
-	/**
-	 * Returns a path to checkstyle rules whether one is set or not.
-	 * @return current valid checkstyle path
-	 */
-	private String getCheckstyleXmlPath() {
-		if (isCustomCheckstyleSet) {
-			return checkstyleXmlPathName;
-		} else {
-			File xml = new File(testRoot.getPath() + "/checkstyle.xml");
-			if (xml.exists() && xml.isFile()) {
-				return xml.getPath();
-			}
-			log("Checkstyle XML not found in root, falling back to default rules");
-		}
-		return DEFAULT_CHECKSTYLE_RULES;
-	}
-
-	/**
-	 * Sets the checkstyle xml file, if the path is correct.
-	 * @param xmlPath - path to xml
-	 */
-	public final void setCheckstyleXml(final String xmlPath) {
-		File xml = new File(xmlPath);
-		if (xml.exists() && !xml.isDirectory()) {
-			this.checkstyleXmlPathName = xmlPath;
-			isCustomCheckstyleSet = true;
-			log("Checkstyle XML set successfully");
-		} else {
-			log("Checkstyle XML not found");
-		}
-	}
-
-	/**
-	 * Sets the content root filename.
-	 * @param contentRootName - path to content root
-	 */
-	public final void setContentRootName(final String contentRootName) {
-		this.contentRootName = contentRootName;
-		this.contentRoot = new File(contentRootName);
-	}
-
-	/**
-	 * Sets the temporary folder name.
-	 * @param tempDirectoryName - path to temp folder
-	 */
-	public final void setTempDirectoryName(final String tempDirectoryName) {
-		this.tempRootName = tempDirectoryName;
-		this.tempRoot = new File(tempDirectoryName);
-	}
-
-	/**
-	 * Sets the TestNG xml file, if the path is correct.
-	 * @param xmlPath - path to xml
-	 */
-	public final void setTestNGXml(final String xmlPath) {
-		File xml = new File(xmlPath);
-		if (xml.exists() && !xml.isDirectory()) {
-			this.testNGXmlPathName = xmlPath;
-		} else {
-			log("TestNG XML not found");
-		}
-	}
-
-	/**
-	 * Sets the test folder name.
-	 * @param testRootName - path to test folder
-	 */
-	public final void setTestRootName(final String testRootName) {
-		this.testRootName = testRootName;
-		this.testRoot = new File(testRootName);
-	}
-
-	/**
-	 * Sets the verbosity of the project.
-	 * TestNG has levels 1-10, this project has less.
-	 * @param verbosity - verbosity level
-	 */
-	public final void setVerbosity(final int verbosity) {
-		StudentLogger.setVerbosity(verbosity);
-	}
-
-	/**
-	 * Output JSON instead of normal strings.
-	 * @param value
-	 */
-	public final void outputJSON(final boolean value) {
-		this.isJsonOutput = value;
-	}
-
-	/**
-	 * Disables stdout to suppress students' debug messages.
-	 * @param value
-	 */
-	public final void muteCodeOutput(final boolean value) {
-		this.muteCodeOutput = value;
-	}
-
-	/**
-	 * Sets the quiet state, if JSON output is enabled.
-	 * @param quiet state
-	 */
-	public final void setQuiet(final boolean quiet) {
-		if (isJsonOutput) {
-			this.isQuiet = quiet;
-		} else {
-			log("Quiet setting not set since json is not enabled.");
-		}
-	}
-
-	/**
-	 * Returns the json of this instance.
-	 * @return json
-	 */
-	public final String getJson() {
-		if (json != null) {
-			return json.toString();
-		}
-		return null;
-	}
-
-	/**
-	 * Sets the output file path.
-	 * @param filename where the file will be written to
-	 */
-	public final void setOutputFile(final String filename) {
-		this.outputFilename = filename;
-	}
-
-	/**
-	 * Gets the compiler options.
-	 * @return information to be passed to the compiler
-	 */
-	public final String getCompilerOptions() {
-		return this.compilerOptions;
-	}
-
-	/**
-	 * Sets the compiler options.
-	 * @param options - information to be passed to the compiler
-	 */
-	public final void setCompilerOptions(final String options) {
-		this.compilerOptions = options;
-	}
-
-}
+package ee.ttu.java.studenttester.classes;
+import ee.ttu.java.studenttester.enums.CompilerBackend;
+import ee.ttu.java.studenttester.enums.ParallelMode;
+import ee.ttu.java.studenttester.exceptions.StudentTesterException;
+import ee.ttu.java.studenttester.interfaces.ICompilerBackend;
+import ee.ttu.java.studenttester.listeners.TimeoutWatchdog;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+/**
+ *
+ * @author Andres Antonen
+ *
+ */
+public final class StudentTesterMain {
+
+	/**
+	 * Default checkstyle rules for fallback.
+	 */
+	private static final String DEFAULT_CHECKSTYLE_RULES = "/sun_checks.xml";
+	private boolean checkstyleEnabled = true,  // is checkstyle used
+			isTestNGEnabled = true,            // is TestNG used
+			isCustomCheckstyleSet = false,     // is custom checkstyle xml set
+			isJsonOutput = false,              // print output to JSON instead
+			muteCodeOutput = true,             // mute code output
+			diskWorkspace = false,             // copy files to temp folder instead of compiling in memory
+			keepOutputTail = true,             // keep the end of captured output as well as the beginning
+			spillOutput = false,               // keep captured output in a temp file instead of memory
+			isQuiet = false;                   // print nothing to stdout if json enabled
+	private String testRootName,             // test root folder pathname
+			contentRootName,                 // content root folder pathname
+			tempRootName,                    // temp folder pathname
+			checkstyleXmlPathName,           // checkstyle xml pathname
+			testNGXmlPathName,               // TestNG xml pathname
+			outputFilename,                  // if not null, output will be written here
+			compilerOptions,                 // string that is passed to the compiler
+			compileCacheName,                // folder of the compiler result cache, null if not used
+			eventsName;                      // file for live events, - for stdout, null if not used
+	private Writer eventWriter;              // target for live events given by the caller
+	private int compileCacheSize = CompileCache.DEFAULT_SIZE; // cache size in MB
+	private long maxOutput = CaptureBuffer.DEFAULT_LIMIT; // captured output limit in bytes
+	private String jsonResult;               // JSON of the latest quiet run
+	private ICompilerBackend compilerBackend = CompilerBackend.JAVAC; // compiler used for tests
+	private ParallelMode parallelMode = ParallelMode.NONE; // how test classes and methods run in parallel
+	private int threadCount = Runtime.getRuntime().availableProcessors(); // threads for parallel tests
+	private long testTimeout = TimeoutWatchdog.DEFAULT_TEST_TIMEOUT; // time limit of a unit test in ms
+	private long suiteTimeout = TimeoutWatchdog.DEFAULT_SUITE_TIMEOUT; // time limit of all unit tests in ms
+	private File testRoot,                   // test root folder object
+			contentRoot,                     // test root folder object
+			tempRoot;                        // temp folder object
+	private GradingContext context;           // state of the latest run
+
+	/**
+	 * Constructor.
+	 */
+	public StudentTesterMain() {
+		// try to automatically get temp directory
+		this.tempRootName = System.getProperty("java.io.tmpdir");
+		if (tempRootName != null) {
+			this.tempRoot = new File(tempRootName, "testerTemp");
+		}
+	}
+
+	/**
+	 * Creates a tester with minimal arguments.
+	 * @param testRootName - test root folder
+	 * @param contentRootName - student code folder
+	 */
+	public StudentTesterMain(final String testRootName, final String contentRootName) {
+		// try to automatically get temp directory
+		this.testRootName = testRootName;
+		this.contentRootName = contentRootName;
+		this.tempRootName = System.getProperty("java.io.tmpdir");
+		if (tempRootName != null) {
+			this.tempRoot = new File(tempRootName, "testerTemp");
+		}
+		this.testRoot = new File(testRootName);
+		this.contentRoot = new File(contentRootName);
+	}
+
+	/**
+	 * Main entry point.
+	 * @param args - see usage javadoc
+	 */
+	public static void main(String[] args) throws StudentTesterException {
+		if (args.length == 0) {
+			System.err.println(getUsage());
+			System.exit(1);
+		}
+		List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		// worker mode, requests come from the worker pool of another JVM
+		if (arguments.contains("-worker")) {
+			WorkerPool.runWorker();
+			return;
+		}
+		// options for server and batch mode
+		WorkerPool pool = null;
+		int workers = Runtime.getRuntime().availableProcessors();
+		try {
+			String workersOption = takeOption(arguments, "-workers");
+			String recycleOption = takeOption(arguments, "-recycle");
+			String maxHeapOption = takeOption(arguments, "-maxheap");
+			if (workersOption != null) {
+				workers = Integer.parseInt(workersOption);
+			}
+			if (arguments.remove("-isolate")) {
+				pool = new WorkerPool(workers,
+						recycleOption == null ? WorkerPool.DEFAULT_MAX_JOBS : Integer.parseInt(recycleOption),
+						maxHeapOption == null ? WorkerPool.DEFAULT_MAX_HEAP : Integer.parseInt(maxHeapOption));
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number: " + e.getMessage());
+			System.exit(1);
+		}
+		// server mode, the rest of the arguments are used as defaults for every request
+		int serverIndex = arguments.indexOf("-server");
+		if (serverIndex > -1) {
+			int port = StudentTesterServer.DEFAULT_PORT;
+			arguments.remove(serverIndex);
+			if (serverIndex < arguments.size() && arguments.get(serverIndex).matches("\\d+")) {
+				port = Integer.parseInt(arguments.remove(serverIndex));
+			}
+			try {
+				StudentTesterServer server = new StudentTesterServer(port, arguments);
+				server.bind();
+				if (pool != null) {
+					pool.start();
+					server.setWorkerPool(pool);
+				}
+				System.err.println("StudentTester listening on port " + server.getPort());
+				server.serve();
+			} catch (IOException e) {
+				System.err.println("Could not start server: " + e.getMessage());
+				System.exit(1);
+			} finally {
+				if (pool != null) {
+					pool.close();
+				}
+			}
+			return;
+		}
+		// batch mode, the rest of the arguments are used for every submission
+		String batchRootName = takeOption(arguments, "-batch");
+		if (batchRootName != null) {
+			String outputName = takeOption(arguments, "-batchoutput");
+			try {
+				StudentTesterBatch batch = new StudentTesterBatch(new File(batchRootName),
+						new File(outputName == null ? batchRootName : outputName), arguments, workers);
+				if (pool != null) {
+					pool.start();
+					batch.setWorkerPool(pool);
+				}
+				batch.run();
+			} catch (StudentTesterException | IOException e) {
+				System.err.println(e.getMessage());
+				System.exit(1);
+			} finally {
+				if (pool != null) {
+					pool.close();
+				}
+			}
+			return;
+		}
+		// the worker pool options were taken out above and mean nothing to a single run
+		if (arguments.size() < args.length) {
+			System.err.println("-workers, -recycle, -maxheap and -isolate can only be used with -server or -batch");
+			System.exit(1);
+		}
+		StudentTesterMain c = null;
+		try {
+			c = fromArguments(arguments.toArray(new String[arguments.size()]));
+		} catch (StudentTesterException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		try {
+			c.run();
+		} catch (StudentTesterException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Removes an option and its value from the argument list.
+	 * @param arguments - list of arguments
+	 * @param option - option name
+	 * @return value of the option or null if the option is missing
+	 */
+	private static String takeOption(final List<String> arguments, final String option) {
+		int index = arguments.indexOf(option);
+		if (index < 0 || index + 1 >= arguments.size()) {
+			return null;
+		}
+		arguments.remove(index);
+		return arguments.remove(index);
+	}
+
+	/**
+	 * Builds a tester from command line arguments.
+	 * @param args - see usage javadoc
+	 * @return tester configured with the arguments
+	 * @throws StudentTesterException if the arguments are invalid
+	 */
+	public static StudentTesterMain fromArguments(final String[] args) throws StudentTesterException {
+		StudentTesterMain c = new StudentTesterMain();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				// parse arguments and build tester
+				switch (args[i].toLowerCase()) {
+				case "-testroot":
+					if (quickFileCheck(args[i + 1], true)) {
+						c.setTestRootName(args[i + 1]);
+						i++;
+					} else {
+						throw new StudentTesterException("Could not find test root folder: " + args[i + 1]);
+					}
+					break;
+				case "-contentroot":
+					if (quickFileCheck(args[i + 1], true) || SubmissionArchive.STDIN.equals(args[i + 1])
+							|| (SubmissionArchive.isArchive(args[i + 1]) && quickFileCheck(args[i + 1], false))) {
+						c.setContentRootName(args[i + 1]);
+						i++;
+					} else {
+						throw new StudentTesterException("Could not find content root folder: " + args[i + 1]);
+					}
+					break;
+				case "-temproot":
+					c.setTempDirectoryName(args[i + 1]);
+					i++;
+					break;
+				case "-events":
+					c.setEventsName(args[i + 1]);
+					i++;
+					break;
+				case "-jsonfile":
+					c.setOutputFile(args[i + 1]);
+					i++;
+					c.outputJSON(true);
+					break;
+				case "-verbosity":
+					try {
+						int v = Integer.parseInt(args[i + 1]);
+						c.setVerbosity(v);
+						i++;
+					} catch (Exception e) {
+						System.err.println("Could not set verbosity level: " + e.getMessage());
+					}
+					break;
+				case "-nocheckstyle":
+					c.enableCheckstyle(false);
+					break;
+				case "-notestng":
+					c.enableTestNG(false);
+					break;
+				case "-jsonoutput":
+					c.outputJSON(true);
+					break;
+				case "-nomute":
+					c.muteCodeOutput(false);
+					break;
+				case "-diskworkspace":
+					c.useDiskWorkspace(true);
+					break;
+				case "-parallel":
+					try {
+						c.setParallelMode(ParallelMode.valueOf(args[i + 1].toUpperCase()));
+						i++;
+					} catch (IllegalArgumentException e) {
+						throw new StudentTesterException("Unknown parallel mode: " + args[i + 1]);
+					}
+					break;
+				case "-threads":
+					try {
+						c.setThreadCount(Integer.parseInt(args[i + 1]));
+						i++;
+					} catch (NumberFormatException e) {
+						throw new StudentTesterException("Invalid thread count: " + args[i + 1]);
+					}
+					if (c.threadCount < 1) {
+						throw new StudentTesterException("Invalid thread count: " + args[i + 1]);
+					}
+					break;
+				case "-testtimeout":
+					try {
+						c.setTestTimeout(Long.parseLong(args[i + 1]));
+						i++;
+					} catch (NumberFormatException e) {
+						throw new StudentTesterException("Invalid test timeout: " + args[i + 1]);
+					}
+					if (c.testTimeout < 0) {
+						throw new StudentTesterException("Invalid test timeout: " + args[i + 1]);
+					}
+					break;
+				case "-suitetimeout":
+					try {
+						c.setSuiteTimeout(Long.parseLong(args[i + 1]));
+						i++;
+					} catch (NumberFormatException e) {
+						throw new StudentTesterException("Invalid suite timeout: " + args[i + 1]);
+					}
+					if (c.suiteTimeout < 0) {
+						throw new StudentTesterException("Invalid suite timeout: " + args[i + 1]);
+					}
+					break;
+				case "-maxoutput":
+					try {
+						c.setMaxOutput(Long.parseLong(args[i + 1]) * 1024);
+						i++;
+					} catch (NumberFormatException e) {
+						throw new StudentTesterException("Invalid output limit: " + args[i + 1]);
+					}
+					break;
+				case "-nooutputtail":
+					c.keepOutputTail(false);
+					break;
+				case "-spilloutput":
+					c.spillOutput(true);
+					break;
+				case "-compiler":
+					try {
+						c.setCompilerBackend(CompilerBackend.valueOf(args[i + 1].toUpperCase()));
+						i++;
+					} catch (IllegalArgumentException e) {
+						throw new StudentTesterException("Unknown compiler: " + args[i + 1]);
+					}
+					if (c.compilerBackend.getCompiler() == null) {
+						throw new StudentTesterException("Compiler is not available: " + args[i]);
+					}
+					break;
+				case "-compilecache":
+					c.setCompileCache(args[i + 1]);
+					i++;
+					break;
+				case "-compilecachesize":
+					try {
+						c.setCompileCacheSize(Integer.parseInt(args[i + 1]));
+						i++;
+					} catch (NumberFormatException e) {
+						throw new StudentTesterException("Invalid compile cache size: " + args[i + 1]);
+					}
+					break;
+				case "-checkstylexml":
+					if (quickFileCheck(args[i + 1], false)) {
+						c.setCheckstyleXml(args[i + 1]);
+						i++;
+					} else {
+						System.err.println("Could not find checkstyle xml: " + args[i + 1]);
+					}
+					break;
+				case "-testngxml":
+					if (quickFileCheck(args[i + 1], false)) {
+						c.setTestNGXml(args[i + 1]);
+						i++;
+					} else {
+						System.err.println("Could not find TestNG xml: " + args[i + 1]);
+					}
+					break;
+				case "-javacoptions":
+					c.setCompilerOptions(args[i + 1]);
+					i++;
+					break;
+				default:
+					throw new StudentTesterException("Unknown argument: " + args[i] + "\n" + getUsage());
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new StudentTesterException(getUsage());
+		}
+		return c;
+	}
+
+	/**
+	 * Prints the instruction manual for this tool.
+	 * @return text
+	 */
+	private static String getUsage() {
+		return "Usage:\n"
+				+ "StudentTester -testRoot [path] -contentRoot [path] [options]\n"
+				+ "The content root may also be a zip, jar or tar(.gz) archive, or - to read one from standard input\n"
+				+ "\nOptions:\n"
+				+ "-tempRoot [path]\tSets the folder run workspaces are created in, default is testerTemp in system's temp folder\n"
+				+ "-verbosity [level]\tSets the verbosity level, 10 is max, default is 0\n"
+				+ "-nocheckstyle\t\tdisables checkstyle, default is false\n"
+				+ "-notestng\t\tdisables TestNG, default is false\n"
+				+ "-jsonoutput\t\tWrites results to JSON, default is false\n"
+				+ "-jsonfile [path]\tWrites results to JSON file\n"
+				+ "-events [path]\t\tWrites live progress events as JSON lines to the file, - for stdout\n"
+				+ "-nomute\t\t\tWrites code output to stderr instead of discarding, default is false\n"
+				+ "-parallel [mode]\tRuns tests in parallel: none (default), classes or methods; "
+				+ "test classes may override it with @TestContextConfiguration\n"
+				+ "-threads [count]\tAmount of threads running tests in parallel, default is the CPU count\n"
+				+ "-testtimeout [ms]\tTime limit of a unit test, 0 for none, default is "
+				+ TimeoutWatchdog.DEFAULT_TEST_TIMEOUT + "; tests may set their own with @Gradeable\n"
+				+ "-suitetimeout [ms]\tTime limit of all unit tests together, 0 for none, default is "
+				+ TimeoutWatchdog.DEFAULT_SUITE_TIMEOUT + "\n"
+				+ "-maxoutput [KB]\t\tLimit of captured code output, the middle part of longer output is left out, "
+				+ "default is " + CaptureBuffer.DEFAULT_LIMIT / 1024 + "\n"
+				+ "-nooutputtail\t\tLeaves out the end of output over the limit instead of the middle part\n"
+				+ "-spilloutput\t\tKeeps captured output over 256 KB in a file in the temporary folder instead of memory\n"
+				+ "-diskworkspace\t\tCopies code and tests to the temporary directory and compiles there "
+				+ "instead of in memory, default is false\n"
+				+ "-compiler [name]\tCompiler to use: javac (default) or ecj, which must be on the classpath;\n"
+				+ "ecj compiles classes with errors too, only the tests using the broken code fail\n"
+				+ "-compileCache [path]\tKeeps compiler results in the folder and reuses them when the sources "
+				+ "have not changed\n"
+				+ "-compileCacheSize [MB]\tSize limit of the compiler result cache, default is "
+				+ CompileCache.DEFAULT_SIZE + "\n"
+				+ "-checkstylexml [path]\tSets the path to checkstyle XML file\n"
+				+ "-testngxml [path]\tSets the path to TestNG test configuration\n"
+				+ "-javacoptions [options]\tPasses additional flags to the compiler; multiple flags should be\n"
+				+ "separated with spaces and quoted, e.g -javacoptions \"-Xlint:cast -Xlint:deprecation\"\n"
+				+ "-server [port]\t\tKeeps running and grades requests sent to a local port, default is "
+				+ StudentTesterServer.DEFAULT_PORT + ";\n"
+				+ "other options given with -server are used as defaults for every request\n"
+				+ "-batch [path]\t\tGrades every subfolder of the path as a separate content root\n"
+				+ "-batchoutput [path]\tFolder for batch results, one JSON file per submission, default is the batch folder\n"
+				+ "-workers [count]\tAmount of submissions graded in parallel in batch mode or worker JVMs with -isolate, "
+				+ "default is the CPU count\n"
+				+ "-isolate\t\tGrades server and batch submissions in separate worker JVMs that are reused\n"
+				+ "-recycle [count]\tAmount of submissions a worker JVM grades before it is replaced, default is "
+				+ WorkerPool.DEFAULT_MAX_JOBS + "\n"
+				+ "-maxheap [MB]\t\tHeap usage after which a worker JVM is replaced, default is "
+				+ WorkerPool.DEFAULT_MAX_HEAP + "\n"
+				+ "\nNotes:\n"
+				+ "By default XML files are used from testRoot directory.\n"
+				+ "For now, the paths must be absolute.\n";
+	}
+
+	/**
+	 * Checks if the path is a valid file.
+	 * @param path - pathname to the file
+	 * @param shouldBeFolder - whether the path should be folder
+	 * @return true if the path is ok
+	 */
+	private static boolean quickFileCheck(final String path, final boolean shouldBeFolder) {
+		File f = new File(path);
+		if (f.exists() && f.isDirectory()) {
+			if (shouldBeFolder) {
+				return true;
+			}
+			return false;
+		}
+		if (f.exists() && f.isFile()) {
+			if (shouldBeFolder) {
+				return false;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the tester with current configuration.
+	 */
+	public final void run() throws StudentTesterException {
+
+		// everything belonging to this run is kept in its own context,
+		// so several testers may run in the same JVM
+		context = new GradingContext(tempRoot);
+		jsonResult = null;
+		GradingContext previous = context.bind();
+		try {
+			runTester();
+		} finally {
+			context.unbind(previous);
+		}
+	}
+
+	/**
+	 * Runs the tester in the context bound to the current thread.
+	 * @throws StudentTesterException if the tester cannot be run
+	 */
+	private void runTester() throws StudentTesterException {
+
+		// start measuring time
+		long startTime = System.nanoTime();
+		log("Version: " + StudentHelperClass.getSelfVersion());
+
+		// check if any necessary variables are missing
+		if (StudentHelperClass.checkAnyNull(testRoot, testRootName, tempRoot,
+				tempRootName, contentRoot, contentRootName)) {
+			if (isJsonOutput && !isQuiet) {
+				System.out.print("{\"output\": \"Internal error, testing cannot continue.\"}");
+			}
+			throw new StudentTesterException("One or more necessary directories are missing");
+		}
+
+		// archives are read into memory instead of being extracted
+		if (SubmissionArchive.isArchive(contentRootName)) {
+			try {
+				context.addArchive(contentRoot, SubmissionArchive.STDIN.equals(contentRootName)
+						? SubmissionArchive.read(System.in) : SubmissionArchive.open(contentRoot));
+			} catch (IOException e) {
+				if (isJsonOutput && !isQuiet) {
+					System.out.print("{\"output\": \"Internal error, testing cannot continue.\"}");
+				}
+				throw new StudentTesterException("Could not read the submission archive: " + e.getMessage(), e);
+			}
+		}
+
+		// live events are written to the original stdout, before it is redirected
+		Writer openedEvents = openEventWriter();
+		Writer events = eventWriter != null ? eventWriter : openedEvents;
+		if (events != null) {
+			context.setEvents(new GradingEvents(events));
+		}
+		context.getEvents().stageStarted("run");
+
+		// prepare json object if enabled, sources are written right away unless only getJson() is used
+		// or the events share the standard output, then the whole document follows the events
+		JsonStreamWriter jsonStream = null;
+		boolean deferJson = outputFilename == null && openedEvents != null && eventsName.equals("-");
+		context.getOutput().setLimits(maxOutput, keepOutputTail, spillOutput ? tempRoot : null);
+		if (isJsonOutput) {
+			context.enableJson();
+			if (!isQuiet) {
+				jsonStream = openJsonStream();
+			}
+			if (jsonStream != null && !deferJson) {
+				try {
+					jsonStream.beginObject();
+					writeJsonSources(jsonStream);
+					jsonStream.flush();
+				} catch (IOException e) {
+					log("Could not write JSON: " + e.getMessage());
+					jsonStream = null;
+				}
+			}
+
+			// begin redirecting stdout to a variable so it can be included in json later
+			StudentHelperClass.redirectStdOut();
+		}
+
+		System.out.format("TEST RESULTS\n\n");
+
+		// submissions that do not even parse are rejected before anything else is run
+		boolean parsed = true;
+		if (isTestNGEnabled) {
+			List<String> testFilenames = context.getSourceOverlay(contentRoot, testRoot).getFiles(testRoot, ".java");
+			CompilerRunner syntaxCheck = new CompilerRunner(context, testFilenames, testRoot, contentRoot);
+			syntaxCheck.addOptions(compilerOptions);
+			context.getEvents().stageStarted("syntax");
+			parsed = syntaxCheck.checkSyntax();
+			context.getEvents().stageFinished("syntax", parsed);
+		}
+
+		// run checkstyle
+		if (parsed && checkstyleEnabled) {
+			context.getEvents().stageStarted("checkstyle");
+			runCheckstyle();
+			context.getEvents().stageFinished("checkstyle", true);
+		}
+
+		System.out.print("\n\n");
+
+		// run TestNG
+		File workspace = null;
+		if (parsed && isTestNGEnabled) {
+			try {
+				// the folders were listed already for the syntax check
+				List<String> testFilenames = context.getSourceOverlay(contentRoot, testRoot).getFiles(testRoot, ".java");
+
+				// compile tests, in memory unless the temporary folder is requested
+				CompilerRunner compiler;
+				context.setDiskWorkspace(diskWorkspace);
+				if (diskWorkspace) {
+					// a folder of its own, so parallel runs sharing the temporary folder do not collide
+					workspace = WorkspaceJanitor.allocate(tempRoot);
+					context.setTempRoot(workspace);
+					if (context.getArchive(contentRoot) != null) {
+						context.getArchive(contentRoot).extractTo(workspace);
+					} else {
+						StudentHelperClass.copyFolder(contentRoot, workspace);
+					}
+					StudentHelperClass.copyFolder(testRoot, workspace);
+					compiler = new CompilerRunner(context, testFilenames, testRoot);
+				} else {
+					compiler = new CompilerRunner(context, testFilenames, testRoot, contentRoot);
+					if (compileCacheName != null) {
+						compiler.setCompileCache(CompileCache.open(new File(compileCacheName), compileCacheSize));
+					}
+				}
+				compiler.setBackend(compilerBackend);
+				compiler.addOptions(compilerOptions);
+				compiler.compileSeparately(true);
+				context.getEvents().stageStarted("compile");
+				boolean compiled = compiler.run();
+				context.getEvents().stageFinished("compile", compiled);
+				if (compiled) {
+					TestNGRunner testng = new TestNGRunner(context, testRoot, contentRoot);
+					testng.setMuteCodeOutput(muteCodeOutput);
+					testng.setParallelMode(parallelMode);
+					testng.setThreadCount(threadCount);
+					testng.setTestTimeout(testTimeout);
+					testng.setSuiteTimeout(suiteTimeout);
+					testng.setTestNGXmlPathName(testNGXmlPathName);
+					context.getEvents().stageStarted("tests");
+					testng.run();
+					context.getEvents().stageFinished("tests", true);
+				}
+			} catch (SecurityException e) {
+				System.out.println("Testing was aborted due to an illegal statement. Remove the statement to continue.");
+			} catch (NoClassDefFoundError e) {
+				log(e.toString());
+				System.out.println("Could not run one or more classes. "
+						+ "Please check if the folder structure matches package definitions.");
+			} catch (Exception e) {
+				log(e.toString());
+				e.printStackTrace();
+				System.out.println("Internal error, cannot continue.");
+			} finally {
+				context.getSecurity().restoreSecurityManager();
+				context.setApiEnabled(false);
+				context.getApiInstances().clear();
+			}
+		}
+
+		if (!isTestNGEnabled && !checkstyleEnabled) {
+			System.out.println("Nothing to run.");
+		}
+
+		StudentHelperClass.restoreStdOut();
+		context.getEvents().emit("grade", new JSONObject()
+				.put("percent", context.getResults() == null ? null : context.getResults().getPercent()));
+		context.getEvents().stageFinished("run", parsed);
+		if (openedEvents != null) {
+			try {
+				openedEvents.close();
+			} catch (IOException e) {
+				log(e.getMessage());
+			}
+		}
+		// print out json results
+		if (jsonStream != null) {
+			try (JsonStreamWriter out = jsonStream) {
+				if (deferJson) {
+					out.beginObject();
+					writeJsonSources(out);
+				}
+				writeJsonResults(out);
+				out.endObject();
+				out.newLine();
+			} catch (IOException e) {
+				log("Could not write JSON: " + e.getMessage());
+			}
+		}
+		// keep the JSON of a quiet run for getJson(), so the captured output can be released
+		boolean releaseOutput = !isJsonOutput || isQuiet;
+		if (isJsonOutput && isQuiet) {
+			jsonResult = getJson();
+		}
+		if (workspace != null) {
+			WorkspaceJanitor.release(workspace);
+		}
+
+		// if any unit tests of this run are still alive, kill them ungracefully to enable the program to exit
+		context.stopRemainingThreads(null);
+		if (releaseOutput) {
+			context.getOutput().release();
+		}
+
+		log("Finished. Run time in ms: " + (System.nanoTime() - startTime) / 1000000);
+	}
+
+	/**
+	 * Opens the JSON file, or the standard output if no file was given.
+	 * @return writer or null if the file cannot be opened
+	 */
+	private JsonStreamWriter openJsonStream() {
+		OutputStream out;
+		if (outputFilename != null) {
+			try {
+				out = new FileOutputStream(outputFilename);
+			} catch (FileNotFoundException e) {
+				log(e.getMessage());
+				return null;
+			}
+		} else {
+			out = getStdoutStream();
+		}
+		return new JsonStreamWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Opens the file for live events, or the standard output for "-".
+	 * @return writer or null if events were not requested or the file cannot be opened
+	 */
+	private Writer openEventWriter() {
+		if (eventsName == null || eventWriter != null) {
+			return null;
+		}
+		OutputStream out;
+		if (eventsName.equals("-")) {
+			out = getStdoutStream();
+		} else {
+			try {
+				out = new FileOutputStream(eventsName);
+			} catch (FileNotFoundException e) {
+				log(e.getMessage());
+				return null;
+			}
+		}
+		return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Gets the standard output of this thread as it is now, it is redirected during testing.
+	 * @return stream that is only flushed when closed
+	 */
+	private static OutputStream getStdoutStream() {
+		return new FilterOutputStream(ThreadPrintStream.out().getTarget()) {
+			@Override
+			public void write(final byte[] b, final int off, final int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+	}
+
+	/**
+	 * Writes the fields known before testing: the sources and the Checkstyle configuration.
+	 * @param json - writer inside the root object
+	 * @throws IOException if writing fails
+	 */
+	private void writeJsonSources(final JsonStreamWriter json) throws IOException {
+		// copy the content of all .java files to JSON
+		SourceOverlay overlay = context.getSourceOverlay(contentRoot, testRoot);
+		json.key("source");
+		writeJsonSourceList(json, overlay, contentRoot, "code");
+		json.key("testSource");
+		writeJsonSourceList(json, overlay, testRoot, "test");
+		// TODO: redefine obscure fields
+		json.key("extra").value(getCheckstyleXmlPath());
+	}
+
+	private void writeJsonSourceList(final JsonStreamWriter json, final SourceOverlay overlay, final File root,
+			final String type) throws IOException {
+		json.beginArray();
+		for (String name : overlay.getAllFiles(root, ".java")) {
+			File f = new File(root, name);
+			byte[] content;
+			try {
+				content = overlay.readFile(root, name);
+			} catch (IOException e) {
+				log(e.getMessage());
+				continue;
+			}
+			log("Adding file " + f.getName() + " to output");
+			json.beginObject()
+					.key("path").value(f.getAbsolutePath())
+					.key("content").value(content)
+					.key("type").value(type)
+					.endObject();
+		}
+		json.endArray();
+	}
+
+	/**
+	 * Writes the fields known after testing: the grade, single results and the captured output.
+	 * @param json - writer inside the root object
+	 * @throws IOException if writing fails
+	 */
+	private void writeJsonResults(final JsonStreamWriter json) throws IOException {
+		JSONObject fields = context.getJson();
+		for (String key : fields.keySet()) {
+			json.key(key).value(fields.get(key));
+		}
+		json.key("results").value(context.getSingleResults());
+		try (OutputStream out = json.key("output").valueStream()) {
+			context.getOutput().writeTo(out);
+		}
+	}
+
+	/**
+	 * Runs Checkstyle on the student code. Checkstyle reads files only from disk, so the sources of
+	 * an archive are written to a workspace of their own first.
+	 */
+	private void runCheckstyle() {
+		SubmissionArchive archive = context.getArchive(contentRoot);
+		if (archive == null) {
+			new CheckstyleRunner(context, getCheckstyleXmlPath(), contentRoot).run();
+			return;
+		}
+		File workspace = null;
+		try {
+			workspace = WorkspaceJanitor.allocate(tempRoot);
+			archive.extractTo(workspace);
+			new CheckstyleRunner(context, getCheckstyleXmlPath(), workspace).run();
+		} catch (IOException e) {
+			log("Could not prepare the archive for Checkstyle: " + e.getMessage());
+		} finally {
+			if (workspace != null) {
+				WorkspaceJanitor.release(workspace);
+			}
+		}
+	}
+
+	/**
+	 * Enables or disables checkstyle.
+	 * @param value - disable if false
+	 */
+	public final void enableCheckstyle(final boolean value) {
+		this.checkstyleEnabled = value;
+	}
+
+	/**
+	 * Sets whether code and tests are copied to the temporary folder and compiled there
+	 * instead of being compiled in memory.
+	 * @param value - true to use the temporary folder
+	 */
+	public final void useDiskWorkspace(final boolean value) {
+		this.diskWorkspace = value;
+	}
+
+	/**
+	 * Sets how test classes and their methods are run in parallel.
+	 * @param mode - parallel mode, {@link ParallelMode#DEFAULT} is the same as none
+	 */
+	public final void setParallelMode(final ParallelMode mode) {
+		this.parallelMode = mode == ParallelMode.DEFAULT ? ParallelMode.NONE : mode;
+	}
+
+	/**
+	 * Sets the amount of threads running tests in parallel.
+	 * @param count - thread count
+	 */
+	public final void setThreadCount(final int count) {
+		this.threadCount = count;
+	}
+
+	/**
+	 * Sets the time limit of a unit test without a limit of its own.
+	 * @param timeout - limit in milliseconds, 0 for none
+	 */
+	public final void setTestTimeout(final long timeout) {
+		this.testTimeout = timeout;
+	}
+
+	/**
+	 * Sets the time limit of all unit tests together.
+	 * @param timeout - limit in milliseconds, 0 for none
+	 */
+	public final void setSuiteTimeout(final long timeout) {
+		this.suiteTimeout = timeout;
+	}
+
+	/**
+	 * Sets the limit of captured code output.
+	 * @param bytes - maximum amount of bytes kept
+	 */
+	public final void setMaxOutput(final long bytes) {
+		this.maxOutput = bytes;
+	}
+
+	/**
+	 * Sets which part of output over the limit is kept.
+	 * @param value - true to keep the beginning and the end, false to keep only the beginning
+	 */
+	public final void keepOutputTail(final boolean value) {
+		this.keepOutputTail = value;
+	}
+
+	/**
+	 * Sets whether captured output is kept in a file in the temporary folder after the first 256 KB.
+	 * @param value - true to use a file
+	 */
+	public final void spillOutput(final boolean value) {
+		this.spillOutput = value;
+	}
+
+	/**
+	 * Sets the compiler used for compiling the code and the tests.
+	 * @param backend - compiler
+	 */
+	public final void setCompilerBackend(final ICompilerBackend backend) {
+		this.compilerBackend = backend;
+	}
+
+	/**
+	 * Sets the folder where compiler results are cached between runs. Used only when compiling in memory.
+	 * @param pathName - cache folder or null to disable the cache
+	 */
+	public final void setCompileCache(final String pathName) {
+		this.compileCacheName = pathName;
+	}
+
+	/**
+	 * Sets the size limit of the compiler result cache.
+	 * @param megabytes - limit in megabytes
+	 */
+	public final void setCompileCacheSize(final int megabytes) {
+		this.compileCacheSize = megabytes;
+	}
+
+	/**
+	 * Enables or disables TestNG.
+	 * @param value - disable if false
+	 */
+	public final void enableTestNG(final boolean value) {
+		this.isTestNGEnabled = value;
+	}
+
+	/**
+	 * Returns a path to checkstyle rules whether one is set or not.
+	 * @return current valid checkstyle path
+	 */
+	private String getCheckstyleXmlPath() {
+		if (isCustomCheckstyleSet) {
+			return checkstyleXmlPathName;
+		} else {
+			File xml = new File(testRoot.getPath() + "/checkstyle.xml");
+			if (xml.exists() && xml.isFile()) {
+				return xml.getPath();
+			}
+			log("Checkstyle XML not found in root, falling back to default rules");
+		}
+		return DEFAULT_CHECKSTYLE_RULES;
+	}
+
+	/**
+	 * Sets the checkstyle xml file, if the path is correct.
+	 * @param xmlPath - path to xml
+	 */
+	public final void setCheckstyleXml(final String xmlPath) {
+		File xml = new File(xmlPath);
+		if (xml.exists() && !xml.isDirectory()) {
+			this.checkstyleXmlPathName = xmlPath;
+			isCustomCheckstyleSet = true;
+			log("Checkstyle XML set successfully");
+		} else {
+			log("Checkstyle XML not found");
+		}
+	}
+
+	/**
+	 * Sets the content root filename.
+	 * @param contentRootName - path to content root
+	 */
+	public final void setContentRootName(final String contentRootName) {
+		this.contentRootName = contentRootName;
+		this.contentRoot = new File(contentRootName);
+	}
+
+	/**
+	 * Sets the temporary folder name.
+	 * @param tempDirectoryName - path to temp folder
+	 */
+	public final void setTempDirectoryName(final String tempDirectoryName) {
+		this.tempRootName = tempDirectoryName;
+		this.tempRoot = new File(tempDirectoryName);
+	}
+
+	/**
+	 * Sets the TestNG xml file, if the path is correct.
+	 * @param xmlPath - path to xml
+	 */
+	public final void setTestNGXml(final String xmlPath) {
+		File xml = new File(xmlPath);
+		if (xml.exists() && !xml.isDirectory()) {
+			this.testNGXmlPathName = xmlPath;
+		} else {
+			log("TestNG XML not found");
+		}
+	}
+
+	/**
+	 * Sets the test folder name.
+	 * @param testRootName - path to test folder
+	 */
+	public final void setTestRootName(final String testRootName) {
+		this.testRootName = testRootName;
+		this.testRoot = new File(testRootName);
+	}
+
+	/**
+	 * Sets the verbosity of the project.
+	 * TestNG has levels 1-10, this project has less.
+	 * @param verbosity - verbosity level
+	 */
+	public final void setVerbosity(final int verbosity) {
+		StudentLogger.setVerbosity(verbosity);
+	}
+
+	/**
+	 * Output JSON instead of normal strings.
+	 * @param value
+	 */
+	public final void outputJSON(final boolean value) {
+		this.isJsonOutput = value;
+	}
+
+	/**
+	 * Disables stdout to suppress students' debug messages.
+	 * @param value
+	 */
+	public final void muteCodeOutput(final boolean value) {
+		this.muteCodeOutput = value;
+	}
+
+	/**
+	 * Sets the quiet state, if JSON output is enabled.
+	 * @param quiet state
+	 */
+	public final void setQuiet(final boolean quiet) {
+		if (isJsonOutput) {
+			this.isQuiet = quiet;
+		} else {
+			log("Quiet setting not set since json is not enabled.");
+		}
+	}
+
+	/**
+	 * Returns the json of this instance. The document is written again from the sources
+	 * and the results, as they may have been streamed to a file or the standard output.
+	 * @return json
+	 */
+	public final String getJson() {
+		if (context == null || !context.isJsonOutput()) {
+			return null;
+		}
+		if (jsonResult != null) {
+			return jsonResult;
+		}
+		StringWriter writer = new StringWriter();
+		try (JsonStreamWriter json = new JsonStreamWriter(writer)) {
+			json.beginObject();
+			writeJsonSources(json);
+			writeJsonResults(json);
+			json.endObject();
+		} catch (IOException e) {
+			log("Could not write JSON: " + e.getMessage());
+			return null;
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Sets the file live events are written to.
+	 * @param name - path to the file, - for stdout
+	 */
+	public final void setEventsName(final String name) {
+		this.eventsName = name;
+	}
+
+	/**
+	 * Sets the writer live events are written to, it is not closed after the run.
+	 * @param writer - target for events, null to use {@link #setEventsName(String)}
+	 */
+	public final void setEventWriter(final Writer writer) {
+		this.eventWriter = writer;
+	}
+
+	/**
+	 * Sets the output file path.
+	 * @param filename where the file will be written to
+	 */
+	public final void setOutputFile(final String filename) {
+		this.outputFilename = filename;
+	}
+
+	/**
+	 * Gets the compiler options.
+	 * @return information to be passed to the compiler
+	 */
+	public final String getCompilerOptions() {
+		return this.compilerOptions;
+	}
+
+	/**
+	 * Sets the compiler options.
+	 * @param options - information to be passed to the compiler
+	 */
+	public final void setCompilerOptions(final String options) {
+		this.compilerOptions = options;
+	}
+
+}
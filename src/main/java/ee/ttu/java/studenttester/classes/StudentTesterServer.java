@@ -0,0 +1,257 @@
+package ee.ttu.java.studenttester.classes;
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import ee.ttu.java.studenttester.exceptions.StudentTesterException;
+
+/**
+ * Keeps the tester loaded in one JVM and grades submissions sent to a local socket.
+ * Every request is a single line of JSON, for example
+ * <br> {"testroot": "/path/to/tests", "contentroot": "/path/to/code", "args": ["-nocheckstyle"]}
+ * <br> and is answered with a single line containing the same JSON as produced by -jsonoutput.
+ * The content root may be a zip, jar or tar archive, which is read without extracting it.
+ * With "events": true in the request, the progress events of -events are sent as separate
+ * lines before the results when grading in the server itself.
+ * @author Andres
+ *
+ */
+public final class StudentTesterServer {
+
+	/**
+	 * Port used if none is given.
+	 */
+	public static final int DEFAULT_PORT = 7390;
+
+	private final int port;
+	private final List<String> defaultArguments;
+	private ServerSocket serverSocket;
+	private WorkerPool workerPool;
+
+	/**
+	 * Creates a new server.
+	 * @param port - port to listen on, 0 picks a free port
+	 * @param defaultArguments - command line arguments applied to every request before its own arguments
+	 */
+	public StudentTesterServer(final int port, final List<String> defaultArguments) {
+		this.port = port;
+		this.defaultArguments = new ArrayList<String>(defaultArguments);
+	}
+
+	/**
+	 * Grades requests in worker JVMs instead of the JVM of the server. Connections are then
+	 * handled in parallel, up to the size of the pool.
+	 * @param workerPool - started pool or null to grade in the server itself
+	 */
+	public void setWorkerPool(final WorkerPool workerPool) {
+		this.workerPool = workerPool;
+	}
+
+	/**
+	 * Binds the server to the loopback interface.
+	 * @throws IOException if the port cannot be used
+	 */
+	public void bind() throws IOException {
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		log("Listening on " + serverSocket.getLocalSocketAddress());
+	}
+
+	/**
+	 * Gets the port the server is listening on.
+	 * @return port number or -1 if not bound
+	 */
+	public int getPort() {
+		if (serverSocket == null) {
+			return -1;
+		}
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accepts connections until the server is stopped. Without a worker pool, requests are graded one at a time.
+	 * @throws IOException if the server has not been bound
+	 */
+	public void serve() throws IOException {
+		if (serverSocket == null) {
+			throw new IOException("The server must be bound before serving");
+		}
+		ExecutorService executor = workerPool == null ? null : Executors.newCachedThreadPool();
+		if (workerPool == null) {
+			CompilerService.warmUp();
+		}
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket client = serverSocket.accept();
+				if (executor == null) {
+					serveClient(client);
+				} else {
+					executor.execute(() -> serveClient(client));
+				}
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					log("Connection failed: " + e.getMessage());
+				}
+			}
+		}
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Handles a connection and closes it.
+	 * @param client - connected socket
+	 */
+	private void serveClient(final Socket client) {
+		try (Socket socket = client) {
+			handleClient(socket);
+		} catch (IOException e) {
+			log("Connection failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops accepting new connections.
+	 */
+	public void stop() {
+		try {
+			if (serverSocket != null) {
+				serverSocket.close();
+			}
+		} catch (IOException e) {
+			log(e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads requests from a connection until it is closed.
+	 * @param client - connected socket
+	 * @throws IOException if reading or writing fails
+	 */
+	private void handleClient(final Socket client) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8));
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			out.println(handleRequest(line, out));
+			out.flush();
+		}
+	}
+
+	/**
+	 * Grades a single request.
+	 * @param request - request in JSON format
+	 * @return results in JSON format
+	 */
+	public String handleRequest(final String request) {
+		return handleRequest(request, null);
+	}
+
+	/**
+	 * Grades a single request, writing progress events if the request asks for them.
+	 * @param request - request in JSON format
+	 * @param events - target for the events, null if events cannot be sent
+	 * @return results in JSON format
+	 */
+	public String handleRequest(final String request, final Writer events) {
+		long startTime = System.nanoTime();
+		try {
+			JSONObject json = new JSONObject(request);
+			String[] arguments = getArguments(json);
+			boolean sendEvents = events != null && json.optBoolean("events");
+			if (sendEvents && workerPool != null) {
+				// workers only send back the final results
+				log("Events are not supported with worker processes, ignoring");
+				sendEvents = false;
+			}
+			String results = workerPool == null ? grade(arguments, sendEvents ? events : null)
+					: workerPool.grade(arguments);
+			log("Request finished in ms: " + (System.nanoTime() - startTime) / 1000000);
+			return results;
+		} catch (StudentTesterException | RuntimeException e) {
+			log("Invalid request: " + e.getMessage());
+			return getErrorJson(e.getMessage());
+		}
+	}
+
+	/**
+	 * Grades a submission in the current JVM.
+	 * @param arguments - command line arguments of the submission
+	 * @return results in JSON format
+	 * @throws StudentTesterException if the arguments are invalid or testing fails
+	 */
+	static String grade(final String[] arguments) throws StudentTesterException {
+		return grade(arguments, null);
+	}
+
+	/**
+	 * Grades a submission in the current JVM.
+	 * @param arguments - command line arguments of the submission
+	 * @param events - target for progress events, null if not used
+	 * @return results in JSON format
+	 * @throws StudentTesterException if the arguments are invalid or testing fails
+	 */
+	static String grade(final String[] arguments, final Writer events) throws StudentTesterException {
+		StudentTesterMain tester = StudentTesterMain.fromArguments(arguments);
+		tester.setEventWriter(events);
+		tester.outputJSON(true);
+		tester.setQuiet(true);
+		tester.run();
+		return tester.getJson();
+	}
+
+	/**
+	 * Creates the reply for a request that could not be graded.
+	 * @param message - reason
+	 * @return results in JSON format
+	 */
+	static String getErrorJson(final String message) {
+		return new JSONObject()
+				.put("output", "Internal error, testing cannot continue.")
+				.put("error", message)
+				.toString();
+	}
+
+	/**
+	 * Converts a request to command line arguments.
+	 * @param request - request object
+	 * @return arguments for the tester
+	 * @throws StudentTesterException if a root folder is missing
+	 */
+	private String[] getArguments(final JSONObject request) throws StudentTesterException {
+		if (!request.has("testroot") || !request.has("contentroot")) {
+			throw new StudentTesterException("Both testroot and contentroot must be given");
+		}
+		List<String> arguments = new ArrayList<String>(defaultArguments);
+		JSONArray extra = request.optJSONArray("args");
+		if (extra != null) {
+			for (int i = 0; i < extra.length(); i++) {
+				arguments.add(extra.getString(i));
+			}
+		}
+		arguments.add("-testroot");
+		arguments.add(request.getString("testroot"));
+		arguments.add("-contentroot");
+		arguments.add(request.getString("contentroot"));
+		return arguments.toArray(new String[0]);
+	}
+}
@@ -0,0 +1,397 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Submission read from a zip, jar or tar archive into memory, so it can be graded without
+ * extracting it first. Gzipped tar archives are accepted as well, long names are read from
+ * GNU long name entries and pax extended headers. The amount of entries and
+ * their total size are limited, the sizes stored in the archive are not trusted.
+ * @author Andres
+ *
+ */
+public final class SubmissionArchive {
+
+	/**
+	 * Name used for an archive read from the standard input.
+	 */
+	public static final String STDIN = "-";
+	/**
+	 * Maximum amount of files in an archive.
+	 */
+	public static final int MAX_ENTRIES = 10000;
+	/**
+	 * Maximum total size of the files in an archive in bytes.
+	 */
+	public static final long MAX_SIZE = 64L * 1024 * 1024;
+
+	private static final int TAR_BLOCK = 512;
+	/**
+	 * Maximum size of a GNU long name or a pax extended header in bytes.
+	 */
+	private static final int MAX_TAR_HEADER = TAR_BLOCK * 128;
+	/**
+	 * Orders paths like folders listed recursively with sorted names, a folder comes
+	 * before a file in the same folder starting with the folder's name.
+	 */
+	private static final Comparator<String> ORDER = Comparator.comparing((path) -> path.replace('/', '\0'));
+
+	/**
+	 * File contents by path, separated by '/'.
+	 */
+	private final Map<String, byte[]> entries = new TreeMap<String, byte[]>(ORDER);
+	private final int maxEntries;
+	private final long maxSize;
+	private long size;
+
+	private SubmissionArchive(final int maxEntries, final long maxSize) {
+		this.maxEntries = maxEntries;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Checks if a content root name refers to an archive instead of a folder.
+	 * @param name - path given as the content root
+	 * @return true for the standard input and archive file names
+	 */
+	public static boolean isArchive(final String name) {
+		if (name == null) {
+			return false;
+		}
+		String lowerCase = name.toLowerCase();
+		return name.equals(STDIN) || lowerCase.endsWith(".zip") || lowerCase.endsWith(".jar")
+				|| lowerCase.endsWith(".tar") || lowerCase.endsWith(".tar.gz") || lowerCase.endsWith(".tgz");
+	}
+
+	/**
+	 * Reads an archive file.
+	 * @param file - zip, jar or tar file
+	 * @return archive
+	 * @throws IOException if the file cannot be read, is not an archive or exceeds the limits
+	 */
+	public static SubmissionArchive open(final File file) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Reads an archive with the default limits. The stream is not closed.
+	 * @param stream - zip, jar or tar contents
+	 * @return archive
+	 * @throws IOException if the stream is not an archive or exceeds the limits
+	 */
+	public static SubmissionArchive read(final InputStream stream) throws IOException {
+		return read(stream, MAX_ENTRIES, MAX_SIZE);
+	}
+
+	/**
+	 * Reads an archive. The stream is not closed.
+	 * @param stream - zip, jar or tar contents
+	 * @param maxEntries - maximum amount of files
+	 * @param maxSize - maximum total size of the files in bytes
+	 * @return archive
+	 * @throws IOException if the stream is not an archive or exceeds the limits
+	 */
+	public static SubmissionArchive read(final InputStream stream, final int maxEntries, final long maxSize)
+			throws IOException {
+		SubmissionArchive archive = new SubmissionArchive(maxEntries, maxSize);
+		InputStream in = new BufferedInputStream(stream);
+		in.mark(2);
+		int first = in.read();
+		int second = in.read();
+		in.reset();
+		if (first == -1) {
+			throw new IOException("Not a zip, jar or tar archive");
+		}
+		if (first == 0x1f && second == 0x8b) {
+			in = new BufferedInputStream(new GZIPInputStream(in));
+			archive.readTar(in);
+		} else if (first == 'P' && second == 'K') {
+			archive.readZip(in);
+		} else {
+			archive.readTar(in);
+		}
+		if (archive.entries.isEmpty()) {
+			throw new IOException("Not a zip, jar or tar archive");
+		}
+		return archive;
+	}
+
+	/**
+	 * Gets the files of the archive.
+	 * @return file contents by path separated by '/', in the order a folder would be listed
+	 */
+	public Map<String, byte[]> getEntries() {
+		return Collections.unmodifiableMap(entries);
+	}
+
+	/**
+	 * Writes the files of the archive to a folder.
+	 * @param folder - target folder, existing files are overwritten
+	 * @throws IOException if a file cannot be written
+	 */
+	public void extractTo(final File folder) throws IOException {
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			File target = new File(folder, entry.getKey());
+			Files.createDirectories(target.getParentFile().toPath());
+			Files.write(target.toPath(), entry.getValue());
+		}
+	}
+
+	private void readZip(final InputStream in) throws IOException {
+		ZipInputStream zip = new ZipInputStream(in);
+		ZipEntry entry;
+		while ((entry = zip.getNextEntry()) != null) {
+			if (!entry.isDirectory()) {
+				add(entry.getName(), zip);
+			}
+		}
+	}
+
+	private void readTar(final InputStream in) throws IOException {
+		byte[] header = new byte[TAR_BLOCK];
+		String longName = null;
+		while (readBlock(in, header)) {
+			if (isZeroBlock(header)) {
+				return;
+			}
+			if (!new String(header, 257, 5, StandardCharsets.US_ASCII).equals("ustar")) {
+				throw new IOException("Not a zip, jar or tar archive");
+			}
+			String name = longName != null ? longName : getTarName(header);
+			longName = null;
+			long length = parseOctal(header, 124, 12);
+			byte type = header[156];
+			if (type == 'L') {
+				// GNU long name, the name is the content of this entry
+				longName = getString(readTarHeader(in, length), 0, (int) length);
+			} else if (type == 'x') {
+				// pax extended header, its path replaces the name of the next entry
+				longName = getPaxPath(readTarHeader(in, length));
+			} else if (type == '0' || type == 0) {
+				add(name, new BoundedInputStream(in, length));
+			} else {
+				// folders, links and global pax headers carry nothing to grade
+				skipFully(in, length);
+			}
+			skipFully(in, (TAR_BLOCK - length % TAR_BLOCK) % TAR_BLOCK);
+		}
+	}
+
+	/**
+	 * Adds a file, checking its path and the limits.
+	 * @param name - path in the archive
+	 * @param in - contents
+	 * @throws IOException if the path leaves the archive or a limit is exceeded
+	 */
+	private void add(final String name, final InputStream in) throws IOException {
+		String path = name.replace('\\', '/');
+		while (path.startsWith("./")) {
+			path = path.substring(2);
+		}
+		if (path.startsWith("/") || path.equals("..") || path.startsWith("../") || path.contains("/../")
+				|| path.endsWith("/..") || path.contains(":")) {
+			throw new IOException("Illegal path in archive: " + name);
+		}
+		if (entries.size() >= maxEntries) {
+			throw new IOException("Archive contains more than " + maxEntries + " files");
+		}
+		byte[] content = readFully(in, Long.MAX_VALUE, maxSize - size);
+		size += content.length;
+		entries.put(path, content);
+	}
+
+	/**
+	 * Reads a stream until its end or the given length.
+	 * @param in - stream
+	 * @param length - bytes to read at most
+	 * @param limit - maximum amount of bytes allowed
+	 * @return contents
+	 * @throws IOException if the limit is exceeded
+	 */
+	private byte[] readFully(final InputStream in, final long length, final long limit) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		long remaining = length;
+		int read;
+		while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+			out.write(buffer, 0, read);
+			remaining -= read;
+			if (out.size() > limit) {
+				throw new IOException("Archive is larger than " + maxSize + " bytes");
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Reads the contents of a GNU long name or a pax extended header entry.
+	 * @param in - stream positioned at the contents
+	 * @param length - length of the contents
+	 * @return contents
+	 * @throws IOException if the header is too long or truncated
+	 */
+	private static byte[] readTarHeader(final InputStream in, final long length) throws IOException {
+		if (length > MAX_TAR_HEADER) {
+			throw new IOException("Tar header is longer than " + MAX_TAR_HEADER + " bytes");
+		}
+		byte[] data = new byte[(int) length];
+		int offset = 0;
+		while (offset < data.length) {
+			int read = in.read(data, offset, data.length - offset);
+			if (read == -1) {
+				throw new IOException("Truncated tar archive");
+			}
+			offset += read;
+		}
+		return data;
+	}
+
+	/**
+	 * Gets the path from pax extended header records of the form "length key=value\n",
+	 * where the length counts the bytes of the whole record.
+	 * @param data - contents of the extended header
+	 * @return path or null if the header has none
+	 * @throws IOException if a record is malformed
+	 */
+	private static String getPaxPath(final byte[] data) throws IOException {
+		String path = null;
+		int offset = 0;
+		while (offset < data.length) {
+			int space = offset;
+			while (space < data.length && data[space] != ' ') {
+				space++;
+			}
+			int length;
+			try {
+				length = Integer.parseInt(new String(data, offset, space - offset, StandardCharsets.US_ASCII));
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid pax header in tar archive");
+			}
+			int end = offset + length;
+			if (space >= data.length || length <= 0 || end > data.length || data[end - 1] != '\n') {
+				throw new IOException("Invalid pax header in tar archive");
+			}
+			String record = new String(data, space + 1, end - space - 2, StandardCharsets.UTF_8);
+			if (record.startsWith("path=")) {
+				path = record.substring("path=".length());
+			}
+			offset = end;
+		}
+		return path;
+	}
+
+	private static boolean readBlock(final InputStream in, final byte[] block) throws IOException {
+		int offset = 0;
+		while (offset < block.length) {
+			int read = in.read(block, offset, block.length - offset);
+			if (read == -1) {
+				if (offset == 0) {
+					return false;
+				}
+				throw new IOException("Truncated tar archive");
+			}
+			offset += read;
+		}
+		return true;
+	}
+
+	private static void skipFully(final InputStream in, final long length) throws IOException {
+		long remaining = length;
+		while (remaining > 0) {
+			long skipped = in.skip(remaining);
+			if (skipped <= 0) {
+				if (in.read() == -1) {
+					throw new IOException("Truncated tar archive");
+				}
+				skipped = 1;
+			}
+			remaining -= skipped;
+		}
+	}
+
+	private static boolean isZeroBlock(final byte[] block) {
+		for (byte b : block) {
+			if (b != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String getTarName(final byte[] header) {
+		String name = getString(header, 0, 100);
+		String prefix = getString(header, 345, 155);
+		return prefix.isEmpty() ? name : prefix + "/" + name;
+	}
+
+	private static String getString(final byte[] header, final int offset, final int length) {
+		int end = offset;
+		while (end < offset + length && end < header.length && header[end] != 0) {
+			end++;
+		}
+		return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	private static long parseOctal(final byte[] header, final int offset, final int length) throws IOException {
+		String value = getString(header, offset, length).trim();
+		try {
+			return value.isEmpty() ? 0 : Long.parseLong(value, 8);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid size in tar header: " + value);
+		}
+	}
+
+	/**
+	 * Stream ending after the given amount of bytes, used for reading a single tar entry.
+	 */
+	private static final class BoundedInputStream extends InputStream {
+
+		private final InputStream in;
+		private long remaining;
+
+		BoundedInputStream(final InputStream in, final long length) {
+			this.in = in;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int b = in.read();
+			if (b != -1) {
+				remaining--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+			if (read != -1) {
+				remaining -= read;
+			}
+			return read;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import ee.ttu.java.studenttester.dataclasses.SuiteModel;
+
+/**
+ * Keeps the suite models of test roots in memory, so the test classes shared by many submissions
+ * are found and classified only once. The models are stored under the hash of the test sources
+ * and testng.xml.
+ * @author Andres
+ *
+ */
+public final class SuiteModelCache {
+
+	/**
+	 * Amount of suite models kept in memory.
+	 */
+	private static final int MAX_ENTRIES = 32;
+
+	/**
+	 * Cached suite models.
+	 */
+	private static final LruCache<SuiteModel> CACHE = new LruCache<SuiteModel>(MAX_ENTRIES);
+
+	private SuiteModelCache() {
+
+	}
+
+	/**
+	 * Gets a cached suite model.
+	 * @param key - key from {@link #getKey(File, File)}
+	 * @return model or null if not cached
+	 */
+	public static SuiteModel get(final String key) {
+		return CACHE.get(key);
+	}
+
+	/**
+	 * Stores a suite model.
+	 * @param key - key from {@link #getKey(File, File)}
+	 * @param model - suite model
+	 */
+	public static void put(final String key, final SuiteModel model) {
+		CACHE.put(key, model);
+	}
+
+	/**
+	 * Gets the amount of cached suite models.
+	 * @return amount of entries
+	 */
+	public static int size() {
+		return CACHE.size();
+	}
+
+	/**
+	 * Removes everything from the cache.
+	 */
+	public static void clear() {
+		CACHE.clear();
+	}
+
+	/**
+	 * Builds the cache key for the tests of a test root.
+	 * @param testRoot - folder containing tests
+	 * @param xmlFile - testng.xml used for the run, null if there is none
+	 * @return key
+	 * @throws IOException if a file cannot be read
+	 */
+	public static String getKey(final File testRoot, final File xmlFile) throws IOException {
+		String xmlHash = xmlFile == null ? "" : CompileCache.hash(Files.readAllBytes(xmlFile.toPath()));
+		return CompileCache.hashSources(testRoot, xmlHash);
+	}
+}
@@ -0,0 +1,90 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ee.ttu.java.studenttester.dataclasses.CompiledClass;
+
+/**
+ * Keeps compiled test classes in memory, so tests shared by many submissions are compiled only once.
+ * The classes are stored under the hash of the test sources, the compiler options and the API of the
+ * student code they were compiled against. A test class compiled against the same API is identical no
+ * matter how the student methods are implemented.
+ * @author Andres
+ *
+ */
+public final class TestClassCache {
+
+	/**
+	 * Amount of test suites kept in memory.
+	 */
+	private static final int MAX_ENTRIES = 32;
+
+	/**
+	 * Cached test classes.
+	 */
+	private static final LruCache<List<CompiledClass>> CACHE = new LruCache<List<CompiledClass>>(MAX_ENTRIES);
+
+	private TestClassCache() {
+
+	}
+
+	/**
+	 * Gets cached test classes.
+	 * @param key - key from {@link #getKey(File, List, Collection)}
+	 * @return test classes or null if not cached
+	 */
+	public static List<CompiledClass> get(final String key) {
+		return CACHE.get(key);
+	}
+
+	/**
+	 * Stores test classes.
+	 * @param key - key from {@link #getKey(File, List, Collection)}
+	 * @param classes - compiled test classes
+	 */
+	public static void put(final String key, final List<CompiledClass> classes) {
+		CACHE.put(key, new ArrayList<CompiledClass>(classes));
+	}
+
+	/**
+	 * Gets the amount of cached test suites.
+	 * @return amount of entries
+	 */
+	public static int size() {
+		return CACHE.size();
+	}
+
+	/**
+	 * Removes everything from the cache.
+	 */
+	public static void clear() {
+		CACHE.clear();
+	}
+
+	/**
+	 * Builds the cache key for a test suite.
+	 * @param testRoot - folder containing tests
+	 * @param options - compiler options
+	 * @param studentClasses - compiled student code the tests are compiled against
+	 * @return key
+	 * @throws IOException if a file cannot be read or a class file is invalid
+	 */
+	public static String getKey(final File testRoot, final List<String> options,
+			final Collection<CompiledClass> studentClasses) throws IOException {
+		List<String> parts = new ArrayList<String>();
+		parts.add(options.toString());
+		// sort by name, the order of compilation must not matter
+		Map<String, CompiledClass> sorted = new TreeMap<String, CompiledClass>();
+		studentClasses.forEach((c) -> sorted.put(c.getName(), c));
+		for (CompiledClass c : sorted.values()) {
+			parts.add(ClassFileReader.read(c.getBytes()).getApiDescription());
+		}
+		return CompileCache.hashSources(testRoot, parts.toArray(new String[parts.size()]));
+	}
+}
@@ -1,343 +1,496 @@
-package ee.ttu.java.studenttester.classes;
-import static ee.ttu.java.studenttester.classes.StudentLogger.log;
-
-import java.io.File;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import ee.ttu.java.studenttester.enums.StudentPolicy;
-import ee.ttu.java.studenttester.exceptions.StudentTesterException;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import org.testng.IReporter;
-import org.testng.TestNG;
-import org.testng.xml.XmlClass;
-import org.testng.xml.XmlSuite;
-import org.testng.xml.XmlTest;
-
-import ee.ttu.java.studenttester.dataclasses.SingleTest;
-import ee.ttu.java.studenttester.dataclasses.TestResults;
-import ee.ttu.java.studenttester.interfaces.IBaseStudentReporter;
-import ee.ttu.java.studenttester.listeners.MuteListener;
-import ee.ttu.java.studenttester.listeners.StudentReporter;
-
-/**
- * Class for running TestNG instances.
- * @author Andres
- *
- */
-public class TestNGRunner {
-
-	//TODO: mostly copies from StudentTesterMain, maybe inheritance would be better?
-	private String testNGXmlPathName = null;
-	private File tempRoot, testRoot, contentRoot;
-	private boolean isJsonOutput;
-	private boolean muteCodeOutput = true;
-	private JSONObject json;
-	private JSONArray singleResults;
-
-	private StudentSecurity secInst = StudentSecurity.getInstance();
-
-	/**
-	 * Creates a new TestNG wrapper class.
-	 * @param tempRoot folder containing tests and code copied together
-	 * @param testRoot folder containing unit tests
-	 * @param isJsonOutput whether the tester is outputting JSON
-	 */
-	public TestNGRunner(final File tempRoot, final File testRoot, final File contentRoot, final boolean isJsonOutput) {
-		this.tempRoot = tempRoot;
-		this.testRoot = testRoot;
-		this.contentRoot = contentRoot;
-		this.isJsonOutput = isJsonOutput;
-	}
-
-	/**
-	 * Sets whether System.out is redirected to null during testing.
-	 * @param muted if true, System.out will be suppressed
-	 */
-	public void setMuteCodeOutput(final boolean muted) {
-		this.muteCodeOutput = muted;
-	}
-
-	/**
-	 * Sets the pathname to TestNG xml conf file.
-	 * @param name pathname to xml
-	 */
-	public void setTestNGXmlPathName(final String name) {
-		this.testNGXmlPathName = name;
-	}
-
-	/**
-	 * If the results are to be stored in JSON, include necessary objects.
-	 * @param json JSON root object
-	 * @param singleResults array for single tests to be included in root
-	 */
-	public void setJsonVars(final JSONObject json, final JSONArray singleResults) {
-		this.json = json;
-		this.singleResults = singleResults;
-	}
-
-	/**
-	 * Runs TestNG.
-	 * @throws Exception if TestNG fails or someone coughs
-	 */
-	@SuppressWarnings("deprecation")
-	public final void run() throws Exception {
-
-		TestNG testng = new TestNG();
-		boolean incompleteTests = false;
-		// get a fancy new loader so Java 9 does not scream in our face
-		URLClassLoader loader = URLClassLoader.newInstance(new URL[] {tempRoot.toURI().toURL()});
-		testng.addClassLoader(loader); // must be declared here, otherwise using testng.xml will not work
-		// search for TestNG xml file
-		if (testNGXmlPathName == null) {
-			// attempt to use default path
-			File f = new File(tempRoot.getPath() + "/testng.xml");
-			if (!f.exists() || f.isDirectory()) {
-
-				// here be dragons
-
-				log("No testng.xml found, running all test classes");
-				List<String> testFilenames = new ArrayList<String>();
-				StudentHelperClass.populateFilenames(testRoot, testFilenames, true);
-
-				// add test files to protected list. Do not add paths as there might be differences under Linux/Windows
-				// path separators
-				// TODO: implement paths anyway?
-				List<String> testFilenamesNoPath = new ArrayList<String>();
-				StudentHelperClass.populateFilenames(testRoot, testFilenamesNoPath, false);
-				for (String testClassName : testFilenamesNoPath) {
-						secInst.addProtectedFile(testClassName); // add .java file to protected list
-						secInst.addProtectedFile(testClassName.replace(".java", ".class")); // add .class file to protected list
-				}
-
-				List<String> codeFilenames = new ArrayList<String>();
-				StudentHelperClass.populateFilenames(contentRoot, codeFilenames, true);
-
-				for (String codeClassName : codeFilenames) {
-					try {
-						Class testClass = loader.loadClass(StudentHelperClass.filePathToClassPath(codeClassName));
-						// add to blacklist
-						secInst.addClass(testClass);
-					} catch (ClassNotFoundException e) {
-						StudentLogger.log(e.toString());
-						StudentLogger.log("Class not found: " + codeClassName);
-					}
-				}
-
-				List<XmlSuite> suites = new ArrayList<XmlSuite>();
-				XmlSuite suite = new XmlSuite();
-				suite.setName(testRoot.getName());
-				List<XmlTest> tests = new ArrayList<XmlTest>();
-				for (String testClassName : testFilenames) {
-					try {
-						// confirm the existence of a compiled class
-						// in Java 8, it was possible to dynamically load a path to classpath (in our case the temp folder),
-						// but in Java 9 such hacks do not work. Instead, load the class through a custom URLClassLoader
-						// and pass it as an object to TestNG. Something WILL blow up (see the comment ~20 lines above)
-						Class testClass = loader.loadClass(StudentHelperClass.filePathToClassPath(testClassName));
-						XmlTest test;
-						List<XmlClass> classes;
-						switch (StudentHelperClass.getClassType(testClass)) {
-						case JUNIT:
-							test = new XmlTest(suite);
-							classes = new ArrayList<XmlClass>();
-							//classes.add(new XmlClass(StudentHelperClass.filePathToClassPath(testClassName)));
-							classes.add(new XmlClass(testClass));
-							test.setXmlClasses(classes);
-							test.setName(StudentHelperClass.filePathToClassPath(testClassName) + " (JUnit)");
-							test.setJunit(true);
-							StudentLogger.log(String.format("Found JUnit class %s", testClassName));
-							tests.add(test);
-							break;
-						case TESTNG:
-							test = new XmlTest(suite);
-							classes = new ArrayList<XmlClass>();
-							classes.add(new XmlClass(testClass));
-							test.setXmlClasses(classes);
-							test.setName(StudentHelperClass.filePathToClassPath(testClassName) + " (TestNG)");
-							StudentLogger.log(String.format("Found TestNG class %s", testClassName));
-							tests.add(test);
-							break;
-						case MIXED:
-							StudentLogger.log(String.format("Class %s contains mixed test annotations!", testClassName));
-							StudentLogger.log("Skipping " + testClassName);
-							break;
-						default:
-							StudentLogger.log("Skipping " + testClassName);
-						}
-					} catch (ClassNotFoundException e) {
-						StudentLogger.log(e.toString());
-						StudentLogger.log("Class not found: " + testClassName);
-						incompleteTests = true;
-					}
-				}
-
-				/* older implementation of the above
-				List<XmlClass> junitClasses = new ArrayList<XmlClass>();
-				List<XmlClass> testngClasses = new ArrayList<XmlClass>();
-
-				for (String testClass : testFilenames) {
-					try {
-						Class.forName(StudentHelperClass.filePathToClassPath(testClass)); // confirm the existence of a compiled class
-						XmlClass c = new XmlClass(StudentHelperClass.filePathToClassPath(testClass));
-						if (StudentHelperClass.isJUnitClass(testClass)) {
-							log(String.format("Found JUnit class %s", testClass));
-							junitClasses.add(c);
-						} else {
-							log(String.format("Found TestNG class %s", testClass));
-							testngClasses.add(c);
-						}
-					} catch (ClassNotFoundException e) {
-						log(e.toString());
-						log("Skipping " + testClass);
-						incompleteTests = true;
-					}
-				}
-				if (junitClasses.size() > 0) {
-					// create test for JUnit
-					XmlTest testJunit = new XmlTest(suite);
-					testJunit.setJUnit(true);
-					testJunit.setName("JUnit tests");
-					testJunit.setXmlClasses(junitClasses);
-				}
-				if (testngClasses.size() > 0) {
-					// and for TestNG
-					XmlTest testTestng = new XmlTest(suite);
-					testTestng.setName("TestNG tests");
-					testTestng.setXmlClasses(testngClasses);
-				}
-				if ((testngClasses.size() + junitClasses.size()) == 0) {
-					log("Warning: nothing to test?");
-				}
-				*/
-
-				suites.add(suite);
-				testng.setXmlSuites(suites);
-			} else {
-				testNGXmlPathName = tempRoot.getPath() + "/testng.xml";
-				testng.setTestSuites(Arrays.asList(new String[] {testNGXmlPathName}));
-			}
-		} else {
-			testng.setTestSuites(Arrays.asList(new String[] {testNGXmlPathName}));
-		}
-
-		// set TestNG verbosity. TestNG is supposed to have 10 levels.
-		testng.setVerbose(StudentLogger.getVerbosity());
-
-		// mute output while testing, this should be kept on
-		if (muteCodeOutput) {
-			testng.addListener(new MuteListener());
-		} else {
-			StudentHelperClass.stdoutToErr();
-		}
-
-		// TestNG does not appear to have an interface to examine xml contents.
-		// Attempt to parse xml manually to find custom listeners
-		// If the listener is not a reporter, you have to add it as well
-		String customListener = null;
-		if (testNGXmlPathName != null) {
-			String xmlData = new String(Files.readAllBytes(Paths.get(testNGXmlPathName)), StandardCharsets.UTF_8);
-			Pattern LISTENER_PATTERN = Pattern.compile("listener\\s?class-name\\s?=\\s?\"(\\w+)\"");
-			Matcher m = LISTENER_PATTERN.matcher(xmlData);
-			while (m.find()) {
-				customListener = m.group(1);
-			}
-		}
-
-		StudentReporter reporter = null;
-		if (customListener != null) {
-			log("Using listener " + customListener);
-		} else {
-			log("Using default listener StudentReporter");
-			reporter = new StudentReporter();
-			reporter.setHasIncompleteResults(incompleteTests);
-			// deprecated, see http://testng.org/doc/documentation-main.html#listeners-testng-xml
-			// for now it's still the best way to configure programmatically
-			testng.addListener(reporter);
-		}
-
-		// disable built-in listeners to reduce load
-		testng.setUseDefaultListeners(false);
-
-		// redirect some debug messages to stderr
-		StudentHelperClass.stdoutToErr();
-
-		// run TestNG. If an exception is thrown, restore streams.
-		Exception tempEx = null;
-		try {
-			secInst.setDefaultRestrictions();
-			secInst.setCustomSecurityManager();
-			StudentTesterAPI.setApiEnabled(true);
-			testng.run();
-		} catch (Exception e) {
-			tempEx = e;
-		} finally {
-			if (!isJsonOutput) {
-				// restore output if no json
-				StudentHelperClass.restoreStdOut();
-			} else {
-				if (json == null || singleResults == null) {
-					throw new StudentTesterException("JSON output specified but setJsonVars() not called?");
-				}
-				// redirect output to variable again if json
-				StudentHelperClass.redirectStdOut();
-			}
-			if (tempEx != null) {
-				throw tempEx;
-			}
-		}
-
-		TestResults results = null;
-		// if a custom listener was specified
-		if (customListener != null) {
-			// TODO: untested functionality
-			// try to pull results from the first IBaseStudentReporter
-			for (IReporter otherReporter : testng.getReporters()) {
-				if (otherReporter instanceof IBaseStudentReporter) {
-					results = ((IBaseStudentReporter) otherReporter).getResults();
-					break;
-				}
-			}
-		// otherwise get from our default StudentReporter
-		} else {
-			results = reporter.getResults();
-		}
-
-		// if JSON specified
-		if (isJsonOutput && results != null) {
-			if (json == null || singleResults == null) {
-				throw new StudentTesterException("JSON output specified but setJsonVars() not called?");
-			}
-			json.put("percent", results.getPercent());
-			for (SingleTest t : results.getResultList()) {
-				singleResults.put(new JSONObject()
-						.put("name", t.getName())
-						.put("code", t.getCode())
-						.put("percent", t.getPercent())
-						.put("output", t.getErrorOutput()));
-			}
-		}
-
-		// try to print out all results
-		try {
-			if (results.getOutput() != null) {
-				System.out.print(results.getOutput());
-			} else {
-				throw new NullPointerException("results.getOutput() is null");
-			}
-		} catch (Exception e) {
-			System.out.println("Error getting test results.");
-			log("Result object was null, are reporters ok?");
-			throw e;
-		}
-	}
-}
+package ee.ttu.java.studenttester.classes;
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ee.ttu.java.studenttester.annotations.TestContextConfiguration;
+import ee.ttu.java.studenttester.enums.ParallelMode;
+import ee.ttu.java.studenttester.enums.StudentPolicy;
+import ee.ttu.java.studenttester.enums.TestClassType;
+import org.json.JSONObject;
+import org.testng.IReporter;
+import org.testng.ITestNGListener;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import ee.ttu.java.studenttester.dataclasses.SingleTest;
+import ee.ttu.java.studenttester.dataclasses.SuiteModel;
+import ee.ttu.java.studenttester.dataclasses.SuiteModel.TestClassEntry;
+import ee.ttu.java.studenttester.dataclasses.TestResults;
+import ee.ttu.java.studenttester.interfaces.IBaseStudentReporter;
+import ee.ttu.java.studenttester.listeners.EventListener;
+import ee.ttu.java.studenttester.listeners.MuteListener;
+import ee.ttu.java.studenttester.listeners.OutputCaptureListener;
+import ee.ttu.java.studenttester.listeners.StudentReporter;
+import ee.ttu.java.studenttester.listeners.TimeoutWatchdog;
+
+/**
+ * Class for running TestNG instances.
+ * @author Andres
+ *
+ */
+public class TestNGRunner {
+
+	//TODO: mostly copies from StudentTesterMain, maybe inheritance would be better?
+	private String testNGXmlPathName = null;
+	private GradingContext context;
+	private File tempRoot, testRoot, contentRoot;
+	private boolean muteCodeOutput = true;
+	private ParallelMode parallelMode = ParallelMode.NONE;
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private long testTimeout = TimeoutWatchdog.DEFAULT_TEST_TIMEOUT;
+	private long suiteTimeout = TimeoutWatchdog.DEFAULT_SUITE_TIMEOUT;
+
+	private StudentSecurity secInst;
+	private boolean incompleteTests = false;
+
+	private static final Pattern LISTENER_PATTERN = Pattern.compile("listener\\s?class-name\\s?=\\s?\"(\\w+)\"");
+
+	/**
+	 * Creates a new TestNG wrapper class.
+	 * @param context current test run, its compiled classes or temporary folder must contain tests and code
+	 * @param testRoot folder containing unit tests
+	 * @param contentRoot folder containing student code
+	 */
+	public TestNGRunner(final GradingContext context, final File testRoot, final File contentRoot) {
+		this.context = context;
+		this.tempRoot = context.getTempRoot();
+		this.testRoot = testRoot;
+		this.contentRoot = contentRoot;
+		this.secInst = context.getSecurity();
+	}
+
+	/**
+	 * Sets whether System.out is redirected to null during testing.
+	 * @param muted if true, System.out will be suppressed
+	 */
+	public void setMuteCodeOutput(final boolean muted) {
+		this.muteCodeOutput = muted;
+	}
+
+	/**
+	 * Sets the pathname to TestNG xml conf file.
+	 * @param name pathname to xml
+	 */
+	public void setTestNGXmlPathName(final String name) {
+		this.testNGXmlPathName = name;
+	}
+
+	/**
+	 * Sets how test classes without their own setting are run in parallel. Used only
+	 * when there is no testng.xml, which has settings of its own.
+	 * @param mode - parallel mode
+	 */
+	public void setParallelMode(final ParallelMode mode) {
+		this.parallelMode = mode;
+	}
+
+	/**
+	 * Sets the amount of threads running tests in parallel.
+	 * @param count - thread count
+	 */
+	public void setThreadCount(final int count) {
+		this.threadCount = count;
+	}
+
+	/**
+	 * Sets the time limit of a unit test, tests may set their own with {@link ee.ttu.java.studenttester.annotations.Gradeable#timeout()}.
+	 * @param timeout - limit in milliseconds, 0 for none
+	 */
+	public void setTestTimeout(final long timeout) {
+		this.testTimeout = timeout;
+	}
+
+	/**
+	 * Sets the time limit of all unit tests together.
+	 * @param timeout - limit in milliseconds, 0 for none
+	 */
+	public void setSuiteTimeout(final long timeout) {
+		this.suiteTimeout = timeout;
+	}
+
+	/**
+	 * Runs TestNG.
+	 * @throws Exception if TestNG fails or someone coughs
+	 */
+	@SuppressWarnings("deprecation")
+	public final void run() throws Exception {
+
+		TestNG testng = new TestNG();
+		// get a fancy new loader so Java 9 does not scream in our face
+		// classes compiled in memory come from the context, the folders are searched for anything else.
+		// Tests are searched first, as if they were copied on top of the code
+		URL[] urls = context.usesDiskWorkspace()
+				? new URL[] {tempRoot.toURI().toURL()}
+				: new URL[] {testRoot.toURI().toURL(), contentRoot.toURI().toURL()};
+		GradingClassLoader loader = new GradingClassLoader(urls, context);
+		// TestNG looks up classes from testng.xml through the context class loader first. Do not use
+		// testng.addClassLoader() as it keeps the loader in a static list forever, leaking every run
+		// search for TestNG xml file, attempt to use the default path if none was given
+		File xmlFile = testNGXmlPathName != null ? new File(testNGXmlPathName) : findDefaultTestNGXml();
+		// what is found out about the tests is reused by later submissions with the same tests
+		String modelKey = SuiteModelCache.getKey(testRoot, xmlFile);
+		SuiteModel model = SuiteModelCache.get(modelKey);
+		if (model != null) {
+			log("Using cached suite model");
+		} else {
+			model = xmlFile != null ? new SuiteModel(findCustomListener(xmlFile)) : findTestClasses(loader);
+			// classes that were not found might be found next time
+			if (!incompleteTests) {
+				SuiteModelCache.put(modelKey, model);
+			}
+		}
+		if (model.isFromXml()) {
+			testng.setTestSuites(Arrays.asList(new String[] {xmlFile.getPath()}));
+		} else {
+
+			// here be dragons
+
+			log("No testng.xml found, running all test classes");
+
+			// add test files to protected list. Do not add paths as there might be differences under Linux/Windows
+			// path separators
+			// TODO: implement paths anyway?
+			for (TestClassEntry entry : model.getTestClasses()) {
+				String testClassName = new File(entry.getFileName()).getName();
+				secInst.addProtectedFile(testClassName); // add .java file to protected list
+				secInst.addProtectedFile(testClassName.replace(".java", ".class")); // add .class file to protected list
+			}
+
+			// the content root may be an archive, so it is listed through the merged view
+			List<String> codeFilenames = context.getSourceOverlay(contentRoot, testRoot).getAllFiles(contentRoot, ".java");
+
+			for (String codeClassName : codeFilenames) {
+				// added to blacklist when loaded, classes that never run need not be loaded at all
+				loader.addStudentClass(StudentHelperClass.filePathToClassPath(codeClassName));
+			}
+
+			testng.setXmlSuites(createSuites(model, loader));
+		}
+
+		// set TestNG verbosity. TestNG is supposed to have 10 levels.
+		testng.setVerbose(StudentLogger.getVerbosity());
+
+		// fail tests running over their time limit, added before the other listeners so they see the failure
+		TimeoutWatchdog watchdog = new TimeoutWatchdog(testTimeout, suiteTimeout);
+		testng.addListener((ITestNGListener) watchdog);
+
+		// mute output while testing, this should be kept on
+		if (muteCodeOutput) {
+			testng.addListener(new MuteListener());
+		} else {
+			StudentHelperClass.stdoutToErr();
+		}
+
+		// collect the output of each unit test separately for the private notes
+		if (context.isJsonOutput()) {
+			testng.addListener(new OutputCaptureListener());
+		}
+
+		// report every unit test as soon as it finishes
+		if (context.getEvents().isEnabled()) {
+			testng.addListener(new EventListener(context.getEvents()));
+		}
+
+		// custom listeners of testng.xml were found when the suite model was built
+		String customListener = model.getListener();
+
+		StudentReporter reporter = null;
+		if (customListener != null) {
+			log("Using listener " + customListener);
+		} else {
+			log("Using default listener StudentReporter");
+			reporter = new StudentReporter(context);
+			reporter.setHasIncompleteResults(incompleteTests);
+			// deprecated, see http://testng.org/doc/documentation-main.html#listeners-testng-xml
+			// for now it's still the best way to configure programmatically.
+			// Registered as a generic listener so it receives both test events and the final report
+			testng.addListener((ITestNGListener) reporter);
+		}
+
+		// disable built-in listeners to reduce load
+		testng.setUseDefaultListeners(false);
+
+		// redirect some debug messages to stderr
+		StudentHelperClass.stdoutToErr();
+
+		// run TestNG. If an exception is thrown, restore streams.
+		Throwable tempEx = null;
+		try {
+			watchdog.start();
+			secInst.setDefaultRestrictions();
+			secInst.setCustomSecurityManager();
+			context.setApiEnabled(true);
+			runInThreadGroup(testng, loader);
+		} catch (Throwable e) {
+			tempEx = e;
+		} finally {
+			watchdog.stop();
+			if (!context.isJsonOutput()) {
+				// restore output if no json
+				StudentHelperClass.restoreStdOut();
+			} else {
+				// redirect output to variable again if json
+				StudentHelperClass.redirectStdOut();
+			}
+			if (tempEx instanceof Exception) {
+				throw (Exception) tempEx;
+			} else if (tempEx instanceof Error) {
+				throw (Error) tempEx;
+			}
+		}
+
+		TestResults results = null;
+		// if a custom listener was specified
+		if (customListener != null) {
+			// TODO: untested functionality
+			// try to pull results from the first IBaseStudentReporter
+			for (IReporter otherReporter : testng.getReporters()) {
+				if (otherReporter instanceof IBaseStudentReporter) {
+					results = ((IBaseStudentReporter) otherReporter).getResults();
+					break;
+				}
+			}
+		// otherwise get from our default StudentReporter
+		} else {
+			results = reporter.getResults();
+		}
+
+		context.setResults(results);
+
+		// if JSON specified
+		if (context.isJsonOutput() && results != null) {
+			context.getJson().put("percent", results.getPercent());
+			for (SingleTest t : results.getResultList()) {
+				context.getSingleResults().put(new JSONObject()
+						.put("name", t.getName())
+						.put("code", t.getCode())
+						.put("percent", t.getPercent())
+						.put("output", t.getErrorOutput()));
+			}
+		}
+
+		// try to print out all results
+		try {
+			if (results.getOutput() != null) {
+				System.out.print(results.getOutput());
+			} else {
+				throw new NullPointerException("results.getOutput() is null");
+			}
+		} catch (Exception e) {
+			System.out.println("Error getting test results.");
+			log("Result object was null, are reporters ok?");
+			throw e;
+		}
+	}
+
+	/**
+	 * Finds the test classes of the test root when there is no testng.xml.
+	 * The class files are read without loading the classes.
+	 * @param loader - class loader containing the compiled tests
+	 * @return suite model listing every test source, classes that could not be found have no type
+	 */
+	private SuiteModel findTestClasses(final GradingClassLoader loader) {
+		List<String> testFilenames = new ArrayList<String>();
+		StudentHelperClass.populateFilenames(testRoot, testFilenames, true);
+		List<TestClassEntry> entries = new ArrayList<TestClassEntry>();
+		for (String testClassName : testFilenames) {
+			TestClassType type = null;
+			ParallelMode mode = ParallelMode.DEFAULT;
+			try {
+				byte[] bytes = loader.getClassBytes(StudentHelperClass.filePathToClassPath(testClassName));
+				if (bytes != null) {
+					ClassFileReader classFile = ClassFileReader.read(bytes);
+					type = StudentHelperClass.getClassType(classFile);
+					Map<String, String> conf = classFile.getAnnotations().get(TestContextConfiguration.class.getName());
+					if (conf != null && conf.containsKey("parallel")) {
+						mode = ParallelMode.valueOf(conf.get("parallel"));
+					}
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				StudentLogger.log(String.format("Could not read class file of %s: %s", testClassName, e.getMessage()));
+				type = null;
+			}
+			if (type == null) {
+				// reported when the suites are created
+				incompleteTests = true;
+			}
+			entries.add(new TestClassEntry(testClassName, type, mode));
+		}
+		return new SuiteModel(entries);
+	}
+
+	/**
+	 * Creates the suites of a run from a suite model, every test class is a test of its own.
+	 * @param model - test classes found in the test root
+	 * @param loader - class loader containing the compiled tests
+	 * @return sequential suite and suite of the classes running in parallel, empty suites are left out
+	 */
+	private List<XmlSuite> createSuites(final SuiteModel model, final GradingClassLoader loader) {
+		List<XmlSuite> suites = new ArrayList<XmlSuite>();
+		XmlSuite suite = new XmlSuite();
+		suite.setName(testRoot.getName());
+		// every class is a test of its own, so classes run in parallel as tests of a parallel suite
+		XmlSuite parallelSuite = new XmlSuite();
+		parallelSuite.setName(testRoot.getName() + " (parallel)");
+		parallelSuite.setParallel(XmlSuite.ParallelMode.TESTS);
+		parallelSuite.setThreadCount(threadCount);
+		for (TestClassEntry entry : model.getTestClasses()) {
+			String testClassName = entry.getFileName();
+			String className = StudentHelperClass.filePathToClassPath(testClassName);
+			// confirm the existence of a compiled class. The class is loaded by TestNG when it is run,
+			// through the context class loader of the runner thread
+			if (entry.getType() == null || !loader.hasClass(className)) {
+				StudentLogger.log("Class not found: " + testClassName);
+				incompleteTests = true;
+				continue;
+			}
+			ParallelMode mode = entry.getParallelMode() != ParallelMode.DEFAULT ? entry.getParallelMode() : parallelMode;
+			XmlSuite target = mode == ParallelMode.NONE ? suite : parallelSuite;
+			XmlTest test;
+			List<XmlClass> classes;
+			switch (entry.getType()) {
+			case JUNIT:
+				test = new XmlTest(target);
+				classes = new ArrayList<XmlClass>();
+				classes.add(new XmlClass(className, false));
+				test.setXmlClasses(classes);
+				test.setName(className + " (JUnit)");
+				test.setJunit(true);
+				StudentLogger.log(String.format("Found JUnit class %s", testClassName));
+				break;
+			case TESTNG:
+				test = new XmlTest(target);
+				classes = new ArrayList<XmlClass>();
+				classes.add(new XmlClass(className, false));
+				test.setXmlClasses(classes);
+				if (mode == ParallelMode.METHODS) {
+					test.setParallel(XmlSuite.ParallelMode.METHODS);
+					test.setThreadCount(threadCount);
+				}
+				test.setName(className + " (TestNG)");
+				StudentLogger.log(String.format("Found TestNG class %s", testClassName));
+				break;
+			case MIXED:
+				StudentLogger.log(String.format("Class %s contains mixed test annotations!", testClassName));
+				StudentLogger.log("Skipping " + testClassName);
+				break;
+			default:
+				StudentLogger.log("Skipping " + testClassName);
+			}
+		}
+
+		/* older implementation of the above
+		List<XmlClass> junitClasses = new ArrayList<XmlClass>();
+		List<XmlClass> testngClasses = new ArrayList<XmlClass>();
+
+		for (String testClass : testFilenames) {
+			try {
+				Class.forName(StudentHelperClass.filePathToClassPath(testClass)); // confirm the existence of a compiled class
+				XmlClass c = new XmlClass(StudentHelperClass.filePathToClassPath(testClass));
+				if (StudentHelperClass.isJUnitClass(testClass)) {
+					log(String.format("Found JUnit class %s", testClass));
+					junitClasses.add(c);
+				} else {
+					log(String.format("Found TestNG class %s", testClass));
+					testngClasses.add(c);
+				}
+			} catch (ClassNotFoundException e) {
+				log(e.toString());
+				log("Skipping " + testClass);
+				incompleteTests = true;
+			}
+		}
+		if (junitClasses.size() > 0) {
+			// create test for JUnit
+			XmlTest testJunit = new XmlTest(suite);
+			testJunit.setJUnit(true);
+			testJunit.setName("JUnit tests");
+			testJunit.setXmlClasses(junitClasses);
+		}
+		if (testngClasses.size() > 0) {
+			// and for TestNG
+			XmlTest testTestng = new XmlTest(suite);
+			testTestng.setName("TestNG tests");
+			testTestng.setXmlClasses(testngClasses);
+		}
+		if ((testngClasses.size() + junitClasses.size()) == 0) {
+			log("Warning: nothing to test?");
+		}
+		*/
+
+		if (!suite.getTests().isEmpty() || parallelSuite.getTests().isEmpty()) {
+			suites.add(suite);
+		}
+		if (!parallelSuite.getTests().isEmpty()) {
+			suites.add(parallelSuite);
+		}
+		return suites;
+	}
+
+	/**
+	 * Finds the custom listener of testng.xml. TestNG does not appear to have an interface to
+	 * examine xml contents, so the xml is parsed manually. If the listener is not a reporter,
+	 * you have to add it as well.
+	 * @param xmlFile - testng.xml
+	 * @return name of the last listener or null if there is none
+	 * @throws IOException if the file cannot be read
+	 */
+	private static String findCustomListener(final File xmlFile) throws IOException {
+		String customListener = null;
+		String xmlData = new String(Files.readAllBytes(xmlFile.toPath()), StandardCharsets.UTF_8);
+		Matcher m = LISTENER_PATTERN.matcher(xmlData);
+		while (m.find()) {
+			customListener = m.group(1);
+		}
+		return customListener;
+	}
+
+	/**
+	 * Looks for testng.xml in the test root, then in the content root.
+	 * @return testng.xml or null if there is none
+	 */
+	private File findDefaultTestNGXml() {
+		if (!context.usesDiskWorkspace()) {
+			return context.getSourceOverlay(contentRoot, testRoot).getFile("testng.xml");
+		}
+		File f = new File(tempRoot, "testng.xml");
+		return f.isFile() ? f : null;
+	}
+
+	/**
+	 * Runs TestNG in a thread belonging to the thread group of the current test run, so any threads
+	 * started by the tests can be found and stopped later.
+	 * @param testng TestNG instance to run
+	 * @param loader class loader containing the compiled tests
+	 * @throws Throwable anything thrown by TestNG
+	 */
+	private void runInThreadGroup(final TestNG testng, final ClassLoader loader) throws Throwable {
+		Throwable[] thrown = new Throwable[1];
+		Thread runner = new Thread(context.getThreadGroup(), () -> {
+			try {
+				testng.run();
+			} catch (Throwable e) {
+				thrown[0] = e;
+			}
+		}, context.getThreadGroup().getName() + "-runner");
+		runner.setContextClassLoader(loader);
+		runner.start();
+		runner.join();
+		if (thrown[0] != null) {
+			throw thrown[0];
+		}
+	}
+}
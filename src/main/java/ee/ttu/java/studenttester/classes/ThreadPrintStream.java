@@ -0,0 +1,263 @@
+package ee.ttu.java.studenttester.classes;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * PrintStream that forwards everything to a stream chosen separately for every thread.
+ * It is installed once as System.out and System.err, so test runs can redirect or mute
+ * their own output without affecting other runs. Threads inherit the target of the thread
+ * that started them. The stream does not lock itself, writes are synchronized only
+ * by the target stream.
+ * @author Andres
+ *
+ */
+public final class ThreadPrintStream extends PrintStream {
+
+	private static ThreadPrintStream out, err;
+
+	/**
+	 * Stream used by threads that have not chosen a target.
+	 */
+	private final PrintStream defaultTarget;
+	private final InheritableThreadLocal<PrintStream> target = new InheritableThreadLocal<PrintStream>();
+
+	/**
+	 * Creates a new stream.
+	 * @param defaultTarget - stream used by threads that have not chosen a target
+	 */
+	private ThreadPrintStream(final PrintStream defaultTarget) {
+		super(new OutputStream() {
+			public void write(final int b) {
+			}
+		});
+		this.defaultTarget = defaultTarget;
+	}
+
+	/**
+	 * Replaces System.out and System.err with thread specific streams, if not done already.
+	 */
+	public static synchronized void install() {
+		if (out == null) {
+			out = new ThreadPrintStream(System.out);
+			err = new ThreadPrintStream(System.err);
+		}
+		if (System.out != out) {
+			System.setOut(out);
+		}
+		if (System.err != err) {
+			System.setErr(err);
+		}
+	}
+
+	/**
+	 * Gets the stream installed as System.out.
+	 * @return thread specific stdout
+	 */
+	public static ThreadPrintStream out() {
+		install();
+		return out;
+	}
+
+	/**
+	 * Gets the stream installed as System.err.
+	 * @return thread specific stderr
+	 */
+	public static ThreadPrintStream err() {
+		install();
+		return err;
+	}
+
+	/**
+	 * Gets the stream the current thread writes to.
+	 * @return target stream
+	 */
+	public PrintStream getTarget() {
+		PrintStream current = target.get();
+		return current == null ? defaultTarget : current;
+	}
+
+	/**
+	 * Sets the stream the current thread and threads started from it write to.
+	 * @param stream - target stream, null restores the default
+	 */
+	public void setTarget(final PrintStream stream) {
+		if (stream == null || stream == this) {
+			target.remove();
+		} else {
+			target.set(stream);
+		}
+	}
+
+	/**
+	 * Gets the stream used by threads that have not chosen a target.
+	 * @return original stream
+	 */
+	public PrintStream getDefaultTarget() {
+		return defaultTarget;
+	}
+
+	@Override
+	public void flush() {
+		getTarget().flush();
+	}
+
+	@Override
+	public void close() {
+		// the original streams must stay open
+		flush();
+	}
+
+	@Override
+	public boolean checkError() {
+		return getTarget().checkError();
+	}
+
+	@Override
+	public void write(final int b) {
+		getTarget().write(b);
+	}
+
+	@Override
+	public void write(final byte[] buf, final int off, final int len) {
+		getTarget().write(buf, off, len);
+	}
+
+	@Override
+	public void print(final boolean b) {
+		getTarget().print(b);
+	}
+
+	@Override
+	public void print(final char c) {
+		getTarget().print(c);
+	}
+
+	@Override
+	public void print(final int i) {
+		getTarget().print(i);
+	}
+
+	@Override
+	public void print(final long l) {
+		getTarget().print(l);
+	}
+
+	@Override
+	public void print(final float f) {
+		getTarget().print(f);
+	}
+
+	@Override
+	public void print(final double d) {
+		getTarget().print(d);
+	}
+
+	@Override
+	public void print(final char[] s) {
+		getTarget().print(s);
+	}
+
+	@Override
+	public void print(final String s) {
+		getTarget().print(s);
+	}
+
+	@Override
+	public void print(final Object obj) {
+		getTarget().print(obj);
+	}
+
+	@Override
+	public void println() {
+		getTarget().println();
+	}
+
+	@Override
+	public void println(final boolean x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public void println(final char x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public void println(final int x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public void println(final long x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public void println(final float x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public void println(final double x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public void println(final char[] x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public void println(final String x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public void println(final Object x) {
+		getTarget().println(x);
+	}
+
+	@Override
+	public PrintStream printf(final String format, final Object... args) {
+		getTarget().printf(format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream printf(final Locale l, final String format, final Object... args) {
+		getTarget().printf(l, format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream format(final String format, final Object... args) {
+		getTarget().format(format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream format(final Locale l, final String format, final Object... args) {
+		getTarget().format(l, format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(final CharSequence csq) {
+		getTarget().append(csq);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(final CharSequence csq, final int start, final int end) {
+		getTarget().append(csq, start, end);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(final char c) {
+		getTarget().append(c);
+		return this;
+	}
+}
@@ -0,0 +1,343 @@
+package ee.ttu.java.studenttester.classes;
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import ee.ttu.java.studenttester.exceptions.StudentTesterException;
+
+/**
+ * Keeps a number of tester JVMs running and grades submissions in them. A submission that
+ * exits the JVM, runs out of memory or leaves threads behind can only break its own worker,
+ * which is then replaced. Workers are also replaced after a number of submissions or when
+ * their heap grows too large.
+ * <br>The workers are started with -worker and talk to the pool over stdin and stdout,
+ * one line of JSON per request and reply.
+ * @author Andres
+ *
+ */
+public final class WorkerPool implements AutoCloseable {
+
+	/**
+	 * Default amount of submissions graded by a worker before it is replaced.
+	 */
+	public static final int DEFAULT_MAX_JOBS = 100;
+	/**
+	 * Default heap usage in megabytes after which a worker is replaced.
+	 */
+	public static final int DEFAULT_MAX_HEAP = 512;
+	/**
+	 * Default time in milliseconds a submission may take before its worker is killed.
+	 */
+	public static final long DEFAULT_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+	/**
+	 * Time in milliseconds between checks of a closed pool and missing workers while waiting.
+	 */
+	private static final long POLL_INTERVAL = 500;
+
+	private final int size, maxJobs;
+	private final long maxHeapBytes;
+	private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<Worker>();
+	private final List<Worker> workers = new ArrayList<Worker>();
+	private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "WorkerPool-watchdog");
+		t.setDaemon(true);
+		return t;
+	});
+	private final AtomicInteger restarts = new AtomicInteger();
+	private long timeout = DEFAULT_TIMEOUT;
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a new pool. Workers are started with {@link #start()}.
+	 * @param size - amount of worker JVMs
+	 * @param maxJobs - amount of submissions graded by a worker before it is replaced
+	 * @param maxHeapMegabytes - heap usage after which a worker is replaced
+	 */
+	public WorkerPool(final int size, final int maxJobs, final int maxHeapMegabytes) {
+		this.size = Math.max(1, size);
+		this.maxJobs = Math.max(1, maxJobs);
+		this.maxHeapBytes = maxHeapMegabytes * 1024L * 1024L;
+	}
+
+	/**
+	 * Sets the time a submission may take before its worker is killed.
+	 * @param timeout - time in milliseconds
+	 */
+	public void setTimeout(final long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Starts the workers.
+	 * @throws IOException if a JVM could not be started
+	 */
+	public synchronized void start() throws IOException {
+		while (workers.size() < size) {
+			Worker worker = new Worker();
+			workers.add(worker);
+			idleWorkers.add(worker);
+		}
+	}
+
+	/**
+	 * Gets the amount of workers that have been replaced.
+	 * @return replaced workers
+	 */
+	public int getRestartCount() {
+		return restarts.get();
+	}
+
+	/**
+	 * Grades a submission in the next idle worker, waiting if all workers are busy.
+	 * @param arguments - command line arguments of the submission
+	 * @return results in JSON format
+	 * @throws StudentTesterException if the pool is closed, no worker could be started
+	 * or waiting was interrupted
+	 */
+	public String grade(final String[] arguments) throws StudentTesterException {
+		Worker worker = takeWorker();
+		String reply = null;
+		String error = null;
+		try {
+			reply = worker.send(new JSONObject().put("args", new JSONArray(Arrays.asList(arguments))).toString());
+			if (reply == null) {
+				error = "The worker stopped unexpectedly";
+			}
+		} catch (IOException e) {
+			error = "Could not communicate with the worker: " + e.getMessage();
+		}
+
+		JSONObject results = null;
+		long heapUsed = 0;
+		if (error == null) {
+			try {
+				results = new JSONObject(reply);
+				heapUsed = results.optLong("workerHeap");
+				results.remove("workerHeap");
+			} catch (RuntimeException e) {
+				error = "Invalid reply from the worker: " + e.getMessage();
+			}
+		}
+		if (error != null || worker.jobs >= maxJobs || heapUsed > maxHeapBytes) {
+			log(String.format("Replacing worker after %d submissions, heap used %d MB%s", worker.jobs,
+					heapUsed / 1024 / 1024, error == null ? "" : ", " + error));
+			worker = replace(worker);
+		}
+		if (worker != null) {
+			idleWorkers.add(worker);
+		}
+		if (error != null) {
+			return StudentTesterServer.getErrorJson(error);
+		}
+		return results.toString();
+	}
+
+	/**
+	 * Waits for an idle worker. Workers that could not be replaced earlier are started again
+	 * while waiting, and waiting ends when the pool is closed.
+	 * @return idle worker
+	 * @throws StudentTesterException if the pool is closed, no worker could be started
+	 * or waiting was interrupted
+	 */
+	private Worker takeWorker() throws StudentTesterException {
+		while (true) {
+			if (closed) {
+				throw new StudentTesterException("The worker pool has been closed");
+			}
+			Worker worker;
+			try {
+				worker = idleWorkers.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new StudentTesterException("Interrupted while waiting for a worker", e);
+			}
+			if (worker != null) {
+				return worker;
+			}
+			if (!refill()) {
+				throw new StudentTesterException("Could not start any workers");
+			}
+		}
+	}
+
+	/**
+	 * Starts a worker in place of one that could not be replaced.
+	 * @return false if there are no workers left and none could be started
+	 */
+	private synchronized boolean refill() {
+		if (closed || workers.size() >= size) {
+			return true;
+		}
+		try {
+			Worker worker = new Worker();
+			workers.add(worker);
+			idleWorkers.add(worker);
+		} catch (IOException e) {
+			log("Could not start a new worker: " + e.getMessage());
+		}
+		return !workers.isEmpty();
+	}
+
+	/**
+	 * Stops a worker and starts a new one in its place.
+	 * @param worker - worker to stop
+	 * @return new worker or null if the pool is closed or the JVM could not be started,
+	 * in which case the next submission waiting for a worker tries again
+	 */
+	private synchronized Worker replace(final Worker worker) {
+		worker.destroy();
+		workers.remove(worker);
+		if (closed) {
+			return null;
+		}
+		restarts.incrementAndGet();
+		try {
+			Worker replacement = new Worker();
+			workers.add(replacement);
+			return replacement;
+		} catch (IOException e) {
+			log("Could not start a new worker: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Stops all workers.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		for (Worker worker : workers) {
+			worker.destroy();
+		}
+		workers.clear();
+		idleWorkers.clear();
+		watchdog.shutdownNow();
+	}
+
+	/**
+	 * Runs this JVM as a worker, grading requests from stdin until it is closed.
+	 * Stdout is reserved for replies, anything else printed to it goes to stderr.
+	 */
+	public static void runWorker() {
+		PrintStream replies = System.out;
+		InputStream requests = System.in;
+		// submissions must not read requests or write into replies
+		System.setOut(System.err);
+		System.setIn(new ByteArrayInputStream(new byte[0]));
+		ThreadPrintStream.install();
+		CompilerService.warmUp();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(requests, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				String reply;
+				try {
+					JSONArray args = new JSONObject(line).getJSONArray("args");
+					String[] arguments = new String[args.length()];
+					for (int i = 0; i < arguments.length; i++) {
+						arguments[i] = args.getString(i);
+					}
+					reply = StudentTesterServer.grade(arguments);
+				} catch (StudentTesterException | RuntimeException e) {
+					log("Invalid request: " + e.getMessage());
+					reply = StudentTesterServer.getErrorJson(e.getMessage());
+				}
+				Runtime runtime = Runtime.getRuntime();
+				replies.println(new JSONObject(reply)
+						.put("workerHeap", runtime.totalMemory() - runtime.freeMemory())
+						.toString());
+				replies.flush();
+			}
+		} catch (IOException e) {
+			log(e.getMessage());
+		}
+	}
+
+	/**
+	 * A single worker JVM.
+	 */
+	private final class Worker {
+
+		private final Process process;
+		private final PrintWriter requests;
+		private final BufferedReader replies;
+		private int jobs = 0;
+
+		/**
+		 * Starts a worker JVM with the same class path and JVM options as this one.
+		 * @throws IOException if the JVM could not be started
+		 */
+		Worker() throws IOException {
+			List<String> command = new ArrayList<String>();
+			command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+			command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(StudentTesterMain.class.getName());
+			command.add("-worker");
+			process = new ProcessBuilder(command)
+					.redirectError(ProcessBuilder.Redirect.INHERIT)
+					.start();
+			requests = new PrintWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+			replies = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Sends a request and waits for the reply. The worker is killed if it does not reply in time.
+		 * @param request - request in JSON format
+		 * @return reply or null if the worker died
+		 * @throws IOException if the worker cannot be reached
+		 */
+		String send(final String request) throws IOException {
+			jobs++;
+			requests.println(request);
+			requests.flush();
+			if (requests.checkError()) {
+				throw new IOException("Could not send the request");
+			}
+			ScheduledFuture<?> kill = watchdog.schedule(() -> {
+				log("Worker did not reply in time, killing it");
+				process.destroyForcibly();
+			}, timeout, TimeUnit.MILLISECONDS);
+			try {
+				return replies.readLine();
+			} finally {
+				kill.cancel(false);
+			}
+		}
+
+		/**
+		 * Stops the JVM.
+		 */
+		void destroy() {
+			requests.close();
+			process.destroyForcibly();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package ee.ttu.java.studenttester.classes;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every run its own workspace folder under a base folder and removes the workspaces
+ * when they are no longer needed. A run holds a lock on a file next to its workspace while
+ * it is running. The operating system releases the lock if the process dies, so a workspace
+ * whose lock can be taken was left behind by a crashed run and is removed by the next sweep.
+ * @author Andres
+ *
+ */
+public final class WorkspaceJanitor {
+
+	/**
+	 * Prefix of workspace folder names.
+	 */
+	public static final String PREFIX = "run-";
+	/**
+	 * Minutes between sweeps of the base folders.
+	 */
+	private static final long SWEEP_INTERVAL = 5;
+	private static final String LOCK_SUFFIX = ".lock";
+	private static final String DELETED_MARK = ".deleted-";
+
+	/**
+	 * Locks of the workspaces of this JVM.
+	 */
+	private static final Map<File, FileChannel> LEASES = new ConcurrentHashMap<File, FileChannel>();
+	/**
+	 * Base folders swept periodically.
+	 */
+	private static final Set<File> BASES = ConcurrentHashMap.newKeySet();
+	private static ScheduledExecutorService janitor;
+
+	private WorkspaceJanitor() {
+
+	}
+
+	/**
+	 * Creates a new workspace. The base folder is swept for abandoned workspaces in the background.
+	 * @param base - folder containing workspaces
+	 * @return empty folder used only by the caller
+	 * @throws IOException if the folder cannot be created or locked
+	 */
+	public static File allocate(final File base) throws IOException {
+		Files.createDirectories(base.toPath());
+		File workspace = Files.createTempDirectory(base.toPath(), PREFIX).toFile();
+		FileChannel channel = FileChannel.open(getLockFile(workspace).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			channel.lock();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		LEASES.put(workspace, channel);
+		if (BASES.add(base.getAbsoluteFile())) {
+			getJanitor().execute(() -> sweep(base));
+		}
+		log("Allocated workspace " + workspace);
+		return workspace;
+	}
+
+	/**
+	 * Removes a workspace in the background.
+	 * @param workspace - folder from {@link #allocate(File)}
+	 */
+	public static void release(final File workspace) {
+		StudentHelperClass.deleteFolderLater(workspace);
+		FileChannel channel = LEASES.remove(workspace);
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				log("Could not release workspace lock: " + e.getMessage());
+			}
+		}
+		if (!getLockFile(workspace).delete()) {
+			log("Could not delete lock of " + workspace);
+		}
+	}
+
+	/**
+	 * Removes workspaces of runs that are not running anymore. Sweeps are run one at a time.
+	 * @param base - folder containing workspaces
+	 * @return amount of workspaces removed
+	 */
+	public static synchronized int sweep(final File base) {
+		File[] workspaces = base.listFiles((file) -> file.isDirectory() && file.getName().startsWith(PREFIX)
+				&& !file.getName().contains(DELETED_MARK));
+		if (workspaces == null) {
+			return 0;
+		}
+		int removed = 0;
+		for (File workspace : workspaces) {
+			if (LEASES.containsKey(workspace) || !isAbandoned(workspace)) {
+				continue;
+			}
+			log("Removing abandoned workspace " + workspace);
+			StudentHelperClass.deleteFolderLater(workspace);
+			getLockFile(workspace).delete();
+			removed++;
+		}
+		return removed;
+	}
+
+	/**
+	 * Checks if nobody holds the lock of a workspace.
+	 * @param workspace - workspace folder
+	 * @return true if the lock could be taken
+	 */
+	private static boolean isAbandoned(final File workspace) {
+		File lockFile = getLockFile(workspace);
+		if (!lockFile.exists()) {
+			// the lock is created right after the folder, give the owner some time
+			return System.currentTimeMillis() - workspace.lastModified() > TimeUnit.MINUTES.toMillis(SWEEP_INTERVAL);
+		}
+		try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+			FileLock lock = channel.tryLock();
+			if (lock == null) {
+				return false;
+			}
+			lock.release();
+			return true;
+		} catch (OverlappingFileLockException e) {
+			// locked by this JVM
+			return false;
+		} catch (IOException e) {
+			log("Could not check workspace lock: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private static File getLockFile(final File workspace) {
+		return new File(workspace.getAbsoluteFile().getParentFile(), workspace.getName() + LOCK_SUFFIX);
+	}
+
+	private static synchronized ScheduledExecutorService getJanitor() {
+		if (janitor == null) {
+			janitor = Executors.newSingleThreadScheduledExecutor(StudentHelperClass.newDaemonThreadFactory("janitor"));
+			janitor.scheduleWithFixedDelay(() -> BASES.forEach(WorkspaceJanitor::sweep),
+					SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.MINUTES);
+		}
+		return janitor;
+	}
+}
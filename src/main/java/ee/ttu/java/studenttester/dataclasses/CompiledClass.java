@@ -0,0 +1,39 @@
+package ee.ttu.java.studenttester.dataclasses;
+
+import java.io.File;
+
+/**
+ * Data class for holding the bytecode of a class compiled in memory.
+ * @author Andres
+ *
+ */
+public class CompiledClass {
+
+	private final String name;
+	private final byte[] bytes;
+	private final File root;
+
+	/**
+	 * Creates a compiled class.
+	 * @param name - binary name of the class
+	 * @param bytes - contents of the class file
+	 * @param root - folder containing the source of the class, may be null
+	 */
+	public CompiledClass(final String name, final byte[] bytes, final File root) {
+		this.name = name;
+		this.bytes = bytes;
+		this.root = root;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public File getRoot() {
+		return root;
+	}
+}
@@ -0,0 +1,88 @@
+package ee.ttu.java.studenttester.dataclasses;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ee.ttu.java.studenttester.enums.ParallelMode;
+import ee.ttu.java.studenttester.enums.TestClassType;
+
+/**
+ * Data class for holding what was found out about the tests of a test root: the test classes
+ * with their types and settings, or the custom listener of testng.xml. Contains only names, so
+ * it can be shared by submissions loading the classes with different class loaders.
+ * @author Andres
+ *
+ */
+public class SuiteModel {
+
+	private final boolean fromXml;
+	private final String listener;
+	private final List<TestClassEntry> testClasses;
+
+	/**
+	 * Creates a model of tests listed in testng.xml.
+	 * @param listener - custom listener named in the file, may be null
+	 */
+	public SuiteModel(final String listener) {
+		this.fromXml = true;
+		this.listener = listener;
+		this.testClasses = Collections.emptyList();
+	}
+
+	/**
+	 * Creates a model of tests found in the test root.
+	 * @param testClasses - test classes in the order they are run
+	 */
+	public SuiteModel(final List<TestClassEntry> testClasses) {
+		this.fromXml = false;
+		this.listener = null;
+		this.testClasses = Collections.unmodifiableList(new ArrayList<TestClassEntry>(testClasses));
+	}
+
+	public boolean isFromXml() {
+		return fromXml;
+	}
+
+	public String getListener() {
+		return listener;
+	}
+
+	public List<TestClassEntry> getTestClasses() {
+		return testClasses;
+	}
+
+	/**
+	 * Test class found in the test root.
+	 */
+	public static class TestClassEntry {
+
+		private final String fileName;
+		private final TestClassType type;
+		private final ParallelMode parallelMode;
+
+		/**
+		 * Creates an entry.
+		 * @param fileName - path of the source relative to the test root
+		 * @param type - framework of the class
+		 * @param parallelMode - mode set by the class, {@link ParallelMode#DEFAULT} if none
+		 */
+		public TestClassEntry(final String fileName, final TestClassType type, final ParallelMode parallelMode) {
+			this.fileName = fileName;
+			this.type = type;
+			this.parallelMode = parallelMode;
+		}
+
+		public String getFileName() {
+			return fileName;
+		}
+
+		public TestClassType getType() {
+			return type;
+		}
+
+		public ParallelMode getParallelMode() {
+			return parallelMode;
+		}
+	}
+}
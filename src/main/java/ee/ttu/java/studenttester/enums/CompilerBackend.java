@@ -0,0 +1,69 @@
+package ee.ttu.java.studenttester.enums;
+
+import ee.ttu.java.studenttester.interfaces.ICompilerBackend;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+public enum CompilerBackend implements ICompilerBackend {
+    /**
+     * The compiler of the JDK, classes with errors are not compiled.
+     */
+    JAVAC(ToolProvider::getSystemJavaCompiler, Collections.<String>emptyList(), false),
+    /**
+     * Eclipse compiler, must be on the classpath. Broken methods are compiled into methods
+     * throwing an error, so only the tests using them fail.
+     */
+    ECJ(CompilerBackend::loadEclipseCompiler, Arrays.asList("-proceedOnError", "-nowarn"), true);
+
+    /**
+     * Class implementing the compiler API in the ECJ jar.
+     */
+    private static final String ECJ_CLASS = "org.eclipse.jdt.internal.compiler.tool.EclipseCompiler";
+
+    private final Supplier<JavaCompiler> compilerSupplier;
+    private final List<String> defaultOptions;
+    private final boolean proceedOnError;
+    private JavaCompiler compiler;
+
+    CompilerBackend(Supplier<JavaCompiler> compilerSupplier, List<String> defaultOptions, boolean proceedOnError) {
+        this.compilerSupplier = compilerSupplier;
+        this.defaultOptions = defaultOptions;
+        this.proceedOnError = proceedOnError;
+    }
+
+    public synchronized JavaCompiler getCompiler() {
+        if (compiler == null) {
+            compiler = compilerSupplier.get();
+        }
+        return compiler;
+    }
+
+    public List<String> getDefaultOptions() {
+        return defaultOptions;
+    }
+
+    public boolean isProceedOnError() {
+        return proceedOnError;
+    }
+
+    /**
+     * Loads the Eclipse compiler by name, so it is needed only if it is used.
+     * @return compiler or null if ECJ is not on the classpath
+     */
+    private static JavaCompiler loadEclipseCompiler() {
+        try {
+            return (JavaCompiler) Class.forName(ECJ_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log("Could not load ECJ: " + e);
+            return null;
+        }
+    }
+}
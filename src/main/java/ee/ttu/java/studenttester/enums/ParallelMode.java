@@ -0,0 +1,25 @@
+package ee.ttu.java.studenttester.enums;
+
+/**
+ * How the unit tests of a submission are run in parallel.
+ * @author Andres
+ *
+ */
+public enum ParallelMode {
+	/**
+	 * Use the mode given to the tester, only used in annotations.
+	 */
+	DEFAULT,
+	/**
+	 * Run test classes and their methods one at a time.
+	 */
+	NONE,
+	/**
+	 * Run test classes in parallel, the methods of a class one at a time.
+	 */
+	CLASSES,
+	/**
+	 * Run test classes and the methods of every class in parallel.
+	 */
+	METHODS;
+}
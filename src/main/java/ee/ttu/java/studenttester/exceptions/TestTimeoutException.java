@@ -0,0 +1,18 @@
+package ee.ttu.java.studenttester.exceptions;
+
+/**
+ * Failure of a unit test that ran out of time. The stack trace is where the test was
+ * when the time ran out.
+ * @author Andres
+ *
+ */
+public class TestTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = -3470181655472806911L;
+
+	public TestTimeoutException(String message, StackTraceElement[] stuckAt) {
+		super(message);
+		setStackTrace(stuckAt);
+	}
+
+}
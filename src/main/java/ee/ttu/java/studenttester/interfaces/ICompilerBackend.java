@@ -0,0 +1,29 @@
+package ee.ttu.java.studenttester.interfaces;
+
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+
+/**
+ * Interface for compilers the tester can use.
+ */
+public interface ICompilerBackend {
+    /**
+     * Gets the compiler.
+     * @return compiler or null if it is not available
+     */
+    JavaCompiler getCompiler();
+
+    /**
+     * Gets the options the compiler always needs, given before the user's options.
+     * @return compiler options
+     */
+    List<String> getDefaultOptions();
+
+    /**
+     * Checks if the compiler writes class files for classes with errors, replacing the broken
+     * parts with code that throws an error. Such a compiler can compile everything at once.
+     * @return true if classes with errors are compiled
+     */
+    boolean isProceedOnError();
+}
@@ -0,0 +1,79 @@
+package ee.ttu.java.studenttester.listeners;
+
+import org.json.JSONObject;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import ee.ttu.java.studenttester.classes.GradingEvents;
+
+/**
+ * Listener that writes an event for every unit test as soon as it starts or finishes.
+ * @author Andres
+ *
+ */
+public class EventListener implements ITestListener {
+
+	private final GradingEvents events;
+
+	/**
+	 * Creates a new listener.
+	 * @param events - event stream of the test run
+	 */
+	public EventListener(final GradingEvents events) {
+		this.events = events;
+	}
+
+	@Override
+	public void onTestStart(final ITestResult result) {
+		events.emit("testStarted", getFields(result));
+	}
+
+	@Override
+	public void onTestSuccess(final ITestResult result) {
+		events.emit("testPassed", getFields(result).put("duration", getDuration(result)));
+	}
+
+	@Override
+	public void onTestFailure(final ITestResult result) {
+		JSONObject fields = getFields(result).put("duration", getDuration(result));
+		if (result.getThrowable() != null) {
+			fields.put("message", String.valueOf(result.getThrowable()));
+		}
+		events.emit("testFailed", fields);
+	}
+
+	@Override
+	public void onTestSkipped(final ITestResult result) {
+		events.emit("testSkipped", getFields(result));
+	}
+
+	@Override
+	public void onTestFailedButWithinSuccessPercentage(final ITestResult result) {
+		onTestFailure(result);
+	}
+
+	@Override
+	public void onStart(final ITestContext context) {
+		events.emit("testGroupStarted", new JSONObject().put("name", context.getName()));
+	}
+
+	@Override
+	public void onFinish(final ITestContext context) {
+		events.emit("testGroupFinished", new JSONObject()
+				.put("name", context.getName())
+				.put("passed", context.getPassedTests().size())
+				.put("failed", context.getFailedTests().size())
+				.put("skipped", context.getSkippedTests().size()));
+	}
+
+	private static JSONObject getFields(final ITestResult result) {
+		return new JSONObject()
+				.put("class", result.getTestClass().getName())
+				.put("test", result.getMethod().getMethodName());
+	}
+
+	private static long getDuration(final ITestResult result) {
+		return result.getEndMillis() - result.getStartMillis();
+	}
+}
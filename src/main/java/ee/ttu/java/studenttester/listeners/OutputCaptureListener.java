@@ -0,0 +1,81 @@
+package ee.ttu.java.studenttester.listeners;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+import ee.ttu.java.studenttester.classes.CaptureBuffer;
+import ee.ttu.java.studenttester.classes.GradingContext;
+import ee.ttu.java.studenttester.classes.StudentLogger;
+import ee.ttu.java.studenttester.classes.ThreadPrintStream;
+
+/**
+ * Listener that collects the output of every unit test separately.
+ * The output is still passed on to wherever the thread was writing before,
+ * the copy is stored in the test result attribute {@link #OUTPUT_ATTRIBUTE}.
+ * @author Andres
+ *
+ */
+public class OutputCaptureListener implements IInvokedMethodListener {
+
+	/**
+	 * Name of the test result attribute holding the output.
+	 */
+	public static final String OUTPUT_ATTRIBUTE = "studentTesterOutput";
+
+	private final ThreadLocal<PrintStream> previousTarget = new ThreadLocal<PrintStream>();
+	private final ThreadLocal<CaptureBuffer> buffer = new ThreadLocal<CaptureBuffer>();
+
+	@Override
+	public void beforeInvocation(final IInvokedMethod method, final ITestResult testResult) {
+		if (!method.isTestMethod()) {
+			return;
+		}
+		PrintStream previous = ThreadPrintStream.out().getTarget();
+		GradingContext context = GradingContext.current();
+		CaptureBuffer captured = context == null ? new CaptureBuffer() : context.newCaptureBuffer();
+		previousTarget.set(previous);
+		buffer.set(captured);
+		try {
+			ThreadPrintStream.out().setTarget(new PrintStream(new OutputStream() {
+				@Override
+				public void write(final int b) throws IOException {
+					captured.write(b);
+					previous.write(b);
+				}
+
+				@Override
+				public void write(final byte[] b, final int off, final int len) throws IOException {
+					captured.write(b, off, len);
+					previous.write(b, off, len);
+				}
+
+				@Override
+				public void flush() throws IOException {
+					previous.flush();
+				}
+			}, true, StandardCharsets.UTF_8.name()));
+		} catch (UnsupportedEncodingException e) {
+			StudentLogger.log(e.getMessage());
+		}
+	}
+
+	@Override
+	public void afterInvocation(final IInvokedMethod method, final ITestResult testResult) {
+		if (!method.isTestMethod() || buffer.get() == null) {
+			return;
+		}
+		System.out.flush();
+		ThreadPrintStream.out().setTarget(previousTarget.get());
+		testResult.setAttribute(OUTPUT_ATTRIBUTE, buffer.get().toString());
+		buffer.get().release();
+		previousTarget.remove();
+		buffer.remove();
+	}
+}
@@ -0,0 +1,269 @@
+package ee.ttu.java.studenttester.listeners;
+
+import static ee.ttu.java.studenttester.classes.StudentLogger.log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import ee.ttu.java.studenttester.annotations.Gradeable;
+import ee.ttu.java.studenttester.exceptions.TestTimeoutException;
+
+/**
+ * Listener enforcing time limits on unit tests. Every test gets a time limit of its own, all tests
+ * together get a limit for the whole run. A watchdog thread interrupts a test running over its
+ * limit and, if it is still stuck a moment later, stops the thread. The test fails with
+ * {@link TestTimeoutException} showing where it was stuck, and the remaining tests run as usual.
+ * Tests with a TestNG or JUnit timeout of their own are left to the framework.
+ * @author Andres
+ *
+ */
+public class TimeoutWatchdog implements IInvokedMethodListener, ITestListener {
+
+	/**
+	 * Default time limit of a single test in milliseconds.
+	 */
+	public static final long DEFAULT_TEST_TIMEOUT = 10 * 1000;
+	/**
+	 * Default time limit of all tests together in milliseconds.
+	 */
+	public static final long DEFAULT_SUITE_TIMEOUT = 5 * 60 * 1000;
+
+	/**
+	 * How often the running tests are checked, in milliseconds.
+	 */
+	private static final long TICK = 50;
+	/**
+	 * Time a test has to react to the interrupt before its thread is stopped.
+	 */
+	private static final long GRACE_PERIOD = 1000;
+
+	private final long testTimeout, suiteTimeout;
+	private final Map<Thread, Watch> watches = new ConcurrentHashMap<Thread, Watch>();
+	private long suiteDeadline = Long.MAX_VALUE;
+	private Thread watchdog;
+
+	/**
+	 * Creates a new watchdog.
+	 * @param testTimeout - time limit of a test without a limit of its own in milliseconds, 0 for none
+	 * @param suiteTimeout - time limit of all tests in milliseconds, 0 for none
+	 */
+	public TimeoutWatchdog(final long testTimeout, final long suiteTimeout) {
+		this.testTimeout = testTimeout;
+		this.suiteTimeout = suiteTimeout;
+	}
+
+	/**
+	 * Starts the watchdog thread and the clock of the whole run.
+	 */
+	public synchronized void start() {
+		if (watchdog != null) {
+			return;
+		}
+		if (suiteTimeout > 0) {
+			suiteDeadline = System.currentTimeMillis() + suiteTimeout;
+		}
+		watchdog = new Thread(() -> {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					check(System.currentTimeMillis());
+					Thread.sleep(TICK);
+				}
+			} catch (InterruptedException e) {
+				// stopped
+			}
+		}, "timeout-watchdog");
+		watchdog.setDaemon(true);
+		watchdog.start();
+	}
+
+	/**
+	 * Stops the watchdog thread.
+	 */
+	public synchronized void stop() {
+		if (watchdog != null) {
+			watchdog.interrupt();
+			watchdog = null;
+		}
+		watches.clear();
+	}
+
+	@Override
+	public void onTestStart(final ITestResult result) {
+		if (hasOwnTimeout(result)) {
+			// the framework runs the test in a thread of its own and stops it itself
+			return;
+		}
+		long budget = getTimeout(result);
+		long deadline = budget > 0 ? Math.min(System.currentTimeMillis() + budget, suiteDeadline) : suiteDeadline;
+		if (deadline != Long.MAX_VALUE) {
+			watches.put(Thread.currentThread(), new Watch(result, Thread.currentThread(), deadline,
+					deadline == suiteDeadline ? suiteTimeout : budget));
+		}
+	}
+
+	@Override
+	public void beforeInvocation(final IInvokedMethod method, final ITestResult testResult) {
+		// watched from onTestStart, which is called for JUnit tests as well
+	}
+
+	@Override
+	public void afterInvocation(final IInvokedMethod method, final ITestResult testResult) {
+		if (method.isTestMethod()) {
+			finish(testResult);
+		}
+	}
+
+	@Override
+	public void onTestSuccess(final ITestResult result) {
+		finish(result);
+	}
+
+	@Override
+	public void onTestFailure(final ITestResult result) {
+		finish(result);
+	}
+
+	@Override
+	public void onTestSkipped(final ITestResult result) {
+		finish(result);
+	}
+
+	@Override
+	public void onTestFailedButWithinSuccessPercentage(final ITestResult result) {
+		finish(result);
+	}
+
+	@Override
+	public void onStart(final ITestContext context) {
+	}
+
+	@Override
+	public void onFinish(final ITestContext context) {
+	}
+
+	/**
+	 * Stops watching the test of the current thread, marking it failed if it ran out of time.
+	 * TestNG tests are handled after the invocation and JUnit tests when they are reported.
+	 * @param result - finished test
+	 */
+	private void finish(final ITestResult result) {
+		Watch watch = watches.get(Thread.currentThread());
+		if (watch == null || watch.result != result) {
+			return;
+		}
+		watches.remove(Thread.currentThread());
+		synchronized (watch) {
+			watch.finished = true;
+			if (watch.stuckAt == null) {
+				return;
+			}
+		}
+		// the interrupt may still be pending if the test did not notice it
+		Thread.interrupted();
+		result.setStatus(ITestResult.FAILURE);
+		result.setThrowable(new TestTimeoutException(
+				String.format("Test did not finish within %d ms", watch.budget), watch.stuckAt));
+	}
+
+	/**
+	 * Interrupts tests over their limit and stops the ones ignoring the interrupt.
+	 * @param now - current time
+	 */
+	@SuppressWarnings("deprecation")
+	private void check(final long now) {
+		for (Watch watch : watches.values()) {
+			synchronized (watch) {
+				if (watch.finished || now < watch.deadline) {
+					continue;
+				}
+				if (watch.stuckAt == null) {
+					watch.stuckAt = watch.thread.getStackTrace();
+					log(String.format("Test %s timed out, interrupting", watch.result.getName()));
+					watch.thread.interrupt();
+				} else if (!watch.stopped && now >= watch.deadline + GRACE_PERIOD && isInTest(watch)) {
+					log(String.format("Test %s ignored the interrupt, stopping thread %s",
+							watch.result.getName(), watch.thread.getName()));
+					watch.stopped = true;
+					try {
+						watch.thread.stop();
+					} catch (UnsupportedOperationException e) {
+						log("Cannot stop the thread on this JVM: " + e.getMessage());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks if the thread of a test is still running the test method, so that stopping it
+	 * does not hit the test framework.
+	 * @param watch - watched test
+	 * @return true if the test method is on the stack
+	 */
+	private static boolean isInTest(final Watch watch) {
+		String className = watch.result.getTestClass().getRealClass().getName();
+		String methodName = watch.result.getMethod().getMethodName();
+		for (StackTraceElement element : watch.thread.getStackTrace()) {
+			if (element.getClassName().equals(className) && element.getMethodName().equals(methodName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a test has a timeout of TestNG or JUnit.
+	 * @param result - test
+	 * @return true if the framework limits the time of the test
+	 */
+	private static boolean hasOwnTimeout(final ITestResult result) {
+		org.junit.Test junitTest = result.getMethod().getConstructorOrMethod().getMethod()
+				.getAnnotation(org.junit.Test.class);
+		return result.getMethod().getTimeOut() > 0 || junitTest != null && junitTest.timeout() > 0;
+	}
+
+	/**
+	 * Gets the time limit of a test.
+	 * @param result - test
+	 * @return limit from {@link Gradeable#timeout()} or the default limit, 0 for none
+	 */
+	private long getTimeout(final ITestResult result) {
+		Gradeable gradeable = result.getMethod().getConstructorOrMethod().getMethod().getAnnotation(Gradeable.class);
+		if (gradeable != null && gradeable.timeout() > 0) {
+			return gradeable.timeout();
+		}
+		return testTimeout;
+	}
+
+	/**
+	 * Test being watched.
+	 */
+	private static final class Watch {
+
+		private final ITestResult result;
+		private final Thread thread;
+		private final long deadline;
+		/**
+		 * Limit reported in the failure message.
+		 */
+		private final long budget;
+		/**
+		 * Stack of the test when its time ran out, null while there is time left.
+		 */
+		private StackTraceElement[] stuckAt;
+		private boolean stopped, finished;
+
+		Watch(final ITestResult result, final Thread thread, final long deadline, final long budget) {
+			this.result = result;
+			this.thread = thread;
+			this.deadline = deadline;
+			this.budget = budget;
+		}
+	}
+}
@@ -1,362 +1,1173 @@
-package ee.ttu.java.studenttester.tests;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Method;
-import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-import java.util.Scanner;
-
-import ee.ttu.java.studenttester.classes.StudentTesterMain;
-import org.json.JSONObject;
-import org.testng.Assert;
-import org.testng.annotations.AfterClass;
-import org.testng.annotations.AfterMethod;
-import org.testng.annotations.BeforeClass;
-import org.testng.annotations.BeforeMethod;
-import org.testng.annotations.Test;
-
-import ee.ttu.java.studenttester.classes.StudentHelperClass;
-
-/**
- * Tests for StudentTester.
- * Instructions on how to create a new unit test:
- * <br> - Inside "templates" package, write your code in a txt file
- * <br> - The template names should follow the format SomeCode and SomeCodeTest
- * <br> - The unit test testing with these templates should be named testSomeCode
- * <br> - Autogenerated names are provided by variables currentStudentCodeName and currentTestName
- * <br> - First, import the templates (getFileTemplate), perform necessary operations on them to
- * make them valid Java classes. Then, add these strings to a valid category (addCode, addTest).
- * Finally, call getTestResults. Results are returned from StudentTester as a JSON object.
- * @author Andres
- */
-public class Tests {
-
-	@Test(description = "Check if a simple test can receive a result from a class.")
-	public void testTrivialStudent() {
-		JSONObject results = getSimpleTestResults();
-		Assert.assertTrue(results.getString("output").contains("Grade: 100"));
-		Assert.assertTrue(results.getString("output").contains("Overall grade: 100"));
-		Assert.assertEquals(results.getInt("percent"), 100);
-	}
-
-	@Test(description = "Check if a simple JUnit test can receive a result from a class.")
-	public void testTrivialStudentJUnit() {
-		JSONObject results = getSimpleTestResults();
-		Assert.assertTrue(results.getString("output").contains("Grade: 100"));
-		Assert.assertTrue(results.getString("output").contains("Overall grade: 100"));
-		Assert.assertEquals(results.getInt("percent"), 100);
-	}
-
-	@Test(description = "Check two exceptions. One should succeed, the other should not.")
-	public void testTwoExceptions() {
-		JSONObject results = getSimpleTestResults();
-		Assert.assertTrue(results.getString("output").contains("Grade: 50"));
-		Assert.assertTrue(results.getString("output").contains("Overall grade: 50"));
-		Assert.assertEquals(results.getInt("percent"), 50);
-	}
-
-	@Test(description = "Create a muted test. Test names and scores should not be visible.")
-	public void testMuted() {
-		JSONObject results = getSimpleTestResults();
-		Assert.assertFalse(results.getString("output").contains("testSanity"));
-		Assert.assertFalse(results.getString("output").contains("Overall grade"));
-	}
-	
-	@Test(description = "Various checks related to security.")
-	public void testPolicyCheck() {
-		//TODO: policy checks to separate trackable unit tests (currently must be deciphered from output)
-		//TODO: fails if no Internet connection
-		JSONObject results = getSimpleTestResults();
-		Assert.assertEquals(results.getInt("percent"), 100);
-	}
-
-	@Test(description = "Test weights with random numbers. Some tests fail, some do not. The grade must be correct.")
-	public void testWeights100() {
-
-		String testCode = getFileTemplate(currentTestName);
-		String testCodeInner = getFileTemplate(currentTestName + "Func");
-
-		final int TEST_AMOUNT = 100;
-		boolean[] testStatus = new boolean[TEST_AMOUNT];
-		int[] testWeights = new int[TEST_AMOUNT];
-
-		double expectedTotal = 0;
-		double expectedPassed = 0;
-		String tests = "";
-
-		for (int i = 0; i < TEST_AMOUNT; i++) {
-			testStatus[i] = rn.nextBoolean();
-			testWeights[i] = rn.nextInt(101);
-			expectedTotal += testWeights[i];
-			if (testStatus[i]) {
-				expectedPassed += testWeights[i];
-			}
-			tests += testCodeInner.replace("$counter", Integer.toString(i))
-					.replace("$weight", Integer.toString(testWeights[i]))
-					.replace("$falsetrue", Boolean.toString(testStatus[i]));
-		}
-
-		if (expectedTotal == 0) {
-			expectedTotal = 1;
-		}
-		double expectedGrade = (expectedPassed / expectedTotal) * 100;
-
-		addTest(testCode.replace("$tests", tests), currentTestName);
-		JSONObject results = getTestResults(false, true);
-		Assert.assertEquals(results.getDouble("percent"), expectedGrade, 0.1);
-	}
-
-	@Test(description = "Check the output contains 'Nothing to run.' when both Checkstyle and TestNG are disabled.")
-	public void testDoNothing() {
-		JSONObject results = getTestResults(false, false);
-		Assert.assertTrue(results.getString("output").contains("Nothing to run."));
-	}
-
-	@Test(description = "Check if student's compilation error is displayed correctly.")
-	public void testBrokenStudentCode() {
-		JSONObject results = getSimpleTestResults();
-		Assert.assertTrue(results.getString("output").contains(String.format("';' expected", testCounter)));
-	}
-
-	@Test(description = "Check if logging from unit tests works.")
-	public void testAPILog() {
-		JSONObject results = getSimpleTestResults();
-		Assert.assertTrue(results.getString("output").contains("Notes on testLog:"));
-		Assert.assertTrue(results.getString("output").contains("This is fine"));
-		Assert.assertTrue(results.getJSONArray("results").getJSONObject(0).getString("output").contains("Let's hope this isn't seen"));
-	}
-
-	@Test(description = "Check if class blacklisting works.")
-	public void testClassBlacklist() {
-		JSONObject results = getSimpleTestResults();
-		Assert.assertTrue(results.getString("output").contains("Before: [class ClassBlacklist]"));
-		Assert.assertTrue(results.getString("output").contains("Contains: class ClassBlacklist"));
-		Assert.assertTrue(results.getString("output").contains("After: [class ClassBlacklist]"));
-	}
-
-	@Test(description = "Check if file contents are included in JSON")
-	public void testFileContentsInJSON() {
-		JSONObject results = getSimpleTestResults("TrivialStudent"); // let's be lazy and reuse a previous template
-		String expectedCode = getFileTemplate(currentStudentCodeName);
-		String expectedTest = getFileTemplate(currentTestName);
-		Assert.assertEquals(results.getJSONArray("source").length(), 1);
-		Assert.assertEquals(results.getJSONArray("testSource").length(), 1);
-		Assert.assertEquals(results.getJSONArray("source").getJSONObject(0).getString("content"), expectedCode);
-		Assert.assertEquals(results.getJSONArray("testSource").getJSONObject(0).getString("content"), expectedTest);
-		Assert.assertEquals(results.getJSONArray("source").getJSONObject(0).getString("type"), "code");
-		Assert.assertEquals(results.getJSONArray("testSource").getJSONObject(0).getString("type"), "test");
-	}
-
-	@Test(description = "Check if Checkstyle works")
-	public void testCheckstyleBare() {
-		setCurrentBaseNames("TrivialStudent");
-		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
-		addTest(getFileTemplate(currentTestName), currentTestName);
-		JSONObject results = getTestResults(true, false);
-		Assert.assertFalse(results.has("percent"));
-		Assert.assertFalse(results.getString("output").contains("Overall grade"));
-		Assert.assertFalse(results.getString("output").contains("Compilation succeeded"));
-		Assert.assertFalse(results.getString("output").contains("Compilation failed"));
-		Assert.assertEquals(results.getJSONArray("results").length(), 1);
-		Assert.assertEquals(results.getJSONArray("results").getJSONObject(0).getInt("errorCount"), 6);
-		Assert.assertEquals(results.getJSONArray("results").getJSONObject(0).getInt("percent"), 0);
-		Assert.assertTrue(results.getString("output")
-				.contains(results.getJSONArray("results").getJSONObject(0).getString("output")));
-	}
-	// TODO: new functionality
-
-	/**
-	 * Automatically constructs a test from current test name and
-	 * returns the results in JSON format. There must exist a template
-	 * for testable code and the test itself, see existing unit tests.
-	 * @return JSON-formatted StudentTester results, null on error
-	 */
-	private JSONObject getSimpleTestResults() {
-		String studentCode = getFileTemplate(currentStudentCodeName);
-		String testCode = getFileTemplate(currentTestName);
-		addCode(studentCode, currentStudentCodeName);
-		addTest(testCode, currentTestName);
-		return getTestResults(false, true);
-	}
-
-	/**
-	 * Automatically constructs a test from current test name and
-	 * returns the results in JSON format. There must exist a template
-	 * for testable code and the test itself, see existing unit tests.
-	 * @return JSON-formatted StudentTester results, null on error
-	 */
-	private JSONObject getSimpleTestResults(final String basename) {
-		setCurrentBaseNames(basename);
-		return getSimpleTestResults();
-	}
-
-	/**
-	 * Adds some test code to the dummy test environment.
-	 * @param code - code to be added
-	 * @param name - file name
-	 * @return success
-	 */
-	public boolean addTest(final String code, final String name) {
-		return addFile(code, name, true);
-	}
-
-	/**
-	 * Adds some code to the dummy test environment.
-	 * @param code - code to be added
-	 * @param name - file name
-	 * @return success
-	 */
-	public boolean addCode(final String code, final String name) {
-		return addFile(code, name, false);
-	}
-
-	/**
-	 * Adds some code to the dummy test environment.
-	 * @param code - code to be added
-	 * @param name - file name
-	 * @param isTest - is the code a test?
-	 * @return success
-	 */
-	public boolean addFile(final String code, final String name, final boolean isTest) {
-		String arg = new File(tempDirName, String.format("%s/%s.java", isTest ? "test" : "source", name)).getPath();
-		try (PrintWriter writer = new PrintWriter(arg, "UTF-8")) {
-			writer.write(code);
-			File f = new File(arg);
-			if (f.exists()) {
-				if (isTest) {
-					testFiles.add(f);
-				} else {
-					studentFiles.add(f);
-				}
-				return true;
-			}
-		} catch (UnsupportedEncodingException | FileNotFoundException e) {
-			e.printStackTrace();
-		}
-		return false;
-	}
-
-	/**
-	 * Finalises objects, runs the test and returns results.
-	 * @return test results in JSON format
-	 */
-	public JSONObject getTestResults(final boolean checkStyleEnabled, final boolean testNGEnabled) {
-		StudentTesterMain c = new StudentTesterMain(new File(tempDirName, "test").getPath(), new File(tempDirName, "source").getPath());
-		c.enableCheckstyle(checkStyleEnabled);
-		c.enableTestNG(testNGEnabled);
-		c.outputJSON(true);
-		// c.muteCodeOutput(false);
-		c.setVerbosity(3);
-		try {
-			c.run();
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		JSONObject results = new JSONObject(c.getJson());
-		return results;
-	}
-
-	/**
-	 * Reads and returns a java file from templates folder.
-	 * @param filename - .java file to open
-	 * @return - .java file contents
-	 */
-	public String getFileTemplate(final String filename) {
-		InputStream is = getClass().getResourceAsStream("/templates/" + filename + ".java");
-		try (Scanner s = new Scanner(is, "UTF-8")) {
-			s.useDelimiter("\\A");
-			return s.next();
-		}
-	}
-
-	/**
-	 * Set names before unit test.
-	 * @param method the name of the test about to be executed
-	 */
-	@BeforeMethod
-	public void beforeMethod(final Method method) {
-		setCurrentBaseNames(method.getName().substring(4)); // remove "test" prefix
-	}
-
-	/**
-	 * Sets the template names for current test.
-	 * @param name base name for test class
-	 */
-	public void setCurrentBaseNames(final String name) {
-		currentStudentCodeName = name;
-		currentTestName = currentStudentCodeName + "Test";
-	}
-
-	/**
-	 * Delete files after testing.
-	 */
-	@AfterMethod
-	public void afterMethod() {
-		currentStudentCodeName = null;
-		currentTestName = null;
-		studentFiles.forEach(x -> x.delete());
-		studentFiles.clear();
-		testFiles.forEach(x -> x.delete());
-		testFiles.clear();
-		testCounter++;
-	}
-
-	/**
-	 * Initialize folders (create fixture).
-	 */
-	@BeforeClass
-	public void beforeClass() {
-		if (tempDirName == null) {
-			throw new NullPointerException("Temp folder not found!");
-		}
-		testDir = new File(tempDirName, "test");
-		testDir.mkdir();
-		sourceDir = new File(tempDirName, "source");
-		sourceDir.mkdir();
-	}
-
-	/**
-	 * Delete junk files after tests (destroy fixture).
-	 */
-	@AfterClass
-	public void afterClass() {
-		StudentHelperClass.deleteFolder(testDir);
-		StudentHelperClass.deleteFolder(sourceDir);
-	}
-
-	/**
-	 * Holds a temporary list of mockup code files.
-	 */
-	private List<File> studentFiles = new ArrayList<File>();
-	/**
-	 * Holds a temporary list of test files.
-	 */
-	private List<File> testFiles = new ArrayList<File>();
-	/**
-	 * Get temp folder.
-	 */
-	private String tempDirName = System.getProperty("java.io.tmpdir");
-	/**
-	 * Stores pointers to folders.
-	 */
-	private File testDir, sourceDir;
-	/**
-	 * Counter for naming tests.
-	 */
-	private int testCounter = 0;
-	/**
-	 * Random number gen for tests.
-	 */
-	private Random rn = new Random();
-	/**
-	 * Holds the current basename of a test.
-	 */
-	private String currentStudentCodeName, currentTestName;
-}
+package ee.ttu.java.studenttester.tests;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.tools.JavaCompiler;
+
+import ee.ttu.java.studenttester.classes.CaptureBuffer;
+import ee.ttu.java.studenttester.classes.ClassFileReader;
+import ee.ttu.java.studenttester.classes.CompilerService;
+import ee.ttu.java.studenttester.classes.JsonStreamWriter;
+import ee.ttu.java.studenttester.classes.SourceOverlay;
+import ee.ttu.java.studenttester.classes.StudentTesterBatch;
+import ee.ttu.java.studenttester.classes.StudentTesterMain;
+import ee.ttu.java.studenttester.classes.StudentTesterServer;
+import ee.ttu.java.studenttester.classes.SubmissionArchive;
+import ee.ttu.java.studenttester.classes.SuiteModelCache;
+import ee.ttu.java.studenttester.classes.TestClassCache;
+import ee.ttu.java.studenttester.classes.WorkerPool;
+import ee.ttu.java.studenttester.classes.WorkspaceJanitor;
+import ee.ttu.java.studenttester.dataclasses.TestResults;
+import ee.ttu.java.studenttester.enums.CompilerBackend;
+import ee.ttu.java.studenttester.enums.ParallelMode;
+import ee.ttu.java.studenttester.exceptions.StudentTesterException;
+import ee.ttu.java.studenttester.interfaces.ICompilerBackend;
+import ee.ttu.java.studenttester.listeners.StudentReporter;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.IReporter;
+import org.testng.TestNG;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ee.ttu.java.studenttester.classes.StudentHelperClass;
+
+/**
+ * Tests for StudentTester.
+ * Instructions on how to create a new unit test:
+ * <br> - Inside "templates" package, write your code in a txt file
+ * <br> - The template names should follow the format SomeCode and SomeCodeTest
+ * <br> - The unit test testing with these templates should be named testSomeCode
+ * <br> - Autogenerated names are provided by variables currentStudentCodeName and currentTestName
+ * <br> - First, import the templates (getFileTemplate), perform necessary operations on them to
+ * make them valid Java classes. Then, add these strings to a valid category (addCode, addTest).
+ * Finally, call getTestResults. Results are returned from StudentTester as a JSON object.
+ * @author Andres
+ */
+public class Tests {
+
+	@Test(description = "Check if a simple test can receive a result from a class.")
+	public void testTrivialStudent() {
+		JSONObject results = getSimpleTestResults();
+		Assert.assertTrue(results.getString("output").contains("Grade: 100"));
+		Assert.assertTrue(results.getString("output").contains("Overall grade: 100"));
+		Assert.assertEquals(results.getInt("percent"), 100);
+	}
+
+	@Test(description = "Check if a simple JUnit test can receive a result from a class.")
+	public void testTrivialStudentJUnit() {
+		JSONObject results = getSimpleTestResults();
+		Assert.assertTrue(results.getString("output").contains("Grade: 100"));
+		Assert.assertTrue(results.getString("output").contains("Overall grade: 100"));
+		Assert.assertEquals(results.getInt("percent"), 100);
+	}
+
+	@Test(description = "Check two exceptions. One should succeed, the other should not.")
+	public void testTwoExceptions() {
+		JSONObject results = getSimpleTestResults();
+		Assert.assertTrue(results.getString("output").contains("Grade: 50"));
+		Assert.assertTrue(results.getString("output").contains("Overall grade: 50"));
+		Assert.assertEquals(results.getInt("percent"), 50);
+	}
+
+	@Test(description = "Create a muted test. Test names and scores should not be visible.")
+	public void testMuted() {
+		JSONObject results = getSimpleTestResults();
+		Assert.assertFalse(results.getString("output").contains("testSanity"));
+		Assert.assertFalse(results.getString("output").contains("Overall grade"));
+	}
+	
+	@Test(description = "Various checks related to security.")
+	public void testPolicyCheck() {
+		//TODO: policy checks to separate trackable unit tests (currently must be deciphered from output)
+		//TODO: fails if no Internet connection
+		JSONObject results = getSimpleTestResults();
+		Assert.assertEquals(results.getInt("percent"), 100);
+	}
+
+	@Test(description = "Test weights with random numbers. Some tests fail, some do not. The grade must be correct.")
+	public void testWeights100() {
+
+		String testCode = getFileTemplate(currentTestName);
+		String testCodeInner = getFileTemplate(currentTestName + "Func");
+
+		final int TEST_AMOUNT = 100;
+		boolean[] testStatus = new boolean[TEST_AMOUNT];
+		int[] testWeights = new int[TEST_AMOUNT];
+
+		double expectedTotal = 0;
+		double expectedPassed = 0;
+		String tests = "";
+
+		for (int i = 0; i < TEST_AMOUNT; i++) {
+			testStatus[i] = rn.nextBoolean();
+			testWeights[i] = rn.nextInt(101);
+			expectedTotal += testWeights[i];
+			if (testStatus[i]) {
+				expectedPassed += testWeights[i];
+			}
+			tests += testCodeInner.replace("$counter", Integer.toString(i))
+					.replace("$weight", Integer.toString(testWeights[i]))
+					.replace("$falsetrue", Boolean.toString(testStatus[i]));
+		}
+
+		if (expectedTotal == 0) {
+			expectedTotal = 1;
+		}
+		double expectedGrade = (expectedPassed / expectedTotal) * 100;
+
+		addTest(testCode.replace("$tests", tests), currentTestName);
+		JSONObject results = getTestResults(false, true);
+		Assert.assertEquals(results.getDouble("percent"), expectedGrade, 0.1);
+	}
+
+	@Test(description = "Check the output contains 'Nothing to run.' when both Checkstyle and TestNG are disabled.")
+	public void testDoNothing() {
+		JSONObject results = getTestResults(false, false);
+		Assert.assertTrue(results.getString("output").contains("Nothing to run."));
+	}
+
+	@Test(description = "Check if student's compilation error is displayed correctly.")
+	public void testBrokenStudentCode() {
+		JSONObject results = getSimpleTestResults();
+		Assert.assertTrue(results.getString("output").contains(String.format("';' expected", testCounter)));
+	}
+
+	@Test(description = "Check if a submission with syntax errors is rejected before Checkstyle and TestNG.")
+	public void testSyntaxCheck() {
+		setCurrentBaseNames("BrokenStudentCode");
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		JSONObject results = getTestResults(true, true);
+		Assert.assertTrue(results.getString("output").contains("Compilation failed."));
+		Assert.assertTrue(results.getString("output").contains("';' expected"));
+		Assert.assertEquals(results.getJSONArray("results").length(), 0);
+	}
+
+	@Test(description = "Check if logging from unit tests works.")
+	public void testAPILog() {
+		JSONObject results = getSimpleTestResults();
+		Assert.assertTrue(results.getString("output").contains("Notes on testLog:"));
+		Assert.assertTrue(results.getString("output").contains("This is fine"));
+		Assert.assertTrue(results.getJSONArray("results").getJSONObject(0).getString("output").contains("Let's hope this isn't seen"));
+	}
+
+	@Test(description = "Check if the output of each unit test is collected separately while stdout stays muted.")
+	public void testStudentOutput() {
+		JSONObject results = getSimpleTestResults();
+		String notes = results.getJSONArray("results").getJSONObject(0).getString("output");
+		Assert.assertTrue(notes.contains("Output of testFirst:\nAdding 1 and 2"));
+		Assert.assertTrue(notes.contains("Output of testSecond:\nAdding 3 and 4"));
+		Assert.assertFalse(notes.contains("Output of testFirst:\nAdding 1 and 2\nAdding 3 and 4"));
+		Assert.assertFalse(results.getString("output").contains("Adding"));
+	}
+
+	@Test(description = "Check if class blacklisting works.")
+	public void testClassBlacklist() {
+		JSONObject results = getSimpleTestResults();
+		Assert.assertTrue(results.getString("output").contains("Before: [class ClassBlacklist]"));
+		Assert.assertTrue(results.getString("output").contains("Contains: class ClassBlacklist"));
+		Assert.assertTrue(results.getString("output").contains("After: [class ClassBlacklist]"));
+	}
+
+	@Test(description = "Check if file contents are included in JSON")
+	public void testFileContentsInJSON() {
+		JSONObject results = getSimpleTestResults("TrivialStudent"); // let's be lazy and reuse a previous template
+		String expectedCode = getFileTemplate(currentStudentCodeName);
+		String expectedTest = getFileTemplate(currentTestName);
+		Assert.assertEquals(results.getJSONArray("source").length(), 1);
+		Assert.assertEquals(results.getJSONArray("testSource").length(), 1);
+		Assert.assertEquals(results.getJSONArray("source").getJSONObject(0).getString("content"), expectedCode);
+		Assert.assertEquals(results.getJSONArray("testSource").getJSONObject(0).getString("content"), expectedTest);
+		Assert.assertEquals(results.getJSONArray("source").getJSONObject(0).getString("type"), "code");
+		Assert.assertEquals(results.getJSONArray("testSource").getJSONObject(0).getString("type"), "test");
+	}
+
+	@Test(description = "Check if Checkstyle works")
+	public void testCheckstyleBare() {
+		setCurrentBaseNames("TrivialStudent");
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		JSONObject results = getTestResults(true, false);
+		Assert.assertFalse(results.has("percent"));
+		Assert.assertFalse(results.getString("output").contains("Overall grade"));
+		Assert.assertFalse(results.getString("output").contains("Compilation succeeded"));
+		Assert.assertFalse(results.getString("output").contains("Compilation failed"));
+		Assert.assertEquals(results.getJSONArray("results").length(), 1);
+		Assert.assertEquals(results.getJSONArray("results").getJSONObject(0).getInt("errorCount"), 6);
+		Assert.assertEquals(results.getJSONArray("results").getJSONObject(0).getInt("percent"), 0);
+		Assert.assertTrue(results.getString("output")
+				.contains(results.getJSONArray("results").getJSONObject(0).getString("output")));
+	}
+
+	@Test(description = "Check if compiled tests are reused only for student code with the same API")
+	public void testCachedTests() {
+		TestClassCache.clear();
+		setCurrentBaseNames("TrivialStudent");
+		String code = getFileTemplate(currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		addCode(code, currentStudentCodeName);
+		Assert.assertEquals(getTestResults(false, true).getInt("percent"), 100);
+		Assert.assertEquals(TestClassCache.size(), 1);
+		// same API, different implementation
+		addCode(code.replace("1 + 1", "1 + 2"), currentStudentCodeName);
+		Assert.assertEquals(getTestResults(false, true).getInt("percent"), 0);
+		Assert.assertEquals(TestClassCache.size(), 1);
+		// changed API, reusing the tests would end in NoSuchMethodError
+		addCode(code.replace("public int onePlusOne", "public long onePlusOne"), currentStudentCodeName);
+		Assert.assertEquals(getTestResults(false, true).getInt("percent"), 100);
+		Assert.assertEquals(TestClassCache.size(), 2);
+	}
+
+	@Test(description = "Check if found test classes are reused only for the same tests")
+	public void testCachedSuiteModel() {
+		SuiteModelCache.clear();
+		setCurrentBaseNames("TrivialStudent");
+		String code = getFileTemplate(currentStudentCodeName);
+		String test = getFileTemplate(currentTestName);
+		addTest(test, currentTestName);
+		addCode(code, currentStudentCodeName);
+		Assert.assertEquals(getTestResults(false, true).getInt("percent"), 100);
+		Assert.assertEquals(SuiteModelCache.size(), 1);
+		addCode(code.replace("1 + 1", "1 + 2"), currentStudentCodeName);
+		Assert.assertEquals(getTestResults(false, true).getInt("percent"), 0);
+		Assert.assertEquals(SuiteModelCache.size(), 1);
+		addTest(test + "\n// changed\n", currentTestName);
+		addCode(code, currentStudentCodeName);
+		Assert.assertEquals(getTestResults(false, true).getInt("percent"), 100);
+		Assert.assertEquals(SuiteModelCache.size(), 2);
+	}
+
+	@Test(description = "Check if annotations are read from class files without loading the classes")
+	public void testClassFileAnnotations() throws IOException, NoSuchMethodException {
+		byte[] bytes;
+		try (InputStream in = getClass().getResourceAsStream(getClass().getSimpleName() + ".class")) {
+			bytes = in.readAllBytes();
+		}
+		String description = getClass().getMethod("testClassFileAnnotations").getAnnotation(Test.class).description();
+		int found = 0;
+		for (ClassFileReader.Member method : ClassFileReader.read(bytes).getMethods()) {
+			if (method.getName().equals("testClassFileAnnotations")) {
+				Assert.assertEquals(method.getAnnotations().get(Test.class.getName()).get("description"), description);
+				found++;
+			} else if (method.getName().equals("getSimpleTestResults")) {
+				Assert.assertTrue(method.getAnnotations().isEmpty());
+			}
+		}
+		Assert.assertEquals(found, 1);
+	}
+
+	@Test(description = "Check if a test file that does not compile does not prevent running the others")
+	public void testPartialCompilation() {
+		addTest(getFileTemplate("BrokenStudentCodeTest"), "BrokenStudentCodeTest");
+		JSONObject results = getSimpleTestResults("TrivialStudent");
+		Assert.assertTrue(results.getString("output").contains("Compilation succeeded partially."));
+		Assert.assertTrue(results.getString("output").contains("BrokenStudentCodeTest.java"));
+		Assert.assertEquals(results.getJSONArray("results").length(), 1);
+		Assert.assertEquals(results.getJSONArray("results").getJSONObject(0).getInt("percent"), 100);
+	}
+
+	@Test(description = "Check if independent exercises compiled in parallel give the same messages every time")
+	public void testParallelCompilation() {
+		for (String name : Arrays.asList("APILog", "TrivialStudent")) {
+			addCode(getFileTemplate(name), name);
+			addTest(getFileTemplate(name + "Test"), name + "Test");
+		}
+		// the class under test is missing
+		addTest(getFileTemplate("BrokenStudentCodeTest"), "BrokenStudentCodeTest");
+		String compilerOutput = null;
+		for (int i = 0; i < 3; i++) {
+			JSONObject results = getTestResults(false, true);
+			Assert.assertEquals(results.getJSONArray("results").length(), 2);
+			String output = results.getString("output");
+			output = output.substring(0, output.indexOf(" ---"));
+			Assert.assertTrue(output.contains("Compilation succeeded partially."));
+			if (compilerOutput != null) {
+				Assert.assertEquals(output, compilerOutput);
+			}
+			compilerOutput = output;
+		}
+	}
+
+	@Test(description = "Check if compiling in the temporary folder still works")
+	public void testDiskWorkspace() throws StudentTesterException {
+		setCurrentBaseNames("TrivialStudent");
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		File tempRoot = new File(tempDirName, "diskWorkspace");
+		JSONObject results = getTestResults((c) -> {
+			c.setTempDirectoryName(tempRoot.getPath());
+			c.useDiskWorkspace(true);
+		});
+		Assert.assertEquals(results.getInt("percent"), 100);
+		// the workspace is renamed away at once and deleted in the background
+		Assert.assertEquals(tempRoot.list((dir, name) -> name.startsWith(WorkspaceJanitor.PREFIX)
+				&& !name.contains(".deleted-")).length, 0);
+	}
+
+	@Test(description = "Check if cached compiler results, including errors, are reused until a source changes")
+	public void testCompileCache() throws IOException, StudentTesterException {
+		setCurrentBaseNames("BrokenStudentCode");
+		String code = getFileTemplate(currentStudentCodeName);
+		// an error found by the compiler, syntax errors are caught before compiling
+		addCode(code.replace("1 + 1", "1 + one;"), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		File cacheRoot = new File(tempDirName, "compileCache");
+		StudentHelperClass.deleteFolder(cacheRoot);
+		String output = runWithCompileCache(cacheRoot).getString("output");
+		Assert.assertTrue(output.contains("cannot find symbol"));
+		long entries = countCacheEntries(cacheRoot);
+		Assert.assertTrue(entries > 0);
+		// nothing changed, the errors come from the cache
+		Assert.assertEquals(runWithCompileCache(cacheRoot).getString("output"), output);
+		Assert.assertEquals(countCacheEntries(cacheRoot), entries);
+		// fixed code must not be served from the cache
+		addCode(code.replace("1 + 1", "1 + 1;"), currentStudentCodeName);
+		Assert.assertFalse(runWithCompileCache(cacheRoot).getString("output").contains("cannot find symbol"));
+		Assert.assertTrue(countCacheEntries(cacheRoot) > entries);
+		StudentHelperClass.deleteFolder(cacheRoot);
+	}
+
+	private JSONObject runWithCompileCache(final File cacheRoot) throws StudentTesterException {
+		return getTestResults((c) -> c.setCompileCache(cacheRoot.getPath()));
+	}
+
+	private long countCacheEntries(final File cacheRoot) throws IOException {
+		return Files.walk(cacheRoot.toPath()).filter((p) -> p.toString().endsWith(".entry")).count();
+	}
+
+	@Test(description = "Check if a reused file manager sees changed sources in both workspaces")
+	public void testCompilerReuse() throws StudentTesterException {
+		CompilerService.clear();
+		setCurrentBaseNames("BrokenStudentCode");
+		String code = getFileTemplate(currentStudentCodeName);
+		addCode(code, currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		Assert.assertTrue(getTestResults(false, true).getString("output").contains("';' expected"));
+		Assert.assertEquals(CompilerService.getIdleCount(), 1);
+		addCode(code.replace("1 + 1", "1 + 1;"), currentStudentCodeName);
+		Assert.assertEquals(getTestResults(false, true).getInt("percent"), 100);
+		addCode(code.replace("1 + 1", "1 + 2;"), currentStudentCodeName);
+		JSONObject results = getTestResults((c) -> {
+			c.setTempDirectoryName(new File(tempDirName, "diskWorkspace").getPath());
+			c.useDiskWorkspace(true);
+		});
+		Assert.assertEquals(results.getInt("percent"), 0);
+		Assert.assertEquals(CompilerService.getIdleCount(), 1);
+	}
+
+	@Test(description = "Check if a compiler that compiles classes with errors is given everything at once")
+	public void testCompilerBackend() throws StudentTesterException {
+		setCurrentBaseNames("TrivialStudent");
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		addTest(getFileTemplate("APILogTest"), "APILogTest");
+		addCode(getFileTemplate("APILog"), "APILog");
+		JSONObject results = getTestResults((c) -> c.setCompilerBackend(new ICompilerBackend() {
+			@Override
+			public JavaCompiler getCompiler() {
+				return CompilerBackend.JAVAC.getCompiler();
+			}
+
+			@Override
+			public List<String> getDefaultOptions() {
+				return new ArrayList<String>();
+			}
+
+			@Override
+			public boolean isProceedOnError() {
+				return true;
+			}
+		}));
+		Assert.assertEquals(results.getJSONArray("results").length(), 2);
+		Assert.assertEquals(results.getInt("percent"), 100);
+		try {
+			StudentTesterMain.fromArguments(new String[] {"-compiler", "tcc"});
+			Assert.fail("Unknown compiler was accepted");
+		} catch (StudentTesterException e) {
+			Assert.assertTrue(e.getMessage().contains("tcc"));
+		}
+	}
+
+	@Test(description = "Check if a workspace is a copy that can be written and is deleted without waiting")
+	public void testWorkspaceStaging() throws IOException {
+		File code = new File(tempDirName, "stagingCode");
+		File tests = new File(tempDirName, "stagingTests");
+		File workspace = new File(tempDirName, "staging");
+		Files.createDirectories(new File(code, "pkg").toPath());
+		Files.createDirectories(new File(tests, "pkg").toPath());
+		Files.write(new File(code, "pkg/Shadowed.java").toPath(), "code".getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(tests, "pkg/Shadowed.java").toPath(), "test".getBytes(StandardCharsets.UTF_8));
+		try {
+			StudentHelperClass.copyFolder(code, workspace);
+			StudentHelperClass.copyFolder(tests, workspace);
+			Assert.assertEquals(new String(Files.readAllBytes(new File(workspace, "pkg/Shadowed.java").toPath()),
+					StandardCharsets.UTF_8), "test");
+			Assert.assertEquals(new String(Files.readAllBytes(new File(code, "pkg/Shadowed.java").toPath()),
+					StandardCharsets.UTF_8), "code");
+			// compiled classes and student code write into the workspace in place
+			try (FileOutputStream out = new FileOutputStream(new File(workspace, "pkg/Shadowed.java"))) {
+				out.write("changed".getBytes(StandardCharsets.UTF_8));
+			}
+			Assert.assertEquals(new String(Files.readAllBytes(new File(tests, "pkg/Shadowed.java").toPath()),
+					StandardCharsets.UTF_8), "test");
+			StudentHelperClass.deleteFolderLater(workspace);
+			Assert.assertFalse(workspace.exists());
+			StudentHelperClass.copyFolder(code, workspace);
+			Assert.assertTrue(new File(workspace, "pkg/Shadowed.java").exists());
+		} finally {
+			StudentHelperClass.deleteFolder(workspace);
+			StudentHelperClass.deleteFolder(code);
+			StudentHelperClass.deleteFolder(tests);
+		}
+	}
+
+	@Test(description = "Check if a zipped submission is graded without extracting it and bad archives are rejected")
+	public void testArchiveSubmission() throws IOException, StudentTesterException {
+		setCurrentBaseNames("TrivialStudent");
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		File archive = new File(tempDirName, "submission.zip");
+		Files.write(archive.toPath(), zip(currentStudentCodeName + ".java", getFileTemplate(currentStudentCodeName)));
+		try {
+			JSONObject results = getTestResults(testDir, archive, (c) -> { });
+			Assert.assertEquals(results.getInt("percent"), 100);
+			Assert.assertEquals(results.getJSONArray("source").length(), 1);
+		} finally {
+			archive.delete();
+		}
+		try {
+			SubmissionArchive.read(new ByteArrayInputStream(zip("Large.java", "class Large { }")), 10, 10);
+			Assert.fail("Archive larger than the limit was accepted");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage().contains("larger"));
+		}
+		try {
+			SubmissionArchive.read(new ByteArrayInputStream(zip("../Evil.java", "class Evil { }")));
+			Assert.fail("Path leaving the archive was accepted");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage().contains("Illegal path"));
+		}
+		// pax headers carry names longer than 100 bytes and names that are not ASCII
+		String longName = "mypackage/" + String.join("", Collections.nCopies(110, "a")) + ".java";
+		ByteArrayOutputStream tar = new ByteArrayOutputStream();
+		writePaxEntry(tar, longName, "class A { }");
+		writePaxEntry(tar, "pakett/\u00d5un.java", "class B { }");
+		tar.write(new byte[1024]);
+		Map<String, byte[]> entries = SubmissionArchive.read(new ByteArrayInputStream(tar.toByteArray())).getEntries();
+		Assert.assertEquals(entries.keySet(), new HashSet<String>(Arrays.asList(longName, "pakett/\u00d5un.java")));
+		Assert.assertEquals(new String(entries.get(longName), StandardCharsets.UTF_8), "class A { }");
+		try {
+			SubmissionArchive.read(new ByteArrayInputStream(new byte[0]));
+			Assert.fail("Empty archive was accepted");
+		} catch (IOException e) {
+			Assert.assertEquals(e.getMessage(), "Not a zip, jar or tar archive");
+		}
+		try {
+			ByteArrayOutputStream longHeader = new ByteArrayOutputStream();
+			longHeader.write(tarHeader("././@LongLink", 'L', 1024 * 1024));
+			longHeader.write(new byte[1024 * 1024]);
+			SubmissionArchive.read(new ByteArrayInputStream(longHeader.toByteArray()));
+			Assert.fail("Oversized long name was accepted");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Tar header is longer than"));
+		}
+	}
+
+	/**
+	 * Writes a tar entry whose name is given in a pax extended header, the way tar and Python
+	 * write names that do not fit the ustar header. The ustar name is cut to 100 bytes.
+	 * @param out - archive
+	 * @param name - path of the file
+	 * @param content - contents of the file
+	 * @throws IOException if writing fails
+	 */
+	private void writePaxEntry(final ByteArrayOutputStream out, final String name, final String content)
+			throws IOException {
+		byte[] record = (" path=" + name + "\n").getBytes(StandardCharsets.UTF_8);
+		// the length counts its own digits
+		int length = record.length + 1;
+		while (record.length + String.valueOf(length).length() != length) {
+			length = record.length + String.valueOf(length).length();
+		}
+		ByteArrayOutputStream pax = new ByteArrayOutputStream();
+		pax.write(String.valueOf(length).getBytes(StandardCharsets.US_ASCII));
+		pax.write(record);
+		writeTarData(out, tarHeader("PaxHeader", 'x', length), pax.toByteArray());
+		String cut = name.length() > 100 ? name.substring(0, 100) : name.replaceAll("[^\\x20-\\x7e]", "?");
+		byte[] data = content.getBytes(StandardCharsets.UTF_8);
+		writeTarData(out, tarHeader(cut, '0', data.length), data);
+	}
+
+	private void writeTarData(final ByteArrayOutputStream out, final byte[] header, final byte[] data) throws IOException {
+		out.write(header);
+		out.write(data);
+		out.write(new byte[(512 - data.length % 512) % 512]);
+	}
+
+	/**
+	 * Creates a ustar header block.
+	 * @param name - entry name, at most 100 ASCII characters
+	 * @param type - entry type
+	 * @param size - size of the entry contents
+	 * @return header
+	 */
+	private byte[] tarHeader(final String name, final char type, final long size) {
+		byte[] header = new byte[512];
+		byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+		System.arraycopy(String.format("%07o\0", 0644).getBytes(StandardCharsets.US_ASCII), 0, header, 100, 8);
+		System.arraycopy(String.format("%011o\0", size).getBytes(StandardCharsets.US_ASCII), 0, header, 124, 12);
+		header[156] = (byte) type;
+		System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+		header[263] = '0';
+		header[264] = '0';
+		Arrays.fill(header, 148, 156, (byte) ' ');
+		int checksum = 0;
+		for (byte b : header) {
+			checksum += b & 0xff;
+		}
+		System.arraycopy(String.format("%06o\0 ", checksum).getBytes(StandardCharsets.US_ASCII), 0, header, 148, 8);
+		return header;
+	}
+
+	/**
+	 * Creates a zip archive containing a single file.
+	 * @param name - path of the file
+	 * @param content - contents of the file
+	 * @return archive
+	 * @throws IOException if writing fails
+	 */
+	private byte[] zip(final String name, final String content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(out)) {
+			zip.putNextEntry(new ZipEntry(name));
+			zip.write(content.getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+		return out.toByteArray();
+	}
+
+	@Test(description = "Check if streamed JSON is escaped the same way as org.json does")
+	public void testJsonStreamWriter() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			// long enough to be decoded in several chunks, splitting multi-byte characters
+			builder.append("a\"b\\c</d\n\t\u0001\u00e9\u20ac\u2028\ud83d\ude00");
+		}
+		String text = builder.toString();
+		StringWriter writer = new StringWriter();
+		try (JsonStreamWriter json = new JsonStreamWriter(writer)) {
+			json.beginObject()
+					.key("bytes").value(text.getBytes(StandardCharsets.UTF_8))
+					.key("string").value(text)
+					.key("list").value(new JSONArray().put(1).put("x"))
+					.key("empty").beginArray().endArray()
+					.endObject();
+		}
+		JSONObject expected = new JSONObject()
+				.put("bytes", text)
+				.put("string", text)
+				.put("list", new JSONArray().put(1).put("x"))
+				.put("empty", new JSONArray());
+		Assert.assertTrue(writer.toString().contains(JSONObject.quote(text)));
+		Assert.assertEquals(new JSONObject(writer.toString()).toString(), expected.toString());
+	}
+
+	@Test(description = "Check if test methods can run in parallel with their own output and notes")
+	public void testParallelTests() throws StudentTesterException {
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		JSONObject results = getTestResults((c) -> {
+			c.setParallelMode(ParallelMode.METHODS);
+			c.setThreadCount(4);
+		});
+		Assert.assertEquals(results.getInt("percent"), 100);
+		String notes = results.getJSONArray("results").getJSONObject(0).getString("output");
+		Assert.assertTrue(notes.indexOf("Output of test1") < notes.indexOf("Output of test4"));
+		for (int i = 1; i <= 4; i++) {
+			Assert.assertTrue(notes.contains(String.format("Output of test%d:\nAdding %d and %d", i, i, i)));
+			Assert.assertTrue(results.getString("output").contains("Notes on test" + i + ":\n\t - Finished " + i));
+		}
+	}
+
+	@Test(description = "Check if stuck tests are timed out and the remaining tests still run")
+	public void testTimeouts() throws StudentTesterException {
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		long start = System.currentTimeMillis();
+		JSONObject results = getTestResults((c) -> c.setTestTimeout(500));
+		Assert.assertTrue(System.currentTimeMillis() - start < 30000);
+		Assert.assertEquals(results.getInt("percent"), 33);
+		String output = results.getString("output");
+		Assert.assertTrue(output.contains("Test did not finish within 200 ms"));
+		Assert.assertTrue(output.contains("Test did not finish within 500 ms"));
+		Assert.assertTrue(output.contains("Timeouts.spin"));
+	}
+
+	@Test(description = "Check if two runs at the same time keep their results, output and blacklist apart")
+	public void testConcurrentRuns() throws Exception {
+		String[] names = {currentStudentCodeName + "A", currentStudentCodeName + "B"};
+		File[] roots = new File[names.length];
+		JSONObject[] results = new JSONObject[names.length];
+		Throwable[] errors = new Throwable[names.length];
+		Thread[] threads = new Thread[names.length];
+		try {
+			for (int i = 0; i < names.length; i++) {
+				roots[i] = new File(tempDirName, "concurrent" + names[i]);
+				File code = new File(roots[i], "source");
+				File tests = new File(roots[i], "test");
+				Files.createDirectories(code.toPath());
+				Files.createDirectories(tests.toPath());
+				// the second submission returns a wrong value and fails
+				String studentCode = getFileTemplate(currentStudentCodeName).replace(currentStudentCodeName, names[i])
+						.replace("return 1", "return " + (i + 1));
+				Files.write(new File(code, names[i] + ".java").toPath(), studentCode.getBytes(StandardCharsets.UTF_8));
+				Files.write(new File(tests, names[i] + "Test.java").toPath(), getFileTemplate(currentTestName)
+						.replace(currentStudentCodeName, names[i]).getBytes(StandardCharsets.UTF_8));
+				final int index = i;
+				threads[i] = new Thread(() -> {
+					try {
+						results[index] = getTestResults(tests, code, (c) -> { });
+					} catch (Throwable e) {
+						errors[index] = e;
+					}
+				});
+			}
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			for (int i = 0; i < names.length; i++) {
+				if (errors[i] != null) {
+					throw new AssertionError("Run of " + names[i] + " failed", errors[i]);
+				}
+				String other = names[1 - i];
+				String notes = results[i].getJSONArray("results").getJSONObject(0).getString("output");
+				Assert.assertTrue(notes.contains("Printed by " + names[i]));
+				Assert.assertFalse(notes.contains(other));
+				Assert.assertTrue(results[i].getString("output").contains("Blacklist [class " + names[i] + "]"));
+				Assert.assertFalse(results[i].getString("output").contains(other));
+			}
+			Assert.assertEquals(results[0].getInt("percent"), 100);
+			Assert.assertEquals(results[1].getInt("percent"), 0);
+		} finally {
+			for (File root : roots) {
+				if (root != null) {
+					StudentHelperClass.deleteFolder(root);
+				}
+			}
+		}
+	}
+
+	@Test(description = "Check if captured output keeps its beginning and end within the limit")
+	public void testCaptureBuffer() throws IOException {
+		byte[] line = "0123456789abcdef\n".getBytes(StandardCharsets.UTF_8);
+		CaptureBuffer buffer = new CaptureBuffer(100000, true, null);
+		buffer.write("first\n".getBytes(StandardCharsets.UTF_8));
+		for (int i = 0; i < 200000; i++) {
+			buffer.write(line);
+		}
+		buffer.write("last\n".getBytes(StandardCharsets.UTF_8));
+		String kept = buffer.toString();
+		Assert.assertTrue(kept.startsWith("first\n"));
+		Assert.assertTrue(kept.endsWith("last\n"));
+		Assert.assertTrue(kept.contains("[... " + buffer.getDroppedSize() + " bytes of output omitted ...]"));
+		Assert.assertEquals(buffer.getTotalSize() - buffer.getDroppedSize(), 100000);
+		buffer.release();
+		Assert.assertEquals(buffer.toString(), "");
+
+		File spillFolder = new File(tempDirName, "spill");
+		buffer = new CaptureBuffer(1024 * 1024, false, spillFolder);
+		for (int i = 0; i < 200000; i++) {
+			buffer.write(line);
+		}
+		Assert.assertEquals(spillFolder.list().length, 1);
+		kept = buffer.toString();
+		Assert.assertTrue(kept.startsWith("0123456789abcdef\n"));
+		Assert.assertFalse(kept.endsWith("0123456789abcdef\n"));
+		Assert.assertEquals(buffer.getTotalSize() - buffer.getDroppedSize(), 1024 * 1024);
+		buffer.release();
+		Assert.assertEquals(spillFolder.list().length, 0);
+	}
+
+	@Test(description = "Check if progress events are written as separate lines of JSON")
+	public void testEvents() throws StudentTesterException {
+		setCurrentBaseNames("TrivialStudent");
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		StringWriter events = new StringWriter();
+		JSONObject results = getTestResults((c) -> c.setEventWriter(events));
+		List<String> types = new ArrayList<String>();
+		for (String line : events.toString().split("\n")) {
+			types.add(new JSONObject(line).getString("event"));
+		}
+		Assert.assertEquals(types.get(0), "stageStarted");
+		Assert.assertTrue(types.contains("testPassed"));
+		Assert.assertTrue(types.indexOf("testStarted") < types.indexOf("testPassed"));
+		Assert.assertEquals(types.get(types.size() - 2), "grade");
+		Assert.assertEquals(results.getInt("percent"), 100);
+	}
+
+	@Test(description = "Check if the reporter counts, orders and weighs tests the same with and without test events")
+	public void testReporterCounts() throws IOException, ReflectiveOperationException, StudentTesterException {
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		String recorded = getTestResults((c) -> { }).getString("output");
+		assertReporterCounts(recorded);
+		// a reporter that only gets generateReport takes the results from the test contexts
+		File classes = new File(tempDirName, "reporterClasses");
+		Files.createDirectories(classes.toPath());
+		try {
+			JavaCompiler compiler = CompilerBackend.JAVAC.getCompiler();
+			Assert.assertEquals(compiler.run(null, null, null, "-d", classes.getPath(),
+					"-cp", System.getProperty("java.class.path"),
+					new File(sourceDir, currentStudentCodeName + ".java").getPath(),
+					new File(testDir, currentTestName + ".java").getPath()), 0);
+			try (URLClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()}, getClass().getClassLoader())) {
+				StudentReporter reporter = new StudentReporter(null);
+				TestNG testng = new TestNG(false);
+				testng.setUseDefaultListeners(false);
+				testng.setVerbose(0);
+				testng.setTestClasses(new Class<?>[] {loader.loadClass(currentTestName)});
+				testng.addListener((IReporter) (xmlSuites, suites, outputDirectory)
+						-> reporter.generateReport(xmlSuites, suites, outputDirectory));
+				testng.run();
+				TestResults results = reporter.getResults();
+				Assert.assertEquals(results.getPercent(), 50.0);
+				assertReporterCounts(results.getOutput());
+			}
+		} finally {
+			StudentHelperClass.deleteFolder(classes);
+		}
+	}
+
+	private void assertReporterCounts(final String output) {
+		Assert.assertTrue(output.contains("Passed unit tests: 2/4\nFailed unit tests: 1\nSkipped unit tests: 1\nGrade: 50.0%"));
+		Assert.assertTrue(output.contains("weight: 3 units"));
+		Assert.assertTrue(output.contains("weight: 2 units"));
+		Assert.assertTrue(output.contains("FAILURE: testWrongAnswer\n\t"));
+		Assert.assertTrue(output.contains("weight: 1 unit\n"));
+		Assert.assertTrue(output.contains("SKIPPED: testSkipped\n\tWeight: 4 units"));
+		// passed tests first, then failed and skipped ones
+		Assert.assertTrue(output.indexOf("SUCCESS: testAnswer") < output.indexOf("FAILURE: testWrongAnswer"));
+		Assert.assertTrue(output.indexOf("SUCCESS: testAnswerAgain") < output.indexOf("FAILURE: testWrongAnswer"));
+		Assert.assertTrue(output.indexOf("FAILURE: testWrongAnswer") < output.indexOf("SKIPPED: testSkipped"));
+	}
+
+	@Test(description = "Check if the merged view of the source folders lets tests shadow code")
+	public void testSourceOverlay() throws IOException {
+		File code = new File(tempDirName, "overlayCode");
+		File tests = new File(tempDirName, "overlayTests");
+		Files.createDirectories(new File(code, "pkg").toPath());
+		Files.createDirectories(new File(tests, "pkg").toPath());
+		Files.write(new File(code, "pkg/Shadowed.java").toPath(), "code".getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(code, "pkg/Code.java").toPath(), "code".getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(code, "testng.xml").toPath(), "code".getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(tests, "pkg/Shadowed.java").toPath(), "test".getBytes(StandardCharsets.UTF_8));
+		try {
+			SourceOverlay overlay = new SourceOverlay(code, tests);
+			Assert.assertEquals(overlay.getFile("pkg/Shadowed.java"), new File(tests, "pkg/Shadowed.java").getAbsoluteFile());
+			Assert.assertEquals(overlay.getFile("testng.xml"), new File(code, "testng.xml").getAbsoluteFile());
+			Assert.assertNull(overlay.getFile("pkg/Missing.java"));
+			Assert.assertEquals(overlay.getFiles(".java").size(), 2);
+			Assert.assertEquals(overlay.getFiles(code, ".java").size(), 1);
+			Assert.assertEquals(overlay.getRoot("pkg/Shadowed.java"), tests);
+		} finally {
+			StudentHelperClass.deleteFolder(code);
+			StudentHelperClass.deleteFolder(tests);
+		}
+	}
+
+	@Test(description = "Check if every run gets its own workspace and abandoned ones are removed")
+	public void testWorkspaceJanitor() throws IOException {
+		File base = new File(tempDirName, "janitor");
+		try {
+			File first = WorkspaceJanitor.allocate(base);
+			File second = WorkspaceJanitor.allocate(base);
+			Assert.assertNotEquals(first, second);
+			// a crashed run leaves its workspace and an unlocked lock file behind
+			File abandoned = new File(base, WorkspaceJanitor.PREFIX + "crashed");
+			Files.createDirectories(abandoned.toPath());
+			Files.createFile(new File(base, abandoned.getName() + ".lock").toPath());
+			WorkspaceJanitor.sweep(base);
+			Assert.assertFalse(abandoned.exists());
+			Assert.assertTrue(first.exists());
+			Assert.assertTrue(second.exists());
+			WorkspaceJanitor.release(first);
+			WorkspaceJanitor.release(second);
+			Assert.assertFalse(first.exists());
+			Assert.assertEquals(WorkspaceJanitor.sweep(base), 0);
+		} finally {
+			StudentHelperClass.deleteFolder(base);
+		}
+	}
+
+	@Test(description = "Check if the server grades several requests in the same JVM")
+	public void testServer() throws Exception {
+		setCurrentBaseNames("TrivialStudent");
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		StudentTesterServer server = new StudentTesterServer(0, Arrays.asList("-nocheckstyle"));
+		server.bind();
+		Thread serverThread = new Thread(() -> {
+			try {
+				server.serve();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		serverThread.start();
+		String request = new JSONObject()
+				.put("testroot", testDir.getPath())
+				.put("contentroot", sourceDir.getPath())
+				.toString();
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			for (int i = 0; i < 2; i++) {
+				out.println(request);
+				JSONObject results = new JSONObject(in.readLine());
+				Assert.assertEquals(results.getInt("percent"), 100);
+				Assert.assertTrue(results.getString("output").contains("Overall grade: 100"));
+			}
+			out.println(new JSONObject().put("testroot", testDir.getPath()).toString());
+			Assert.assertTrue(new JSONObject(in.readLine()).has("error"));
+		} finally {
+			server.stop();
+			serverThread.join();
+		}
+	}
+
+	@Test(description = "Check if batch mode grades every submission in a folder")
+	public void testBatch() throws Exception {
+		setCurrentBaseNames("TrivialStudent");
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		File batchDir = new File(tempDirName, "batch");
+		File outputDir = new File(tempDirName, "batchOutput");
+		String[] submissions = {"student1", "student2", "student3"};
+		for (String submission : submissions) {
+			File submissionDir = new File(batchDir, submission);
+			submissionDir.mkdirs();
+			try (PrintWriter writer = new PrintWriter(new File(submissionDir, currentStudentCodeName + ".java"), "UTF-8")) {
+				writer.write(getFileTemplate(currentStudentCodeName));
+			}
+		}
+		try {
+			StudentTesterBatch batch = new StudentTesterBatch(batchDir, outputDir,
+					Arrays.asList("-testroot", testDir.getPath(), "-nocheckstyle"), 2);
+			Assert.assertEquals(batch.run(), submissions.length);
+			for (String submission : submissions) {
+				String json = new String(Files.readAllBytes(new File(outputDir, submission + ".json").toPath()),
+						StandardCharsets.UTF_8);
+				Assert.assertEquals(new JSONObject(json).getInt("percent"), 100);
+			}
+		} finally {
+			StudentHelperClass.deleteFolder(batchDir);
+			StudentHelperClass.deleteFolder(outputDir);
+		}
+	}
+
+	@Test(description = "Check if worker JVMs are reused, recycled and replaced when stuck")
+	public void testWorkerPool() throws Exception {
+		setCurrentBaseNames("TrivialStudent");
+		addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+		addTest(getFileTemplate(currentTestName), currentTestName);
+		String[] arguments = {"-testroot", testDir.getPath(), "-contentroot", sourceDir.getPath(), "-nocheckstyle"};
+		try (WorkerPool pool = new WorkerPool(1, 2, WorkerPool.DEFAULT_MAX_HEAP)) {
+			pool.start();
+			for (int i = 0; i < 3; i++) {
+				JSONObject results = new JSONObject(pool.grade(arguments));
+				Assert.assertEquals(results.getInt("percent"), 100);
+				Assert.assertFalse(results.has("workerHeap"));
+			}
+			Assert.assertEquals(pool.getRestartCount(), 1);
+			setCurrentBaseNames("EndlessLoop");
+			addCode(getFileTemplate(currentStudentCodeName), currentStudentCodeName);
+			addTest(getFileTemplate(currentTestName), currentTestName);
+			pool.setTimeout(5000);
+			Assert.assertTrue(new JSONObject(pool.grade(arguments)).has("error"));
+			Assert.assertEquals(pool.getRestartCount(), 2);
+			// a submission waiting for the busy worker is let go when the pool is closed
+			Thread busy = new Thread(() -> {
+				try {
+					pool.grade(arguments);
+				} catch (StudentTesterException e) {
+					// closed while grading
+				}
+			});
+			busy.start();
+			Thread.sleep(500);
+			new Thread(() -> {
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException e) {
+					// close right away
+				}
+				pool.close();
+			}).start();
+			long start = System.currentTimeMillis();
+			try {
+				pool.grade(arguments);
+				Assert.fail("Grading in a closed pool should fail");
+			} catch (StudentTesterException e) {
+				Assert.assertTrue(System.currentTimeMillis() - start < 4000);
+			}
+			busy.join();
+		}
+	}
+	// TODO: new functionality
+
+	/**
+	 * Automatically constructs a test from current test name and
+	 * returns the results in JSON format. There must exist a template
+	 * for testable code and the test itself, see existing unit tests.
+	 * @return JSON-formatted StudentTester results, null on error
+	 */
+	private JSONObject getSimpleTestResults() {
+		String studentCode = getFileTemplate(currentStudentCodeName);
+		String testCode = getFileTemplate(currentTestName);
+		addCode(studentCode, currentStudentCodeName);
+		addTest(testCode, currentTestName);
+		return getTestResults(false, true);
+	}
+
+	/**
+	 * Automatically constructs a test from current test name and
+	 * returns the results in JSON format. There must exist a template
+	 * for testable code and the test itself, see existing unit tests.
+	 * @return JSON-formatted StudentTester results, null on error
+	 */
+	private JSONObject getSimpleTestResults(final String basename) {
+		setCurrentBaseNames(basename);
+		return getSimpleTestResults();
+	}
+
+	/**
+	 * Adds some test code to the dummy test environment.
+	 * @param code - code to be added
+	 * @param name - file name
+	 * @return success
+	 */
+	public boolean addTest(final String code, final String name) {
+		return addFile(code, name, true);
+	}
+
+	/**
+	 * Adds some code to the dummy test environment.
+	 * @param code - code to be added
+	 * @param name - file name
+	 * @return success
+	 */
+	public boolean addCode(final String code, final String name) {
+		return addFile(code, name, false);
+	}
+
+	/**
+	 * Adds some code to the dummy test environment.
+	 * @param code - code to be added
+	 * @param name - file name
+	 * @param isTest - is the code a test?
+	 * @return success
+	 */
+	public boolean addFile(final String code, final String name, final boolean isTest) {
+		String arg = new File(tempDirName, String.format("%s/%s.java", isTest ? "test" : "source", name)).getPath();
+		try (PrintWriter writer = new PrintWriter(arg, "UTF-8")) {
+			writer.write(code);
+			File f = new File(arg);
+			if (f.exists()) {
+				if (isTest) {
+					testFiles.add(f);
+				} else {
+					studentFiles.add(f);
+				}
+				return true;
+			}
+		} catch (UnsupportedEncodingException | FileNotFoundException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	/**
+	 * Finalises objects, runs the test and returns results.
+	 * @return test results in JSON format
+	 */
+	public JSONObject getTestResults(final boolean checkStyleEnabled, final boolean testNGEnabled) {
+		StudentTesterMain c = new StudentTesterMain(new File(tempDirName, "test").getPath(), new File(tempDirName, "source").getPath());
+		c.enableCheckstyle(checkStyleEnabled);
+		c.enableTestNG(testNGEnabled);
+		c.outputJSON(true);
+		// c.muteCodeOutput(false);
+		c.setVerbosity(3);
+		try {
+			c.run();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		JSONObject results = new JSONObject(c.getJson());
+		return results;
+	}
+
+	/**
+	 * Runs the tests of the dummy test environment without checkstyle and returns results.
+	 * @param configurer - sets the options of the run
+	 * @return test results in JSON format
+	 * @throws StudentTesterException if the run fails
+	 */
+	private JSONObject getTestResults(final Consumer<StudentTesterMain> configurer) throws StudentTesterException {
+		return getTestResults(testDir, sourceDir, configurer);
+	}
+
+	/**
+	 * Runs tests against student code without checkstyle and returns results.
+	 * @param testRoot - folder containing tests
+	 * @param contentRoot - student code folder or archive
+	 * @param configurer - sets the options of the run
+	 * @return test results in JSON format
+	 * @throws StudentTesterException if the run fails
+	 */
+	private JSONObject getTestResults(final File testRoot, final File contentRoot,
+			final Consumer<StudentTesterMain> configurer) throws StudentTesterException {
+		StudentTesterMain c = new StudentTesterMain(testRoot.getPath(), contentRoot.getPath());
+		c.enableCheckstyle(false);
+		c.outputJSON(true);
+		c.setQuiet(true);
+		configurer.accept(c);
+		c.run();
+		return new JSONObject(c.getJson());
+	}
+
+	/**
+	 * Reads and returns a java file from templates folder.
+	 * @param filename - .java file to open
+	 * @return - .java file contents
+	 */
+	public String getFileTemplate(final String filename) {
+		InputStream is = getClass().getResourceAsStream("/templates/" + filename + ".java");
+		try (Scanner s = new Scanner(is, "UTF-8")) {
+			s.useDelimiter("\\A");
+			return s.next();
+		}
+	}
+
+	/**
+	 * Set names before unit test.
+	 * @param method the name of the test about to be executed
+	 */
+	@BeforeMethod
+	public void beforeMethod(final Method method) {
+		setCurrentBaseNames(method.getName().substring(4)); // remove "test" prefix
+	}
+
+	/**
+	 * Sets the template names for current test.
+	 * @param name base name for test class
+	 */
+	public void setCurrentBaseNames(final String name) {
+		currentStudentCodeName = name;
+		currentTestName = currentStudentCodeName + "Test";
+	}
+
+	/**
+	 * Delete files after testing.
+	 */
+	@AfterMethod
+	public void afterMethod() {
+		currentStudentCodeName = null;
+		currentTestName = null;
+		studentFiles.forEach(x -> x.delete());
+		studentFiles.clear();
+		testFiles.forEach(x -> x.delete());
+		testFiles.clear();
+		testCounter++;
+	}
+
+	/**
+	 * Initialize folders (create fixture).
+	 */
+	@BeforeClass
+	public void beforeClass() {
+		if (tempDirName == null) {
+			throw new NullPointerException("Temp folder not found!");
+		}
+		testDir = new File(tempDirName, "test");
+		testDir.mkdir();
+		sourceDir = new File(tempDirName, "source");
+		sourceDir.mkdir();
+	}
+
+	/**
+	 * Delete junk files after tests (destroy fixture).
+	 */
+	@AfterClass
+	public void afterClass() {
+		StudentHelperClass.deleteFolder(testDir);
+		StudentHelperClass.deleteFolder(sourceDir);
+	}
+
+	/**
+	 * Holds a temporary list of mockup code files.
+	 */
+	private List<File> studentFiles = new ArrayList<File>();
+	/**
+	 * Holds a temporary list of test files.
+	 */
+	private List<File> testFiles = new ArrayList<File>();
+	/**
+	 * Get temp folder.
+	 */
+	private String tempDirName = System.getProperty("java.io.tmpdir");
+	/**
+	 * Stores pointers to folders.
+	 */
+	private File testDir, sourceDir;
+	/**
+	 * Counter for naming tests.
+	 */
+	private int testCounter = 0;
+	/**
+	 * Random number gen for tests.
+	 */
+	private Random rn = new Random();
+	/**
+	 * Holds the current basename of a test.
+	 */
+	private String currentStudentCodeName, currentTestName;
+}
@@ -1,7 +1,7 @@
-public class APILog {
-
-	public int onePlusOne() {
-		return 1 + 1;
-	}
-
+public class APILog {
+
+	public int onePlusOne() {
+		return 1 + 1;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+
+public class ConcurrentRuns {
+
+	public int value() throws InterruptedException {
+		System.out.println("Printed by ConcurrentRuns");
+		// keeps both runs busy at the same time
+		Thread.sleep(500);
+		return 1;
+	}
+
+}
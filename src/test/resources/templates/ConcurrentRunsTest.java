@@ -0,0 +1,15 @@
+import ee.ttu.java.studenttester.classes.StudentTesterAPI;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+public class ConcurrentRunsTest {
+
+	StudentTesterAPI api = StudentTesterAPI.getInstance(getClass());
+
+	@Test
+	public void testValue() throws InterruptedException {
+		int value = new ConcurrentRuns().value();
+		api.logMessagePublic("Blacklist " + api.getClassBlacklist());
+		Assert.assertEquals(value, 1);
+	}
+
+}
@@ -0,0 +1,11 @@
+public class EndlessLoop {
+
+	public int count() {
+		int i = 0;
+		while (i >= 0) {
+			i = (i + 1) % 10;
+		}
+		return i;
+	}
+
+}
\ No newline at end of file
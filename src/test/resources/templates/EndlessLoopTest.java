@@ -0,0 +1,10 @@
+import org.testng.annotations.Test;
+import org.testng.Assert;
+public class EndlessLoopTest {
+
+	@Test
+	public void testCount() {
+		Assert.assertEquals(new EndlessLoop().count(), 0);
+	}
+
+}
\ No newline at end of file
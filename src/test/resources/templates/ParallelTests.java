@@ -0,0 +1,8 @@
+public class ParallelTests {
+
+	public int add(int a, int b) {
+		System.out.println("Adding " + a + " and " + b);
+		return a + b;
+	}
+
+}
\ No newline at end of file
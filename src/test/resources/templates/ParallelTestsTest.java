@@ -0,0 +1,43 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import ee.ttu.java.studenttester.classes.StudentTesterAPI;
+import org.testng.annotations.Test;
+import org.testng.Assert;
+public class ParallelTestsTest {
+
+	StudentTesterAPI api = StudentTesterAPI.getInstance(getClass());
+	CountDownLatch running = new CountDownLatch(4);
+
+	private void check(int a) throws InterruptedException {
+		Assert.assertEquals(new ParallelTests().add(a, a), a * 2);
+		running.countDown();
+		// passes only if all four tests are running at the same time
+		Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test1() throws InterruptedException {
+		check(1);
+		api.logMessagePublic("Finished 1");
+	}
+
+	@Test
+	public void test2() throws InterruptedException {
+		check(2);
+		api.logMessagePublic("Finished 2");
+	}
+
+	@Test
+	public void test3() throws InterruptedException {
+		check(3);
+		api.logMessagePublic("Finished 3");
+	}
+
+	@Test
+	public void test4() throws InterruptedException {
+		check(4);
+		api.logMessagePublic("Finished 4");
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+
+public class ReporterCounts {
+
+	public int getAnswer() {
+		return 42;
+	}
+
+}
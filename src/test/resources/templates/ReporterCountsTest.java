@@ -0,0 +1,32 @@
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import ee.ttu.java.studenttester.annotations.*;
+import ee.ttu.java.studenttester.enums.*;
+
+@TestContextConfiguration(mode = ReportMode.VERBOSE)
+public class ReporterCountsTest {
+
+	@Test
+	@Gradeable(weight = 3)
+	public void testAnswer() {
+		Assert.assertEquals(new ReporterCounts().getAnswer(), 42);
+	}
+
+	@Test
+	@Gradeable(weight = 2)
+	public void testAnswerAgain() {
+		Assert.assertEquals(new ReporterCounts().getAnswer(), 42);
+	}
+
+	@Test
+	public void testWrongAnswer() {
+		Assert.assertEquals(new ReporterCounts().getAnswer(), 41);
+	}
+
+	@Test(dependsOnMethods = "testWrongAnswer")
+	@Gradeable(weight = 4)
+	public void testSkipped() {
+		Assert.assertEquals(new ReporterCounts().getAnswer(), 42);
+	}
+
+}
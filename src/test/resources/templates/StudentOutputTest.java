@@ -0,0 +1,15 @@
+import org.testng.annotations.Test;
+import org.testng.Assert;
+public class StudentOutputTest {
+
+	@Test
+	public void testFirst() {
+		Assert.assertEquals(new StudentOutput().printAndAdd(1, 2), 3);
+	}
+
+	@Test
+	public void testSecond() {
+		Assert.assertEquals(new StudentOutput().printAndAdd(3, 4), 7);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+
+public class Timeouts {
+
+	public int spin() {
+		int i = 0;
+		while (i >= 0) {
+			i = (i + 1) % 10;
+		}
+		return i;
+	}
+
+	public int sleep() throws InterruptedException {
+		Thread.sleep(60000);
+		return 0;
+	}
+
+	public int quick() {
+		return 0;
+	}
+
+}
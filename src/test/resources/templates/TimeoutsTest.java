@@ -0,0 +1,23 @@
+import ee.ttu.java.studenttester.annotations.Gradeable;
+import org.testng.annotations.Test;
+import org.testng.Assert;
+public class TimeoutsTest {
+
+	@Test
+	@Gradeable(timeout = 200, printExceptionMessage = true, printStackTrace = true)
+	public void testSpin() {
+		Assert.assertEquals(new Timeouts().spin(), 0);
+	}
+
+	@Test
+	@Gradeable(printExceptionMessage = true)
+	public void testSleep() throws InterruptedException {
+		Assert.assertEquals(new Timeouts().sleep(), 0);
+	}
+
+	@Test
+	public void testQuick() {
+		Assert.assertEquals(new Timeouts().quick(), 0);
+	}
+
+}
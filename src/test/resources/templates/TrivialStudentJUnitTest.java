@@ -1,11 +1,11 @@
-import org.junit.Test;
-import static org.junit.Assert.*;
-public class TrivialStudentJUnitTest {
-
-	@Test
-	public void testSanity() {
-		TrivialStudentJUnit c = new TrivialStudentJUnit();
-		assertEquals(c.onePlusOne(), 2);
-	}
-
+import org.junit.Test;
+import static org.junit.Assert.*;
+public class TrivialStudentJUnitTest {
+
+	@Test
+	public void testSanity() {
+		TrivialStudentJUnit c = new TrivialStudentJUnit();
+		assertEquals(c.onePlusOne(), 2);
+	}
+
 }
\ No newline at end of file
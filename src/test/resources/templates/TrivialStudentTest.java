@@ -1,11 +1,11 @@
-import org.testng.annotations.Test;
-import org.testng.Assert;
-public class TrivialStudentTest {
-
-	@Test
-	public void testSanity() {
-		TrivialStudent c = new TrivialStudent();
-		Assert.assertEquals(c.onePlusOne(), 2);
-	}
-
+import org.testng.annotations.Test;
+import org.testng.Assert;
+public class TrivialStudentTest {
+
+	@Test
+	public void testSanity() {
+		TrivialStudent c = new TrivialStudent();
+		Assert.assertEquals(c.onePlusOne(), 2);
+	}
+
 }
\ No newline at end of file
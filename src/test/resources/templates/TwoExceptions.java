@@ -1,11 +1,11 @@
-public class TwoExceptions {
-
-	public int getException1() {
-		throw new NullPointerException();
-	}
-	
-	public int getException2() {
-		throw new IllegalArgumentException();
-	}
-	
+public class TwoExceptions {
+
+	public int getException1() {
+		throw new NullPointerException();
+	}
+	
+	public int getException2() {
+		throw new IllegalArgumentException();
+	}
+	
 }
\ No newline at end of file
@@ -1,9 +1,9 @@
-import org.testng.annotations.Test;
-import org.testng.Assert;
-import ee.ttu.java.studenttester.annotations.*;
-import ee.ttu.java.studenttester.enums.*;
-
-@TestContextConfiguration(mode = ReportMode.MUTED)
-public class Weights100Test {
-	$tests
+import org.testng.annotations.Test;
+import org.testng.Assert;
+import ee.ttu.java.studenttester.annotations.*;
+import ee.ttu.java.studenttester.enums.*;
+
+@TestContextConfiguration(mode = ReportMode.MUTED)
+public class Weights100Test {
+	$tests
 }
\ No newline at end of file
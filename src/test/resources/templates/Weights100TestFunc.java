@@ -1,5 +1,5 @@
-	@Gradeable(weight = $weight)
-	@Test
-	public void test$counter() {
-		Assert.assertTrue($falsetrue);
+	@Gradeable(weight = $weight)
+	@Test
+	public void test$counter() {
+		Assert.assertTrue($falsetrue);
 	}
\ No newline at end of file